@@ -0,0 +1,160 @@
+package bwapi;
+
+/**
+ * Adapts asynchronous mode to how well the bot is keeping up. See {@link BWClientConfiguration.Builder#withAsyncAdaptive}.
+ *
+ * Called by the main thread once per frame; every {@link #WINDOW_FRAMES} frames it reviews the performance metrics
+ * recorded since its last review, and adjusts the frame buffer depth and the frame deadline.
+ * The buffer grows by a frame whenever the main thread repeatedly had to wait for capacity,
+ * and shrinks by a frame after several reviews in a row where the bot kept up.
+ */
+class AsyncTuner {
+    /**
+     * Frames between reviews; about a second at the "fastest" game speed
+     */
+    static final int WINDOW_FRAMES = 24;
+
+    /**
+     * Reviews in a row where the bot keeps up before the buffer shrinks
+     */
+    static final int CALM_WINDOWS_TO_SHRINK = 4;
+
+    private final int minDepth;
+    private final int maxDepth;
+    private final int minDeadlineMs;
+    private final int maxDeadlineMs;
+
+    private PerformanceMetrics metrics;
+    private int depth;
+    private int deadlineMs;
+    private int framesInWindow;
+    private int calmWindows;
+
+    private final Window blocking = new Window();
+    private final Window bufferSize = new Window();
+    private final Window framesBehind = new Window();
+    private final Window botResponse = new Window();
+    private final Window copying = new Window();
+
+    /**
+     * The samples and total of a metric recorded since the last review
+     */
+    private static class Window {
+        private PerformanceMetric metric;
+        private int resets;
+        private double samplesBefore;
+        private double totalBefore;
+        private double samples;
+        private double total;
+
+        void mark(PerformanceMetric metric, int resets) {
+            this.metric = metric;
+            this.resets = resets;
+            samplesBefore = metric.getRunningTotal().getSamples();
+            totalBefore = samplesBefore * metric.getRunningTotal().getMean();
+        }
+
+        void advance(PerformanceMetric metric, int resets) {
+            final double samplesNow = metric.getRunningTotal().getSamples();
+            final double totalNow = samplesNow * metric.getRunningTotal().getMean();
+            if (metric != this.metric || resets != this.resets) {
+                // The metrics were reset since the last review
+                this.metric = metric;
+                this.resets = resets;
+                samplesBefore = 0;
+                totalBefore = 0;
+            }
+            samples = samplesNow - samplesBefore;
+            total = totalNow - totalBefore;
+            samplesBefore = samplesNow;
+            totalBefore = totalNow;
+        }
+
+        double mean() {
+            return samples > 0 ? total / samples : 0;
+        }
+    }
+
+    AsyncTuner(BWClientConfiguration configuration) {
+        minDepth = configuration.getAsyncAdaptiveMinFrameBufferDepth();
+        maxDepth = configuration.getAsyncFrameBufferCapacity();
+        minDeadlineMs = configuration.getAsyncAdaptiveMinFrameDurationMs();
+        maxDeadlineMs = configuration.getMaxFrameDurationMs();
+        depth = maxDepth;
+        deadlineMs = maxDeadlineMs;
+    }
+
+    /**
+     * Resets for a new game, which starts with the shallowest buffer and the longest deadline.
+     */
+    void initialize(PerformanceMetrics metrics) {
+        this.metrics = metrics;
+        depth = minDepth;
+        deadlineMs = maxDeadlineMs;
+        framesInWindow = 0;
+        calmWindows = 0;
+        mark();
+    }
+
+    private void mark() {
+        final int resets = metrics.getResets();
+        blocking.mark(metrics.getIntentionallyBlocking(), resets);
+        bufferSize.mark(metrics.getFrameBufferSize(), resets);
+        framesBehind.mark(metrics.getFramesBehind(), resets);
+        botResponse.mark(metrics.getBotResponse(), resets);
+        copying.mark(metrics.getCopyingToBuffer(), resets);
+    }
+
+    /**
+     * Counts a frame, reviewing performance at the end of each window.
+     */
+    void onFrame() {
+        if (++framesInWindow < WINDOW_FRAMES) {
+            return;
+        }
+        framesInWindow = 0;
+        final int resets = metrics.getResets();
+        blocking.advance(metrics.getIntentionallyBlocking(), resets);
+        bufferSize.advance(metrics.getFrameBufferSize(), resets);
+        framesBehind.advance(metrics.getFramesBehind(), resets);
+        botResponse.advance(metrics.getBotResponse(), resets);
+        copying.advance(metrics.getCopyingToBuffer(), resets);
+        review();
+    }
+
+    private void review() {
+        if (blocking.samples * 8 > WINDOW_FRAMES) {
+            // The buffer keeps filling up and holding the game; let the bot fall further behind instead
+            calmWindows = 0;
+            depth = Math.min(maxDepth, depth + 1);
+        } else if (bufferSize.mean() < 0.5 && framesBehind.mean() < 0.5) {
+            // The bot is keeping up; after a while, bound how stale its frames may get
+            if (++calmWindows >= CALM_WINDOWS_TO_SHRINK) {
+                calmWindows = 0;
+                depth = Math.max(minDepth, depth - 1);
+            }
+        } else {
+            calmWindows = 0;
+        }
+
+        // Wait long enough for a typical frame; slower frames go into the buffer instead of holding the game
+        if (botResponse.samples > 0) {
+            final double typicalMs = 1.5 * botResponse.mean() + copying.mean() + 1;
+            deadlineMs = (int) Math.max(minDeadlineMs, Math.min(maxDeadlineMs, Math.ceil(typicalMs)));
+        }
+    }
+
+    /**
+     * @return How many frames may be buffered before the main thread waits for the bot
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return How long the main thread waits for the bot each frame
+     */
+    int getDeadlineMs() {
+        return deadlineMs;
+    }
+}
@@ -0,0 +1,34 @@
+package bwapi;
+
+/**
+ * How the JBWAPI client and bot threads wait on each other in asynchronous mode.
+ *
+ * @see BWClientConfiguration.Builder#withAsyncWaitStrategy
+ */
+public enum AsyncWaitStrategy {
+    /**
+     * Hands off frames via a lock and condition variable.
+     */
+    Lock(0),
+    /**
+     * Hands off frames via a lock-free ring; waiting threads park immediately.
+     * Uses the least CPU of the lock-free strategies.
+     */
+    Park(1),
+    /**
+     * Hands off frames via a lock-free ring; waiting threads spin briefly before parking.
+     * Reacts quickly to frames which arrive soon after a thread starts waiting.
+     */
+    SpinThenPark(2),
+    /**
+     * Hands off frames via a lock-free ring; waiting threads never park.
+     * Offers the lowest handoff latency, but keeps a core busy for each waiting thread.
+     */
+    BusySpin(3);
+
+    public final int id;
+
+    AsyncWaitStrategy(final int id) {
+        this.id = id;
+    }
+}
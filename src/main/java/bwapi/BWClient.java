@@ -1,5 +1,6 @@
 package bwapi;
 
+import java.io.PrintStream;
 import java.util.Objects;
 
 /**
@@ -11,6 +12,9 @@ public class BWClient {
     private BotWrapper botWrapper;
     private Client client;
     private PerformanceMetrics performanceMetrics;
+    private FrameTracer tracer = FrameTracer.DISABLED;
+    private DiagnosticLog diagnostics;
+    private final BWClientMBean mbean = new BWClientMBean(this);
 
     public BWClient(final BWEventListener eventListener) {
         Objects.requireNonNull(eventListener);
@@ -54,6 +58,24 @@ public class BWClient {
         return botWrapper == null ? 0 : Math.max(0, client.liveClientData().gameData().getFrameCount() - getGame().getFrameCount());
     }
 
+    /**
+     * Writes JBWAPI's most recent synchronization diagnostics, oldest first.
+     * See {@link BWClientConfiguration.Builder#withDiagnosticLogCapacity}.
+     */
+    public void dumpDiagnostics(PrintStream out) {
+        if (diagnostics != null) {
+            diagnostics.dump(out);
+        }
+    }
+
+    BotWrapper getBotWrapper() {
+        return botWrapper;
+    }
+
+    FrameTracer getTracer() {
+        return tracer;
+    }
+
     /**
      * For internal test use.
      */
@@ -86,9 +108,54 @@ public class BWClient {
      * @param gameConfiguration Settings for playing games with this client.
      */
     public void startGame(BWClientConfiguration gameConfiguration) {
+        configure(gameConfiguration);
+        if (client == null) {
+            client = new Client(this);
+        }
+        try {
+            client.reconnect();
+            play(true);
+        } finally {
+            mbean.unregister();
+        }
+    }
+
+    /**
+     * Plays back a recording of a game, made with {@link BWClientConfiguration.Builder#withFrameRecordingPath},
+     * without StarCraft. Frames are delivered as fast as the bot handles them, and the commands it sends are ignored.
+     * Returns once the recording has played to its end.
+     *
+     * @param recordingPath Path of the recording to play back
+     * @param gameConfiguration Settings for playing games with this client.
+     */
+    public void startRecordedGame(String recordingPath, BWClientConfiguration gameConfiguration) {
+        Objects.requireNonNull(recordingPath);
+        configure(gameConfiguration);
+        // Play back on a client of its own, leaving the one which connects to BWAPI for later games
+        final Client liveClient = client;
+        try {
+            client = new Client(this, new ClientConnectionRecording(recordingPath));
+            if (!client.connect()) {
+                throw new IllegalArgumentException("Unable to play back recording: " + recordingPath);
+            }
+            play(false);
+        } finally {
+            client = liveClient;
+            mbean.unregister();
+        }
+    }
+
+    private void configure(BWClientConfiguration gameConfiguration) {
         this.configuration = gameConfiguration;
         this.performanceMetrics = new PerformanceMetrics(configuration);
-        botWrapper = new BotWrapper(configuration, eventListener);
+        tracer = FrameTracer.create(configuration);
+        diagnostics = DiagnosticLog.create(configuration);
+        botWrapper = new BotWrapper(configuration, eventListener, tracer, diagnostics);
+        if (configuration.getJmx()) {
+            mbean.register();
+        } else {
+            mbean.unregister();
+        }
 
         // Use reduced priority to encourage Windows to give priority to StarCraft.exe/BWAPI.
         // If BWAPI doesn't get priority, it may not detect completion of a frame on our end in timely fashion.
@@ -96,12 +163,12 @@ public class BWClient {
         if (configuration.getAsync()) {
             Thread.currentThread().setPriority(4);
         }
+    }
 
-        if (client == null) {
-            client = new Client(this);
-        }
-        client.reconnect();
-
+    /**
+     * @param reconnect Whether to reconnect if the connection drops mid-game, rather than ending the game
+     */
+    private void play(boolean reconnect) {
         do {
             ClientData.GameData liveGameData = client.liveClientData().gameData();
             while (!liveGameData.isInGame()) {
@@ -116,16 +183,24 @@ public class BWClient {
             }
             while (liveGameData.isInGame()) {
                 botWrapper.onFrame();
+                final long flushStart = tracer.begin();
                 performanceMetrics.getFlushSideEffects().time(() -> getGame().sideEffects.flushTo(liveGameData));
+                tracer.end(FrameTracer.FLUSH_SIDE_EFFECTS, flushStart, liveGameData.getFrameCount());
                 performanceMetrics.getFrameDurationReceiveToSend().stopTiming();
 
                 client.sendFrameReceiveFrame();
                 if (!client.isConnected()) {
+                    if (!reconnect) {
+                        botWrapper.endGame();
+                        tracer.writeQuietly();
+                        return;
+                    }
                     System.out.println("Reconnecting...");
                     client.reconnect();
                 }
             }
             botWrapper.endGame();
+            tracer.writeQuietly();
         } while (configuration.getAutoContinue());
     }
 
@@ -13,6 +13,29 @@ public final class BWClientConfiguration {
     private boolean async = false;
     private int asyncFrameBufferCapacity = 10;
     private boolean asyncUnsafe = false;
+    private boolean asyncCopyLiveUnitsOnly = true;
+    private AsyncWaitStrategy asyncWaitStrategy = AsyncWaitStrategy.Lock;
+    private int asyncCopyThreads = 1;
+    private boolean asyncCompactFrames = false;
+    private boolean asyncSkipToLatestFrame = false;
+    private int commandRepeatWindowFrames = 0;
+    private int commandOptimizationLevel = 0;
+    private boolean posixNativeSync = false;
+    private int posixSyncBusyPollMicros = 0;
+    private String frameRecordingPath = null;
+    private boolean eventTypeMetrics = false;
+    private String tracePath = null;
+    private int traceCapacity = 1 << 16;
+    private boolean memoryMetrics = false;
+    private String watchdogProfilePath = null;
+    private int watchdogThresholdMs = 0;
+    private int watchdogSampleIntervalMs = 1;
+    private boolean jmx = true;
+    private boolean asyncAdaptive = false;
+    private int asyncAdaptiveMinFrameBufferDepth = 1;
+    private int asyncAdaptiveMinFrameDurationMs = 5;
+    private int diagnosticLogCapacity = 4096;
+    private boolean asyncCopyUnitFinder = false;
     private boolean logVerbosely = false;
 
     /**
@@ -107,8 +130,285 @@ public final class BWClientConfiguration {
             return this;
         }
 
+        /**
+         * When copying frames into the asynchronous frame buffer, only copy the unit data for units which have been announced to the bot,
+         * instead of all 10,000 unit slots (about 3.4 megabytes per frame).
+         * Set to `false` to fall back to copying the complete unit data block every frame.
+         */
+        public Builder withAsyncCopyLiveUnitsOnly(boolean value) {
+            bwClientConfiguration.asyncCopyLiveUnitsOnly = value;
+            return this;
+        }
+
+        /**
+         * How the client and bot threads wait for each other in asynchronous mode.
+         * {@link AsyncWaitStrategy#Lock} uses a lock and condition variable.
+         * The other strategies use a lock-free handoff, trading CPU time for lower latency when a frame arrives or the bot finishes one.
+         */
+        public Builder withAsyncWaitStrategy(AsyncWaitStrategy value) {
+            if (value == null) {
+                throw new IllegalArgumentException("asyncWaitStrategy needs to be specified.");
+            }
+            bwClientConfiguration.asyncWaitStrategy = value;
+            return this;
+        }
+
+        /**
+         * The number of threads used to copy each frame into the frame buffer, including JBWAPI's main thread.
+         * StarCraft is single-threaded, so spare cores can help copy frames faster than a single thread's share of memory bandwidth allows.
+         * Copies smaller than about a megabyte always run on the main thread.
+         */
+        public Builder withAsyncCopyThreads(int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException("asyncCopyThreads needs to be a positive number (The main thread always takes part in copying).");
+            }
+            bwClientConfiguration.asyncCopyThreads = value;
+            return this;
+        }
+
+        /**
+         * Stores the frame buffer compactly: data which doesn't change after the start of the game
+         * (walkability, regions, and so on) is kept once and shared by every buffered frame,
+         * so each buffered frame costs a few megabytes instead of 33.
+         * Reads from the frame buffer are slightly slower, as each one is routed to shared or per-frame storage.
+         */
+        public Builder withAsyncCompactFrames(boolean value) {
+            bwClientConfiguration.asyncCompactFrames = value;
+            return this;
+        }
+
+        /**
+         * When the bot falls behind in asynchronous mode, skip straight to the newest buffered frame instead of handling every frame in order.
+         * Events from the skipped frames are delivered, in order, along with the newest frame's events,
+         * so the bot still sees every event exactly once (except onFrame, which is only invoked for the newest frame).
+         * This bounds how far behind a slow bot can get, at the cost of the bot not observing the game state of every frame.
+         */
+        public Builder withAsyncSkipToLatestFrame(boolean value) {
+            bwClientConfiguration.asyncSkipToLatestFrame = value;
+            return this;
+        }
+
+        /**
+         * Drop a unit command if it exactly repeats the unit's last command, and that command was sent fewer than this many frames ago.
+         * Re-issuing the same order every frame is a common pattern which otherwise spends actions and can interrupt the unit.
+         * Orders which do something new each time (like Train or Use_Tech) and queued orders are never dropped.
+         * 0 disables dropping.
+         */
+        public Builder withCommandRepeatWindowFrames(int value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("commandRepeatWindowFrames can not be negative.");
+            }
+            bwClientConfiguration.commandRepeatWindowFrames = value;
+            return this;
+        }
+
+        /**
+         * The command optimization level to request from BWAPI at the start of each game; see {@link Game#setCommandOptimizationLevel}.
+         * BWAPI then groups identical commands issued to several units into shared selections.
+         * 0 leaves BWAPI's setting alone.
+         */
+        public Builder withCommandOptimizationLevel(int value) {
+            if (value < 0 || value > 4) {
+                throw new IllegalArgumentException("commandOptimizationLevel needs to be between 0 and 4.");
+            }
+            bwClientConfiguration.commandOptimizationLevel = value;
+            return this;
+        }
+
+        /**
+         * On Linux and macOS, signal BWAPI through direct read() and write() calls on the synchronization socket,
+         * instead of through Java socket streams. This trims the per-frame cost of handing control back and forth with BWAPI.
+         */
+        public Builder withPosixNativeSync(boolean value) {
+            bwClientConfiguration.posixNativeSync = value;
+            return this;
+        }
+
+        /**
+         * With posixNativeSync, how many microseconds to busy-poll for BWAPI's next frame before blocking.
+         * Polling burns a core while waiting, but picks up frames sooner when BWAPI responds quickly (eg. with setLocalSpeed(0)).
+         * 0 disables polling.
+         */
+        public Builder withPosixSyncBusyPollMicros(int value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("posixSyncBusyPollMicros can not be negative.");
+            }
+            bwClientConfiguration.posixSyncBusyPollMicros = value;
+            return this;
+        }
+
+        /**
+         * Records every frame received from BWAPI, and the commands sent back, to a file at this path.
+         * The recording can be played back without StarCraft using {@link BWClient#startRecordedGame}.
+         * Frames are stored as compressed differences from the previous frame, so recording costs some time on every frame.
+         * null (the default) disables recording.
+         */
+        public Builder withFrameRecordingPath(String value) {
+            bwClientConfiguration.frameRecordingPath = value;
+            return this;
+        }
+
+        /**
+         * Tracks performance metrics for each type of event: how long the bot's handler takes for each event,
+         * and how many events of the type arrive each frame.
+         * See {@link PerformanceMetrics#getEventTypeDuration} and {@link PerformanceMetrics#getEventTypeCount}.
+         * Costs two clock reads per event.
+         */
+        public Builder withEventTypeMetrics(boolean value) {
+            bwClientConfiguration.eventTypeMetrics = value;
+            return this;
+        }
+
+        /**
+         * Tracks memory activity during each frame's event handlers: kilobytes allocated by the thread running them,
+         * and milliseconds of garbage collection pauses.
+         * See {@link PerformanceMetrics#getBotAllocation} and {@link PerformanceMetrics#getGcPauses}.
+         * Needs a HotSpot-based JVM; elsewhere the metrics stay empty.
+         */
+        public Builder withMemoryMetrics(boolean value) {
+            bwClientConfiguration.memoryMetrics = value;
+            return this;
+        }
+
+        /**
+         * Records a timeline of where each frame's time goes on the client and bot threads,
+         * and writes it to a file at this path at the end of each game (replacing the previous game's).
+         * The file is in Chrome's trace-event JSON format, viewable in chrome://tracing or ui.perfetto.dev.
+         * Bots can add their own spans with {@link Game#beginTraceSpan} and {@link Game#endTraceSpan}.
+         * null (the default) disables tracing.
+         */
+        public Builder withTracePath(String value) {
+            bwClientConfiguration.tracePath = value;
+            return this;
+        }
+
+        /**
+         * The most spans the trace keeps; once exceeded, the oldest spans are dropped.
+         * Memory for the spans is allocated up front, at roughly 32 bytes per span.
+         */
+        public Builder withTraceCapacity(int value) {
+            if (value < 1 || value > 1 << 24) {
+                throw new IllegalArgumentException("traceCapacity must be between 1 and 2^24.");
+            }
+            bwClientConfiguration.traceCapacity = value;
+            return this;
+        }
+
+        /**
+         * Watches for frames where the bot's event handlers run longer than the watchdog threshold,
+         * and samples the bot thread's stack until they finish. The samples are written to a file at this path
+         * at the end of each game (replacing the previous game's) as folded stacks: one line per distinct stack,
+         * with its frames separated by semicolons, followed by the number of samples of it.
+         * This is the input format of flamegraph.pl and Speedscope.
+         * Frames exempt from timing, like frame 0 with unlimitedFrameZero, are not watched.
+         * null (the default) disables the watchdog.
+         */
+        public Builder withWatchdogProfilePath(String value) {
+            bwClientConfiguration.watchdogProfilePath = value;
+            return this;
+        }
+
+        /**
+         * How long the bot's event handlers may run on a frame before the watchdog starts sampling the bot thread.
+         * 0 (the default) uses the max frame duration.
+         */
+        public Builder withWatchdogThresholdMs(int value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("watchdogThresholdMs needs to be a non-negative number.");
+            }
+            bwClientConfiguration.watchdogThresholdMs = value;
+            return this;
+        }
+
+        /**
+         * How often the watchdog samples the bot thread's stack during a frame which has run over the threshold.
+         * Each sample briefly pauses the bot thread.
+         */
+        public Builder withWatchdogSampleIntervalMs(int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException("watchdogSampleIntervalMs needs to be at least 1.");
+            }
+            bwClientConfiguration.watchdogSampleIntervalMs = value;
+            return this;
+        }
+
+        /**
+         * Toggles registering a {@link BWClientMXBean} with the platform MBean server while the client plays,
+         * so monitoring tools (eg. JConsole, or a JMX exporter) can read its performance metrics live.
+         * Enabled by default.
+         */
+        public Builder withJmx(boolean value) {
+            bwClientConfiguration.jmx = value;
+            return this;
+        }
+
+        /**
+         * In asynchronous mode, adapts to how well the bot is keeping up, instead of always buffering up to the frame buffer capacity
+         * and always waiting up to the max frame duration for the bot.
+         *
+         * About once a second, the frame buffer's depth (how many frames may be buffered before JBWAPI holds StarCraft until the bot
+         * catches up) grows if the buffer keeps filling up, and shrinks back while the bot keeps up. So a bot which is fast early in the game
+         * handles frames with little delay, and a bot which slows down later buffers through its slow frames rather than holding the game.
+         * Similarly, the time JBWAPI waits for the bot each frame tracks how long the bot's event handlers typically take, plus the time
+         * copying frames, so unusually slow frames are buffered rather than waited on.
+         *
+         * The depth stays between {@link #withAsyncAdaptiveMinFrameBufferDepth} and the frame buffer capacity,
+         * and the wait between {@link #withAsyncAdaptiveMinFrameDurationMs} and the max frame duration.
+         */
+        public Builder withAsyncAdaptive(boolean value) {
+            bwClientConfiguration.asyncAdaptive = value;
+            return this;
+        }
+
+        /**
+         * The fewest frames the adaptive frame buffer may be limited to. See {@link #withAsyncAdaptive}.
+         */
+        public Builder withAsyncAdaptiveMinFrameBufferDepth(int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException("asyncAdaptiveMinFrameBufferDepth needs to be a positive number.");
+            }
+            bwClientConfiguration.asyncAdaptiveMinFrameBufferDepth = value;
+            return this;
+        }
+
+        /**
+         * The least time, in milliseconds, adaptive asynchronous mode waits for the bot each frame. See {@link #withAsyncAdaptive}.
+         */
+        public Builder withAsyncAdaptiveMinFrameDurationMs(int value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("asyncAdaptiveMinFrameDurationMs needs to be a non-negative number.");
+            }
+            bwClientConfiguration.asyncAdaptiveMinFrameDurationMs = value;
+            return this;
+        }
+
+        /**
+         * How many of the most recent synchronization diagnostics to keep in memory, to be dumped when the bot throws
+         * in asynchronous mode or on request with {@link BWClient#dumpDiagnostics}. Each takes 32 bytes, allocated up front.
+         * Recording a diagnostic costs about as much as reading the clock, so this can stay enabled in production.
+         * 0 disables keeping diagnostics.
+         */
+        public Builder withDiagnosticLogCapacity(int value) {
+            if (value < 0 || value > 1 << 24) {
+                throw new IllegalArgumentException("diagnosticLogCapacity must be between 0 and 2^24.");
+            }
+            bwClientConfiguration.diagnosticLogCapacity = value;
+            return this;
+        }
+
+        /**
+         * Also copies BWAPI's unit finder (its lists of unit bounds, sorted by x and by y) into the asynchronous frame buffer,
+         * so the bot's area queries such as {@link Game#getUnitsInRectangle} can binary search it as they do in synchronous mode.
+         * Costs 32 bytes per unit per frame. Without it, area queries in asynchronous mode use a grid built by JBWAPI instead.
+         */
+        public Builder withAsyncCopyUnitFinder(boolean value) {
+            bwClientConfiguration.asyncCopyUnitFinder = value;
+            return this;
+        }
+
         /**
          * Toggles verbose logging, particularly of synchronization steps.
+         * Prints each synchronization diagnostic (see {@link #withDiagnosticLogCapacity}) as it is recorded.
          */
         public Builder withLogVerbosely(boolean value) {
             bwClientConfiguration.logVerbosely = value;
@@ -119,6 +419,21 @@ public final class BWClientConfiguration {
             if (bwClientConfiguration.asyncUnsafe && ! bwClientConfiguration.async) {
                 throw new IllegalArgumentException("asyncUnsafe mode needs async mode.");
             }
+            if (bwClientConfiguration.asyncSkipToLatestFrame && ! bwClientConfiguration.async) {
+                throw new IllegalArgumentException("asyncSkipToLatestFrame mode needs async mode.");
+            }
+            if (bwClientConfiguration.asyncAdaptive && ! bwClientConfiguration.async) {
+                throw new IllegalArgumentException("asyncAdaptive mode needs async mode.");
+            }
+            if (bwClientConfiguration.asyncAdaptive && bwClientConfiguration.asyncAdaptiveMinFrameBufferDepth > bwClientConfiguration.asyncFrameBufferCapacity) {
+                throw new IllegalArgumentException("asyncAdaptiveMinFrameBufferDepth can not exceed asyncFrameBufferCapacity.");
+            }
+            if (bwClientConfiguration.asyncAdaptive && bwClientConfiguration.asyncAdaptiveMinFrameDurationMs > bwClientConfiguration.maxFrameDurationMs) {
+                throw new IllegalArgumentException("asyncAdaptiveMinFrameDurationMs can not exceed maxFrameDurationMs.");
+            }
+            if (bwClientConfiguration.asyncCopyUnitFinder && ! bwClientConfiguration.async) {
+                throw new IllegalArgumentException("asyncCopyUnitFinder needs async mode.");
+            }
             return bwClientConfiguration;
         }
     }
@@ -151,6 +466,98 @@ public final class BWClientConfiguration {
         return asyncUnsafe;
     }
 
+    public boolean getAsyncCopyLiveUnitsOnly() {
+        return asyncCopyLiveUnitsOnly;
+    }
+
+    public AsyncWaitStrategy getAsyncWaitStrategy() {
+        return asyncWaitStrategy;
+    }
+
+    public int getAsyncCopyThreads() {
+        return asyncCopyThreads;
+    }
+
+    public boolean getAsyncCompactFrames() {
+        return asyncCompactFrames;
+    }
+
+    public boolean getAsyncSkipToLatestFrame() {
+        return asyncSkipToLatestFrame;
+    }
+
+    public int getCommandRepeatWindowFrames() {
+        return commandRepeatWindowFrames;
+    }
+
+    public int getCommandOptimizationLevel() {
+        return commandOptimizationLevel;
+    }
+
+    public boolean getPosixNativeSync() {
+        return posixNativeSync;
+    }
+
+    public int getPosixSyncBusyPollMicros() {
+        return posixSyncBusyPollMicros;
+    }
+
+    public String getFrameRecordingPath() {
+        return frameRecordingPath;
+    }
+
+    public boolean getEventTypeMetrics() {
+        return eventTypeMetrics;
+    }
+
+    public boolean getMemoryMetrics() {
+        return memoryMetrics;
+    }
+
+    public String getTracePath() {
+        return tracePath;
+    }
+
+    public int getTraceCapacity() {
+        return traceCapacity;
+    }
+
+    public String getWatchdogProfilePath() {
+        return watchdogProfilePath;
+    }
+
+    public int getWatchdogThresholdMs() {
+        return watchdogThresholdMs;
+    }
+
+    public int getWatchdogSampleIntervalMs() {
+        return watchdogSampleIntervalMs;
+    }
+
+    public boolean getJmx() {
+        return jmx;
+    }
+
+    public boolean getAsyncAdaptive() {
+        return asyncAdaptive;
+    }
+
+    public int getAsyncAdaptiveMinFrameBufferDepth() {
+        return asyncAdaptiveMinFrameBufferDepth;
+    }
+
+    public int getAsyncAdaptiveMinFrameDurationMs() {
+        return asyncAdaptiveMinFrameDurationMs;
+    }
+
+    public int getDiagnosticLogCapacity() {
+        return diagnosticLogCapacity;
+    }
+
+    public boolean getAsyncCopyUnitFinder() {
+        return asyncCopyUnitFinder;
+    }
+
     public boolean getLogVerbosely() {
         return logVerbosely;
     }
@@ -0,0 +1,209 @@
+package bwapi;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exposes a {@link BWClient}'s live performance over JMX. See {@link BWClientMXBean}.
+ *
+ * Attributes are read from the JMX thread while the game runs, so may be a frame out of date.
+ */
+class BWClientMBean implements BWClientMXBean {
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private final BWClient bwClient;
+    private final ObjectName name;
+
+    /**
+     * Whether this bean is registered, so clients which opt out of JMX never touch the platform MBean server
+     */
+    private boolean registered;
+
+    BWClientMBean(BWClient bwClient) {
+        this.bwClient = bwClient;
+        try {
+            name = new ObjectName("bwapi:type=BWClient,id=" + nextId.getAndIncrement());
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    ObjectName getName() {
+        return name;
+    }
+
+    /**
+     * Registers with the platform MBean server, reporting rather than throwing any failure.
+     */
+    void register() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if ( ! server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+            registered = true;
+        } catch (JMException | SecurityException e) {
+            System.err.println("Unable to register " + name + " for JMX: " + e);
+        }
+    }
+
+    void unregister() {
+        if ( ! registered) {
+            return;
+        }
+        registered = false;
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException | SecurityException e) {
+            System.err.println("Unable to unregister " + name + " from JMX: " + e);
+        }
+    }
+
+    private ClientData.GameData liveGameData() {
+        final Client client = bwClient.getClient();
+        return client == null || ! client.isConnected() ? null : client.liveClientData().gameData();
+    }
+
+    private PerformanceMetrics metrics() {
+        return bwClient.getPerformanceMetrics();
+    }
+
+    private static double mean(PerformanceMetric metric) {
+        return metric.getHistogram().getMean();
+    }
+
+    private static double percentile(PerformanceMetric metric, double percentile) {
+        return metric.getHistogram().getValueAtPercentile(percentile);
+    }
+
+    private static long sum(PerformanceMetric metric) {
+        return Math.round(metric.getRunningTotal().getMean() * metric.getRunningTotal().getSamples());
+    }
+
+    @Override
+    public boolean isInGame() {
+        final ClientData.GameData gameData = liveGameData();
+        return gameData != null && gameData.isInGame();
+    }
+
+    @Override
+    public int getFrameCount() {
+        final ClientData.GameData gameData = liveGameData();
+        return gameData == null ? 0 : gameData.getFrameCount();
+    }
+
+    @Override
+    public int getBotFrameCount() {
+        final Game game = bwClient.getGame();
+        return game == null || ! isInGame() ? 0 : game.getFrameCount();
+    }
+
+    @Override
+    public int getFramesBehind() {
+        return bwClient.getGame() == null || ! isInGame() ? 0 : bwClient.framesBehind();
+    }
+
+    @Override
+    public int getFrameBufferSize() {
+        final BotWrapper botWrapper = bwClient.getBotWrapper();
+        return botWrapper == null || ! isInGame() ? 0 : botWrapper.framesBuffered();
+    }
+
+    @Override
+    public int getFrameBufferDepth() {
+        final BotWrapper botWrapper = bwClient.getBotWrapper();
+        return botWrapper == null ? 0 : botWrapper.frameBufferDepth();
+    }
+
+    @Override
+    public int getFrameDeadlineMs() {
+        final BotWrapper botWrapper = bwClient.getBotWrapper();
+        return botWrapper == null ? 0 : botWrapper.frameDeadlineMs();
+    }
+
+    @Override
+    public long getFramesHandled() {
+        return metrics().getBotResponse().getHistogram().getTotalCount();
+    }
+
+    @Override
+    public double getBotResponseMeanMs() {
+        return mean(metrics().getBotResponse());
+    }
+
+    @Override
+    public double getBotResponseP50Ms() {
+        return percentile(metrics().getBotResponse(), 50);
+    }
+
+    @Override
+    public double getBotResponseP99Ms() {
+        return percentile(metrics().getBotResponse(), 99);
+    }
+
+    @Override
+    public double getBotResponseP999Ms() {
+        return percentile(metrics().getBotResponse(), 99.9);
+    }
+
+    @Override
+    public double getBotResponseMaxMs() {
+        return metrics().getBotResponse().getHistogram().getMax();
+    }
+
+    @Override
+    public long getBotResponseOverruns() {
+        return metrics().getBotResponse().getHistogram().getCountAtOrAbove(bwClient.getConfiguration().getMaxFrameDurationMs());
+    }
+
+    @Override
+    public double getFrameDurationP99Ms() {
+        return percentile(metrics().getFrameDurationReceiveToSend(), 99);
+    }
+
+    @Override
+    public double getCopyingToBufferMeanMs() {
+        return mean(metrics().getCopyingToBuffer());
+    }
+
+    @Override
+    public double getCopyingToBufferMaxMs() {
+        return metrics().getCopyingToBuffer().getHistogram().getMax();
+    }
+
+    @Override
+    public long getUnitCommandsDropped() {
+        return sum(metrics().getUnitCommandsDropped());
+    }
+
+    @Override
+    public String getReport() {
+        return metrics().toString();
+    }
+
+    @Override
+    public String getDiagnostics() {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PrintStream printer = new PrintStream(output, false, "UTF-8")) {
+            bwClient.dumpDiagnostics(printer);
+            printer.flush();
+            return output.toString("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void resetMetrics() {
+        metrics().reset();
+    }
+}
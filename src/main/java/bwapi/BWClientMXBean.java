@@ -0,0 +1,93 @@
+package bwapi;
+
+/**
+ * Live performance of a running {@link BWClient}, for monitoring over JMX.
+ *
+ * Each BWClient registers one of these with the platform MBean server while it plays,
+ * under the name bwapi:type=BWClient,id=N, unless disabled with {@link BWClientConfiguration.Builder#withJmx}.
+ * Durations are in milliseconds. Metrics cover the current game, or since the last {@link #resetMetrics()}.
+ */
+public interface BWClientMXBean {
+    /**
+     * @return Whether a game is in progress
+     */
+    boolean isInGame();
+
+    /**
+     * @return The most recent frame received from BWAPI
+     */
+    int getFrameCount();
+
+    /**
+     * @return The frame the bot is handling, which in asynchronous mode may be behind {@link #getFrameCount()}
+     */
+    int getBotFrameCount();
+
+    /**
+     * @return The number of frames between the one the bot is handling and the most recent received
+     */
+    int getFramesBehind();
+
+    /**
+     * @return The number of frames in the asynchronous frame buffer, or 0 in synchronous mode
+     */
+    int getFrameBufferSize();
+
+    /**
+     * @return The most frames the asynchronous frame buffer may currently hold, or 0 in synchronous mode.
+     * Varies during the game in adaptive asynchronous mode.
+     */
+    int getFrameBufferDepth();
+
+    /**
+     * @return How long the client waits for the bot each frame before returning control to BWAPI.
+     * Varies during the game in adaptive asynchronous mode.
+     */
+    int getFrameDeadlineMs();
+
+    /**
+     * @return The number of frames the bot has handled
+     */
+    long getFramesHandled();
+
+    double getBotResponseMeanMs();
+
+    double getBotResponseP50Ms();
+
+    double getBotResponseP99Ms();
+
+    double getBotResponseP999Ms();
+
+    double getBotResponseMaxMs();
+
+    /**
+     * @return The number of frames whose bot event handlers took at least the max frame duration
+     */
+    long getBotResponseOverruns();
+
+    double getFrameDurationP99Ms();
+
+    double getCopyingToBufferMeanMs();
+
+    double getCopyingToBufferMaxMs();
+
+    /**
+     * @return The number of unit commands dropped as repeats
+     */
+    long getUnitCommandsDropped();
+
+    /**
+     * @return Every metric, formatted as by {@link PerformanceMetrics#toString()}
+     */
+    String getReport();
+
+    /**
+     * @return The most recent synchronization diagnostics, as written by {@link BWClient#dumpDiagnostics}
+     */
+    String getDiagnostics();
+
+    /**
+     * Clears all metrics, to measure from now on.
+     */
+    void resetMetrics();
+}
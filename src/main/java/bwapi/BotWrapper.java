@@ -1,6 +1,7 @@
 package bwapi;
 
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 /**
  * Manages invocation of bot event handlers
@@ -10,6 +11,10 @@ class BotWrapper {
     private final BWClientConfiguration configuration;
     private final BWEventListener eventListener;
     private final FrameBuffer frameBuffer;
+    private final FrameTracer tracer;
+    private final DiagnosticLog diagnostics;
+    private final FrameWatchdog watchdog;
+    private final AsyncTuner tuner;
     private WrappedBuffer liveData;
     private Game botGame;
     private Thread botThread;
@@ -19,11 +24,26 @@ class BotWrapper {
     private final ReentrantLock lastBotThrowLock = new ReentrantLock();
     private final ReentrantLock unsafeReadReadyLock = new ReentrantLock();
     private boolean unsafeReadReady = false;
+    private volatile long liveFrameDeadlineNanos = Long.MAX_VALUE;
+    private final BooleanSupplier frameAvailable = this::isFrameAvailable;
+    private final BooleanSupplier frameUnavailable = () -> ! isFrameAvailable();
+    private final BooleanSupplier putBotOnLiveDataIfIdle = this::putBotOnLiveDataIfIdle;
 
-    BotWrapper(BWClientConfiguration configuration, BWEventListener eventListener) {
+    BotWrapper(BWClientConfiguration configuration, BWEventListener eventListener, FrameTracer tracer, DiagnosticLog diagnostics) {
         this.configuration = configuration;
         this.eventListener = eventListener;
-        frameBuffer = configuration.getAsync() ? new FrameBuffer(configuration) : null;
+        this.tracer = tracer;
+        this.diagnostics = diagnostics;
+        frameBuffer = configuration.getAsync() ? FrameBuffer.create(configuration) : null;
+        if (frameBuffer != null) {
+            frameBuffer.setTracer(tracer);
+            frameBuffer.setDiagnostics(diagnostics);
+        }
+        if (configuration.getMemoryMetrics()) {
+            MemoryMonitor.start();
+        }
+        watchdog = FrameWatchdog.create(configuration);
+        tuner = configuration.getAsyncAdaptive() ? new AsyncTuner(configuration) : null;
     }
 
     /**
@@ -33,14 +53,23 @@ class BotWrapper {
         if (configuration.getAsync()) {
             frameBuffer.initialize(liveData, performanceMetrics);
         }
+        if (tuner != null) {
+            tuner.initialize(performanceMetrics);
+            frameBuffer.setDepth(tuner.getDepth());
+        }
         this.performanceMetrics = performanceMetrics;
         botGame = new Game();
         botGame.setConfiguration(configuration);
+        botGame.setTracer(tracer);
         botGame.botClientData().setBuffer(liveData);
         liveClientData.setBuffer(liveData);
+        performanceMetrics.setFrameSources(liveClientData.gameData(), botGame.botClientData().gameData());
         this.liveData = liveData;
         botThread = null;
         gameOver = false;
+        if (watchdog != null) {
+            watchdog.start();
+        }
     }
 
     /**
@@ -51,22 +80,63 @@ class BotWrapper {
         return botGame;
     }
 
+    /**
+     * @return The number of frames in the asynchronous frame buffer, or 0 in synchronous mode
+     */
+    int framesBuffered() {
+        return frameBuffer == null ? 0 : frameBuffer.framesBuffered();
+    }
+
+    /**
+     * @return The most frames the asynchronous frame buffer may currently hold, or 0 in synchronous mode
+     */
+    int frameBufferDepth() {
+        return frameBuffer == null ? 0 : frameBuffer.getDepth();
+    }
+
+    /**
+     * @return How long the client currently waits for the bot each frame before returning control to BWAPI
+     */
+    int frameDeadlineMs() {
+        return tuner == null ? configuration.getMaxFrameDurationMs() : tuner.getDeadlineMs();
+    }
+
     private boolean isUnsafeReadReady() {
         unsafeReadReadyLock.lock();
         try { return unsafeReadReady; }
         finally { unsafeReadReadyLock.unlock(); }
     }
 
+    /**
+     * @return Whether the bot thread has a frame to handle, either from the frame buffer or from live data
+     */
+    private boolean isFrameAvailable() {
+        return (isUnsafeReadReady() || ! frameBuffer.empty()) && ! frameBuffer.isWakingMainThread();
+    }
+
     private void setUnsafeReadReady(boolean value) {
         unsafeReadReadyLock.lock();
         try { unsafeReadReady = value; }
         finally { unsafeReadReadyLock.unlock(); }
-        frameBuffer.lockSize.lock();
-        try {
-            frameBuffer.conditionSize.signalAll();
-        } finally {
-            frameBuffer.lockSize.unlock();
+        frameBuffer.signal();
+    }
+
+    /**
+     * Unsafe mode: if the frame buffer is empty (meaning the bot must be idle),
+     * allows the bot to read directly from shared memory while we copy it over.
+     * Should run atomically with respect to the frame buffer, so the bot can't check for a frame in between.
+     *
+     * @return Whether the bot was put on live data
+     */
+    private boolean putBotOnLiveDataIfIdle() {
+        if (frameBuffer.empty()) {
+            diagnostics.log(DiagnosticLog.Event.PuttingBotOnLiveData);
+            botGame.botClientData().setBuffer(liveData);
+            setUnsafeReadReady(true);
+            return true;
         }
+        setUnsafeReadReady(false);
+        return false;
     }
 
     /**
@@ -74,21 +144,38 @@ class BotWrapper {
      */
     void onFrame() {
         if (configuration.getAsync()) {
-            configuration.log("Main: onFrame asynchronous start");
+            diagnostics.log(DiagnosticLog.Event.OnFrameAsyncStart);
             asyncOnFrame();
-            configuration.log("Main: onFrame asynchronous end");
+            diagnostics.log(DiagnosticLog.Event.OnFrameAsyncEnd);
         } else {
-            configuration.log("Main: onFrame synchronous start");
+            diagnostics.log(DiagnosticLog.Event.OnFrameSyncStart);
+            botGame.setFrameDeadlineNanos(deadlineNanos(System.nanoTime(), configuration.getMaxFrameDurationMs()));
             handleEvents();
-            configuration.log("Main: onFrame synchronous end");
+            diagnostics.log(DiagnosticLog.Event.OnFrameSyncEnd);
+        }
+    }
+
+    /**
+     * @return When the bot should be done with the live frame, which arrived at startNanos
+     */
+    private long deadlineNanos(long startNanos, int durationMs) {
+        if (configuration.getUnlimitedFrameZero() && liveClientData.gameData().getFrameCount() == 0) {
+            return Long.MAX_VALUE;
         }
+        return startNanos + (long) durationMs * 1000000;
     }
 
     void asyncOnFrame() {
         long startNanos = System.nanoTime();
-        long endNanos = startNanos + (long) configuration.getMaxFrameDurationMs() * 1000000;
+        if (tuner != null) {
+            tuner.onFrame();
+            frameBuffer.setDepth(tuner.getDepth());
+        }
+        long endNanos = startNanos + (long) frameDeadlineMs() * 1000000;
+        // The bot's budget stays the configured frame duration, however long the tuner has the client wait
+        liveFrameDeadlineNanos = deadlineNanos(startNanos, configuration.getMaxFrameDurationMs());
         if (botThread == null) {
-            configuration.log("Main: Starting bot thread");
+            diagnostics.log(DiagnosticLog.Event.StartingBotThread);
             botThread = createBotThread();
             botThread.setName("JBWAPI Bot");
             // Reduced priority helps ensure that StarCraft.exe/BWAPI pick up on our frame completion in timely fashion
@@ -96,36 +183,24 @@ class BotWrapper {
             botThread.start();
         }
 
-        // Unsafe mode:
-        // If the frame buffer is empty (meaning the bot must be idle)
-        // allow the bot to read directly from shared memory while we copy it over
         if (configuration.getAsyncUnsafe()) {
-            frameBuffer.lockSize.lock();
-            try {
-                if (frameBuffer.empty()) {
-                    configuration.log("Main: Putting bot on live data");
-                    botGame.botClientData().setBuffer(liveData);
-                    setUnsafeReadReady(true);
-                } else {
-                    setUnsafeReadReady(false);
-                }
-            } finally {
-                frameBuffer.lockSize.unlock();
-            }
+            frameBuffer.atomically(putBotOnLiveDataIfIdle);
         }
 
         // Add a frame to buffer
         // If buffer is full, will wait until it has capacity.
         // Then wait for the buffer to empty or to run out of time in the frame.
         int frame = liveClientData.gameData().getFrameCount();
-        configuration.log("Main: Enqueuing frame #" + frame);
-        frameBuffer.enqueueFrame();
+        diagnostics.log(DiagnosticLog.Event.EnqueuingFrame, frame);
+        final long enqueueStart = tracer.begin();
+        frameBuffer.enqueueFrame(liveFrameDeadlineNanos);
+        tracer.end(FrameTracer.ENQUEUE_FRAME, enqueueStart, frame);
 
-        configuration.log("Main: Enqueued frame #" + frame);
+        diagnostics.log(DiagnosticLog.Event.EnqueuedFrame, frame);
         if (frame > 0) {
             performanceMetrics.getClientIdle().startTiming();
         }
-        frameBuffer.lockSize.lock();
+        final long waitStart = tracer.begin();
         try {
             while (!frameBuffer.empty()) {
                 // Unsafe mode: Move the bot off of live data onto the frame buffer
@@ -134,36 +209,39 @@ class BotWrapper {
                 // (to avoid tens of thousands of synchronized calls per frame)
                 // so there's no guarantee of safety here.
                 if (configuration.getAsyncUnsafe() && frameBuffer.size() == 1) {
-                    configuration.log("Main: Weaning bot off live data");
+                    diagnostics.log(DiagnosticLog.Event.WeaningBotOffLiveData);
                     botGame.botClientData().setBuffer(frameBuffer.peek());
                 }
 
                 // Make bot exceptions fall through to the main thread.
                 Throwable lastThrow = getLastBotThrow();
                 if (lastThrow != null) {
-                    configuration.log("Main: Rethrowing bot throwable");
+                    diagnostics.log(DiagnosticLog.Event.RethrowingBotThrowable);
+                    diagnostics.dump(System.err);
                     throw new RuntimeException(lastThrow);
                 }
 
+                // Wait for the bot to make progress on the buffered frames
+                final int framesBuffered = frameBuffer.framesBuffered();
                 if (configuration.getUnlimitedFrameZero() && frame == 0) {
-                    configuration.log("Main: Waiting indefinitely on frame #" + frame);
-                    frameBuffer.conditionSize.await();
+                    diagnostics.log(DiagnosticLog.Event.WaitingIndefinitely, frame);
+                    frameBuffer.awaitUninterruptibly(() -> frameBuffer.framesBuffered() != framesBuffered);
                 } else {
                     long remainingNanos = endNanos - System.nanoTime();
                     if (remainingNanos <= 0) {
-                        configuration.log("Main: Out of time in frame #" + frame);
+                        diagnostics.log(DiagnosticLog.Event.OutOfTime, frame);
                         break;
                     }
-                    configuration.log("Main: Waiting " + remainingNanos / 1000000 + "ms for bot on frame #" + frame);
-                    frameBuffer.conditionSize.awaitNanos(remainingNanos);
+                    diagnostics.log(DiagnosticLog.Event.WaitingForBot, remainingNanos / 1000000, frame);
+                    frameBuffer.await(() -> frameBuffer.framesBuffered() != framesBuffered, remainingNanos);
                     long excessNanos = Math.max(0, (System.nanoTime() - endNanos) / 1000000);
                     performanceMetrics.getExcessSleep().record(excessNanos);
                 }
             }
         } catch(InterruptedException ignored) {
         } finally {
-            frameBuffer.lockSize.unlock();
             performanceMetrics.getClientIdle().stopTiming();
+            tracer.end(FrameTracer.WAIT_FOR_BOT, waitStart, frame);
         }
     }
 
@@ -176,6 +254,9 @@ class BotWrapper {
                 botThread.join();
             } catch (InterruptedException ignored) {}
         }
+        if (watchdog != null) {
+            watchdog.stop();
+        }
     }
 
     Throwable getLastBotThrow() {
@@ -188,37 +269,41 @@ class BotWrapper {
     private Thread createBotThread() {
         return new Thread(() -> {
             try {
-                configuration.log("Bot: Thread started");
+                diagnostics.log(DiagnosticLog.Event.BotThreadStarted);
                 while (!gameOver) {
 
-                    boolean doUnsafeRead = false;
-                    configuration.log("Bot: Ready for another frame");
+                    diagnostics.log(DiagnosticLog.Event.BotReady);
                     performanceMetrics.getBotIdle().startTiming();
-                    frameBuffer.lockSize.lock();
-                    try {
-                        doUnsafeRead = isUnsafeReadReady();
-                        while ( ! doUnsafeRead && frameBuffer.empty()) {
-                            configuration.log("Bot: Waiting for a frame");
-                            frameBuffer.conditionSize.awaitUninterruptibly();
-                            doUnsafeRead = isUnsafeReadReady();
-                        }
-                    } finally {
-                        frameBuffer.lockSize.unlock();
+                    if (frameBuffer.atomically(frameUnavailable)) {
+                        diagnostics.log(DiagnosticLog.Event.BotWaitingForFrame);
+                        final long waitStart = tracer.begin();
+                        frameBuffer.awaitUninterruptibly(frameAvailable);
+                        tracer.end(FrameTracer.WAIT_FOR_FRAME, waitStart, botGame.getFrameCount());
                     }
+                    boolean doUnsafeRead = isUnsafeReadReady();
                     performanceMetrics.getBotIdle().stopTiming();
 
                     if (doUnsafeRead) {
-                        configuration.log("Bot: Reading live frame");
+                        diagnostics.log(DiagnosticLog.Event.BotReadingLiveFrame);
                         setUnsafeReadReady(false);
+                        botGame.setFrameDeadlineNanos(liveFrameDeadlineNanos);
                     } else {
-                        configuration.log("Bot: Peeking next frame from buffer");
+                        if (configuration.getAsyncSkipToLatestFrame()) {
+                            int framesSkipped = frameBuffer.skipToLatestFrame();
+                            performanceMetrics.getFramesSkipped().record(framesSkipped);
+                            if (framesSkipped > 0) {
+                                diagnostics.log(DiagnosticLog.Event.BotSkippedFrames, framesSkipped);
+                            }
+                        }
+                        diagnostics.log(DiagnosticLog.Event.BotPeekingFrame);
                         botGame.botClientData().setBuffer(frameBuffer.peek());
+                        botGame.setFrameDeadlineNanos(frameBuffer.deadlineAt(frameBuffer.stepBot()));
                     }
 
-                    configuration.log("Bot: Handling events on frame #" + botGame.getFrameCount());
+                    diagnostics.log(DiagnosticLog.Event.BotHandlingEvents, botGame.getFrameCount());
                     handleEvents();
 
-                    configuration.log("Bot: Events handled. Dequeuing frame #" + botGame.getFrameCount());
+                    diagnostics.log(DiagnosticLog.Event.BotEventsHandled, botGame.getFrameCount());
                     frameBuffer.dequeue();
                 }
             } catch (Throwable throwable) {
@@ -249,12 +334,53 @@ class BotWrapper {
             performanceMetrics.getFramesBehind().record(Math.max(1, frameBuffer.framesBuffered()) - 1);
         }
 
-        performanceMetrics.getBotResponse().timeIf(
-            ! gameOver && (botGameData.getFrameCount() > 0 || ! configuration.getUnlimitedFrameZero()),
-            () -> {
-                for (int i = 0; i < botGameData.getEventCount(); i++) {
-                    EventHandler.operation(eventListener, botGame, botGameData.getEvents(i));
-                }
-            });
+        final boolean memoryMetrics = configuration.getMemoryMetrics();
+        final long allocatedBefore = memoryMetrics ? MemoryMonitor.allocatedBytes() : 0;
+        final long uptimeBefore = memoryMetrics ? MemoryMonitor.uptimeMillis() : 0;
+        final long handleStart = tracer.begin();
+        final boolean eventTypeMetrics = configuration.getEventTypeMetrics();
+        final boolean timed = ! gameOver && (botGameData.getFrameCount() > 0 || ! configuration.getUnlimitedFrameZero());
+        // Frames which are not timed may take as long as they like, so are no concern of the watchdog
+        final boolean watched = watchdog != null && timed;
+        if (watched) {
+            watchdog.frameStarted();
+        }
+        try {
+            performanceMetrics.getBotResponse().timeIf(
+                timed,
+                () -> {
+                    for (int i = 0; i < botGameData.getEventCount(); i++) {
+                        final ClientData.Event event = botGameData.getEvents(i);
+                        final Object flightEvent = JfrEvents.ENABLED ? JfrEvents.beginDispatch() : null;
+                        final long eventStartNanos = eventTypeMetrics ? System.nanoTime() : 0;
+                        EventHandler.operation(eventListener, botGame, event);
+                        if (eventTypeMetrics) {
+                            performanceMetrics.recordEventHandled(event.getType(), System.nanoTime() - eventStartNanos);
+                        }
+                        if (flightEvent != null) {
+                            JfrEvents.commitDispatch(flightEvent, event.getType(), botGameData.getFrameCount(), event.getV1());
+                        }
+                    }
+                    if (eventTypeMetrics) {
+                        performanceMetrics.recordEventTypeCounts();
+                    }
+                });
+        } finally {
+            if (watched) {
+                watchdog.frameEnded();
+            }
+        }
+
+        tracer.end(FrameTracer.HANDLE_EVENTS, handleStart, botGameData.getFrameCount());
+        if (memoryMetrics) {
+            if (MemoryMonitor.canMeasureAllocation()) {
+                performanceMetrics.getBotAllocation().record((MemoryMonitor.allocatedBytes() - allocatedBefore) / 1024d);
+            }
+            performanceMetrics.getGcPauses().record(MemoryMonitor.pauseMillisBetween(uptimeBefore, MemoryMonitor.uptimeMillis()));
+        }
+
+        if (botGame.commandOptimizer.isEnabled()) {
+            performanceMetrics.getUnitCommandsDropped().record(botGame.commandOptimizer.takeDropped());
+        }
     }
 }
@@ -25,6 +25,8 @@ SOFTWARE.
 
 package bwapi;
 
+import java.io.IOException;
+
 class Client {
     private static final int SUPPORTED_BWAPI_VERSION = 10003;
 
@@ -34,11 +36,25 @@ class Client {
     private WrappedBuffer mapShm = null;
     private WrappedBuffer gameTableShm = null;
     private final ClientConnection clientConnector;
+    private FrameRecorder recorder = null;
 
     Client(BWClient bwClient) {
+        this(bwClient, defaultConnection(bwClient.getConfiguration()));
+    }
+
+    Client(BWClient bwClient, ClientConnection clientConnector) {
         this.bwClient = bwClient;
+        this.clientConnector = clientConnector;
+    }
+
+    private static ClientConnection defaultConnection(BWClientConfiguration configuration) {
         boolean windowsOs = System.getProperty("os.name").toLowerCase().contains("win");
-        clientConnector = windowsOs ? new ClientConnectionW32() : new ClientConnectionPosix();
+        if (windowsOs) {
+            return new ClientConnectionW32();
+        } else if (configuration.getPosixNativeSync()) {
+            return new ClientConnectionPosixNative(configuration.getPosixSyncBusyPollMicros());
+        }
+        return new ClientConnectionPosix();
     }
 
     /**
@@ -77,6 +93,7 @@ class Client {
             return;
         }
         clientConnector.disconnect();
+        stopRecording();
         mapShm = null;
         gameTableShm = null;
         clientData = null;
@@ -136,6 +153,14 @@ class Client {
         try {
             mapShm = clientConnector.getSharedMemory(serverProcID);
         }
+        catch (RecordingConnectionException e) {
+            System.err.println(e.getMessage());
+            if (bwClient.getConfiguration().getDebugConnection()) {
+                e.printStackTrace();
+            }
+            this.gameTableShm = null;
+            return false;
+        }
         catch (Exception e) {
             System.err.println("Unable to open shared memory mapping: " + e.getMessage());
             if (bwClient.getConfiguration().getDebugConnection()) {
@@ -190,9 +215,49 @@ class Client {
 
         System.out.println("Connection successful");
         connected = true;
+        startRecording();
         return true;
     }
 
+    private void startRecording() {
+        final String path = bwClient.getConfiguration().getFrameRecordingPath();
+        if (path == null) {
+            return;
+        }
+        try {
+            recorder = new FrameRecorder(path, mapShm);
+            recorder.recordFrame();
+        } catch (IOException e) {
+            System.err.println("Unable to record frames to " + path + ": " + e.getMessage());
+            stopRecording();
+        }
+    }
+
+    private void stopRecording() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.close();
+        } catch (IOException ignored) {
+            // The recording is flushed every frame, so there is nothing left to save
+        }
+        recorder = null;
+    }
+
+    private void record(boolean commands) {
+        try {
+            if (commands) {
+                recorder.recordCommands();
+            } else {
+                recorder.recordFrame();
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to record frame, stopping recording: " + e.getMessage());
+            stopRecording();
+        }
+    }
+
     void sendFrameReceiveFrame() {
         final PerformanceMetrics metrics = bwClient.getPerformanceMetrics();
 
@@ -202,6 +267,12 @@ class Client {
             metrics.getCommunicationSendToReceive().startTiming();
             metrics.getCommunicationSendToSent().startTiming();
         }
+        if (recorder != null) {
+            record(true);
+        }
+        final FrameTracer tracer = bwClient.getTracer();
+        final int frame = clientData.gameData().getFrameCount();
+        final long submitStart = tracer.begin();
         try {
             clientConnector.submitClientData();
         } catch (Exception e) {
@@ -211,6 +282,7 @@ class Client {
             }
             disconnect();
         }
+        tracer.end(FrameTracer.SUBMIT_CLIENT_DATA, submitStart, frame);
         metrics.getCommunicationSendToSent().stopTiming();
         metrics.getFrameDurationReceiveToSent().stopTiming();
         if (bwClient.doTime()) {
@@ -223,6 +295,7 @@ class Client {
         if (bwClient.doTime()) {
             metrics.getCommunicationListenToReceive().startTiming();
         }
+        final long waitStart = tracer.begin();
         try {
             clientConnector.waitForServerData();
         }
@@ -235,8 +308,12 @@ class Client {
             return;
         }
 
+        tracer.end(FrameTracer.WAIT_FOR_SERVER_DATA, waitStart, clientData.gameData().getFrameCount());
         metrics.getCommunicationListenToReceive().stopTiming();
         metrics.getCommunicationSendToReceive().stopTiming();
+        if (recorder != null) {
+            record(false);
+        }
 
         if (bwClient.doTime()) {
             metrics.getFrameDurationReceiveToSend().startTiming();
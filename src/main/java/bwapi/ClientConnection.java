@@ -25,6 +25,12 @@ class SharedMemoryConnectionException extends RuntimeException {
     }
 }
 
+class RecordingConnectionException extends RuntimeException {
+    public RecordingConnectionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
+
 class SharedLockConnectionException extends RuntimeException {
     public SharedLockConnectionException(String message, Throwable cause) {
         super(message, cause);
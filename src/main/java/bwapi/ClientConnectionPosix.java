@@ -73,9 +73,16 @@ class ClientConnectionPosix implements ClientConnection {
         }
     }
 
+    static String socketPath(int serverProcID) {
+        return "/tmp/bwapi_socket_" + serverProcID;
+    }
+
     @Override
     public void connectSharedLock(int serverProcID) {
-        final String communicationSocket = "/tmp/bwapi_socket_" + serverProcID;
+        connectSocket(socketPath(serverProcID));
+    }
+
+    void connectSocket(String communicationSocket) {
         try {
             syncSocket = AFUNIXSocket.newInstance();
             syncSocket.connect(new AFUNIXSocketAddress(new File(communicationSocket)));
@@ -0,0 +1,140 @@
+package bwapi;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * POSIX connection which synchronizes with BWAPI by calling read() and write() directly on the socket's file descriptor,
+ * skipping the stream and socket layers in between.
+ *
+ * Optionally busy-polls the socket for a while before blocking on it,
+ * so a frame which arrives shortly after JBWAPI starts waiting is picked up without the cost of the thread sleeping and waking.
+ */
+class ClientConnectionPosixNative extends ClientConnectionPosix {
+    private static final int AF_UNIX = 1;
+    private static final int SOCK_STREAM = 1;
+    private static final int EINTR = 4;
+    private static final int MSG_DONTWAIT = Platform.isLinux() ? 0x40 : 0x80;
+    private static final NativeLong ONE_BYTE = new NativeLong(1);
+
+    /**
+     * Direct-mapped libc functions, which are considerably cheaper to call than interface-mapped ones.
+     */
+    static class LibCDirect {
+        static {
+            Native.register(Platform.C_LIBRARY_NAME);
+        }
+
+        static native int socket(int domain, int type, int protocol);
+        static native int connect(int fd, Pointer address, int addressLength);
+        static native int read(int fd, Pointer buffer, NativeLong count);
+        static native int write(int fd, Pointer buffer, NativeLong count);
+        static native int recv(int fd, Pointer buffer, NativeLong count, int flags);
+        static native int close(int fd);
+    }
+
+    private final long busyPollNanos;
+    private final Memory readBuffer = new Memory(1);
+    private final Memory writeBuffer = new Memory(1);
+    private int fd = -1;
+
+    /**
+     * @param busyPollMicros How long to poll the socket before blocking on it when waiting for BWAPI, or 0 to always block
+     */
+    ClientConnectionPosixNative(int busyPollMicros) {
+        busyPollNanos = busyPollMicros * 1000L;
+        writeBuffer.setByte(0, (byte) 1);
+    }
+
+    @Override
+    public void disconnect() {
+        if (fd >= 0) {
+            LibCDirect.close(fd);
+            fd = -1;
+        }
+    }
+
+    @Override
+    public void connectSharedLock(int serverProcID) {
+        connectSocket(socketPath(serverProcID));
+    }
+
+    void connectSocket(String communicationSocket) {
+        final int socket = LibCDirect.socket(AF_UNIX, SOCK_STREAM, 0);
+        if (socket < 0) {
+            throw new SharedLockConnectionException("Unable to create communications socket: " + communicationSocket, lastError());
+        }
+        final Memory address = socketAddress(communicationSocket);
+        if (LibCDirect.connect(socket, address, (int) address.size()) < 0) {
+            IOException error = lastError();
+            LibCDirect.close(socket);
+            throw new SharedLockConnectionException("Unable to open communications socket: " + communicationSocket, error);
+        }
+        fd = socket;
+    }
+
+    /**
+     * @return A sockaddr_un for a Unix domain socket path
+     */
+    private static Memory socketAddress(String path) {
+        final byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        // Linux: 16-bit family, then the path. BSDs and macOS: 8-bit length, 8-bit family, then the path.
+        final int pathLength = Platform.isLinux() ? 108 : 104;
+        if (pathBytes.length >= pathLength) {
+            throw new SharedLockConnectionException("Socket path too long: " + path, null);
+        }
+        final Memory address = new Memory(2 + pathLength);
+        address.clear();
+        if (Platform.isLinux()) {
+            address.setShort(0, (short) AF_UNIX);
+        } else {
+            address.setByte(0, (byte) address.size());
+            address.setByte(1, (byte) AF_UNIX);
+        }
+        address.write(2, pathBytes, 0, pathBytes.length);
+        return address;
+    }
+
+    @Override
+    public void waitForServerData() throws IOException {
+        if (busyPollNanos > 0) {
+            final long deadline = System.nanoTime() + busyPollNanos;
+            do {
+                if (LibCDirect.recv(fd, readBuffer, ONE_BYTE, MSG_DONTWAIT) == 1 && readBuffer.getByte(0) == 2) {
+                    return;
+                }
+            } while (System.nanoTime() - deadline < 0);
+        }
+        while (true) {
+            final int bytesRead = LibCDirect.read(fd, readBuffer, ONE_BYTE);
+            if (bytesRead == 1) {
+                if (readBuffer.getByte(0) == 2) {
+                    return;
+                }
+            } else if (bytesRead == 0) {
+                throw new IOException("Communications socket closed by BWAPI");
+            } else if (Native.getLastError() != EINTR) {
+                throw lastError();
+            }
+        }
+    }
+
+    @Override
+    public void submitClientData() throws IOException {
+        while (LibCDirect.write(fd, writeBuffer, ONE_BYTE) != 1) {
+            if (Native.getLastError() != EINTR) {
+                throw lastError();
+            }
+        }
+    }
+
+    private static IOException lastError() {
+        return new IOException("errno " + Native.getLastError());
+    }
+}
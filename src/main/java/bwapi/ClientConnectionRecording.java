@@ -0,0 +1,213 @@
+package bwapi;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Connection which plays back a recording made by {@link FrameRecorder} instead of talking to BWAPI.
+ * Each time the client finishes a frame, the next recorded frame is made available immediately,
+ * so a recording plays back as fast as the bot can consume it.
+ * Commands the bot sends are ignored; the recorded frames play back exactly as they were received.
+ *
+ * After the last recorded frame the game ends, and the connection closes on the following frame.
+ */
+class ClientConnectionRecording implements ClientConnection {
+    private final String path;
+    private DataInputStream input;
+    private final Inflater inflater = new Inflater();
+    private WrappedBuffer liveData;
+    private final ClientData liveClientData = new ClientData();
+    private int[][] sections;
+    private byte[] frame;
+    private byte[] diff;
+    private byte[] compressed = new byte[1 << 16];
+    private boolean frameReady = false;
+    private boolean ended = false;
+    private int framesPlayed = 0;
+
+    ClientConnectionRecording(final String path) {
+        this.path = path;
+    }
+
+    /**
+     * @return The number of recorded frames made available to the client so far
+     */
+    int getFramesPlayed() {
+        return framesPlayed;
+    }
+
+    @Override
+    public void disconnect() {
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException ignored) {
+                // Nothing left to do with the recording anyway
+            }
+            input = null;
+        }
+    }
+
+    /**
+     * @return A game table listing a single game waiting for a client
+     */
+    @Override
+    public WrappedBuffer getGameTable() {
+        final WrappedBuffer gameTable = new WrappedBuffer(GameTable.SIZE);
+        gameTable.putInt(0, 1);
+        return gameTable;
+    }
+
+    @Override
+    public WrappedBuffer getSharedMemory(int serverProcID) {
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 20));
+            readHeader();
+            liveData = new WrappedBuffer(ClientData.GameData.SIZE);
+            final byte[] full = new byte[ClientData.GameData.SIZE];
+            if (readRecord(full) != FrameRecorder.RECORD_FULL_FRAME) {
+                throw new IOException("Recording does not start with a full frame");
+            }
+            liveData.putBytes(0, full, 0, full.length);
+            liveClientData.setBuffer(liveData);
+            clearClientCounts();
+            int position = 0;
+            for (int[] section : sections) {
+                System.arraycopy(full, section[0], frame, position, section[1] - section[0]);
+                position += section[1] - section[0];
+            }
+        } catch (IOException e) {
+            disconnect();
+            throw new RecordingConnectionException("Unable to read recording " + path + ": " + e.getMessage(), e);
+        }
+        frameReady = true;
+        ended = false;
+        framesPlayed = 1;
+        return liveData;
+    }
+
+    private void readHeader() throws IOException {
+        if (input.readInt() != FrameRecorder.MAGIC) {
+            throw new IOException("Not a frame recording");
+        }
+        final int version = input.readInt();
+        if (version != FrameRecorder.VERSION) {
+            throw new IOException("Unsupported recording version: " + version);
+        }
+        final int size = input.readInt();
+        if (size != ClientData.GameData.SIZE) {
+            throw new IOException("Recording has game data of size " + size + "; expected " + ClientData.GameData.SIZE);
+        }
+        sections = new int[input.readInt()][];
+        int mutableSize = 0;
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = new int[] { input.readInt(), input.readInt() };
+            if (sections[i][0] < 0 || sections[i][1] > size || sections[i][0] > sections[i][1]) {
+                throw new IOException("Invalid section in recording header");
+            }
+            mutableSize += sections[i][1] - sections[i][0];
+        }
+        frame = new byte[mutableSize];
+        diff = new byte[mutableSize];
+    }
+
+    @Override
+    public void connectSharedLock(int serverProcID) {
+        // Nothing to synchronize with
+    }
+
+    @Override
+    public void waitForServerData() throws IOException {
+        if (frameReady) {
+            frameReady = false;
+            return;
+        }
+        if (ended) {
+            throw new IOException("End of recording");
+        }
+        while (true) {
+            final byte type;
+            try {
+                type = readRecord(diff);
+            } catch (EOFException e) {
+                // Let the bot see the game end before the connection closes
+                ended = true;
+                liveClientData.gameData().setIsInGame(false);
+                return;
+            }
+            if (type == FrameRecorder.RECORD_FRAME_DIFF) {
+                break;
+            } else if (type != FrameRecorder.RECORD_COMMANDS_DIFF) {
+                throw new IOException("Unexpected record type in recording: " + type);
+            }
+        }
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] ^= diff[i];
+        }
+        int position = 0;
+        for (int[] section : sections) {
+            liveData.putBytes(section[0], frame, position, section[1] - section[0]);
+            position += section[1] - section[0];
+        }
+        clearClientCounts();
+        ++framesPlayed;
+    }
+
+    /**
+     * Empties the strings, shapes and commands the bot sent for the previous frame, as BWAPI does each frame.
+     * The string and shape counts are not in a recorded section, so would otherwise keep growing.
+     */
+    private void clearClientCounts() {
+        final ClientData.GameData gameData = liveClientData.gameData();
+        gameData.setStringCount(0);
+        gameData.setShapeCount(0);
+        gameData.setCommandCount(0);
+        gameData.setUnitCommandCount(0);
+    }
+
+    @Override
+    public void submitClientData() {
+        // Recorded frames do not depend on the commands sent
+    }
+
+    /**
+     * Reads and decompresses the next record.
+     *
+     * @return The type of the record
+     */
+    private byte readRecord(final byte[] destination) throws IOException {
+        final byte type = input.readByte();
+        final int length = input.readInt();
+        final int compressedLength = input.readInt();
+        if (type != FrameRecorder.RECORD_COMMANDS_DIFF && length != destination.length) {
+            throw new IOException("Record of unexpected size in recording: " + length);
+        }
+        if (compressed.length < compressedLength) {
+            compressed = new byte[compressedLength];
+        }
+        input.readFully(compressed, 0, compressedLength);
+        if (type == FrameRecorder.RECORD_COMMANDS_DIFF) {
+            return type;
+        }
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            int inflated = 0;
+            while (inflated < length) {
+                final int bytes = inflater.inflate(destination, inflated, length - inflated);
+                if (bytes == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated record in recording");
+                }
+                inflated += bytes;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt record in recording", e);
+        }
+        return type;
+    }
+}
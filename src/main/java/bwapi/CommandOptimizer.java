@@ -0,0 +1,89 @@
+package bwapi;
+
+/**
+ * Filters unit commands on their way from the bot to BWAPI, and counts the commands which never need to reach the game.
+ *
+ * Exact repeats of a unit's last command within a configurable number of frames are dropped,
+ * as re-sending an order a unit is already carrying out has no effect besides spending actions.
+ * Grouping identical commands issued to many units is left to BWAPI's own command optimizer
+ * (see {@link Game#setCommandOptimizationLevel}).
+ *
+ * Only the thread which issues commands (the bot thread) should use it.
+ */
+class CommandOptimizer {
+    /**
+     * For each command type, whether sending it again has no effect while the unit is still carrying it out.
+     * Commands like Train or Use_Tech do something new each time, so they are never dropped.
+     */
+    private static final boolean[] idempotent = new boolean[UnitCommandType.values().length];
+
+    static {
+        for (UnitCommandType type : new UnitCommandType[] {
+            UnitCommandType.Attack_Move, UnitCommandType.Attack_Unit, UnitCommandType.Build, UnitCommandType.Set_Rally_Position,
+            UnitCommandType.Set_Rally_Unit, UnitCommandType.Move, UnitCommandType.Patrol, UnitCommandType.Hold_Position,
+            UnitCommandType.Stop, UnitCommandType.Follow, UnitCommandType.Gather, UnitCommandType.Return_Cargo,
+            UnitCommandType.Repair, UnitCommandType.Burrow, UnitCommandType.Unburrow, UnitCommandType.Cloak,
+            UnitCommandType.Decloak, UnitCommandType.Siege, UnitCommandType.Unsiege, UnitCommandType.Lift,
+            UnitCommandType.Land, UnitCommandType.Load, UnitCommandType.Unload_All, UnitCommandType.Unload_All_Position,
+            UnitCommandType.Right_Click_Position, UnitCommandType.Right_Click_Unit }) {
+            idempotent[type.id] = true;
+        }
+    }
+
+    private int repeatWindowFrames = 0;
+    private int dropped = 0;
+
+    void setConfiguration(BWClientConfiguration configuration) {
+        repeatWindowFrames = configuration.getCommandRepeatWindowFrames();
+    }
+
+    /**
+     * Resets for a new game.
+     */
+    void reset() {
+        dropped = 0;
+    }
+
+    /**
+     * @return Whether repeated commands are being dropped at all
+     */
+    boolean isEnabled() {
+        return repeatWindowFrames > 0;
+    }
+
+    /**
+     * Decides whether a command can be dropped because it repeats the unit's last command, and counts it if so.
+     *
+     * @param lastCommand The last command sent for the unit, or null
+     * @param lastCommandFrame The frame on which lastCommand was sent
+     * @param command The command about to be sent
+     * @param frame The current frame
+     * @return Whether the command should be dropped
+     */
+    boolean dropRepeat(final UnitCommand lastCommand, final int lastCommandFrame, final UnitCommand command, final int frame) {
+        if (repeatWindowFrames <= 0
+            || lastCommand == null
+            || frame - lastCommandFrame >= repeatWindowFrames
+            || ! idempotent[command.type.id]
+            || command.isQueued()
+            || lastCommand.type != command.type
+            || lastCommand.target != command.target
+            || lastCommand.x != command.x
+            || lastCommand.y != command.y
+            || lastCommand.extra != command.extra) {
+            return false;
+        }
+        ++dropped;
+        return true;
+    }
+
+    /**
+     * @return The number of commands dropped since the last call
+     */
+    int takeDropped() {
+        final int output = dropped;
+        dropped = 0;
+        return output;
+    }
+
+}
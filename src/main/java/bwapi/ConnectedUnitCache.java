@@ -5,7 +5,7 @@ import java.util.function.Function;
 
 class ConnectedUnitCache {
     private int lastUpdate = -1;
-    private final Map<Unit, List<Unit>> connectedUnits = new HashMap<>();
+    private final UnitMap<List<Unit>> connectedUnits = new UnitMap<>();
     private final Function<Unit, Unit> condition;
     private final Game game;
 
@@ -27,18 +27,16 @@ class ConnectedUnitCache {
             for (final Unit u : game.getAllUnits()) {
                 final Unit owner = condition.apply(u);
                 if (owner != null) {
-                    if (!connectedUnits.containsKey(owner)) {
-                        connectedUnits.put(owner, new ArrayList<>());
-                    }
-                    connectedUnits.get(owner).add(u);
+                    connectedUnits.computeIfAbsent(owner, o -> new ArrayList<>()).add(u);
                 }
             }
             lastUpdate = frame;
         }
-        if (!connectedUnits.containsKey(unit)) {
+        final List<Unit> connected = connectedUnits.get(unit);
+        if (connected == null) {
             return Collections.emptyList();
         }
-        return Collections.unmodifiableList(connectedUnits.get(unit));
+        return Collections.unmodifiableList(connected);
     }
     void reset() {
         lastUpdate = -1;
@@ -0,0 +1,135 @@
+package bwapi;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records diagnostics of the synchronization between JBWAPI's threads into a ring buffer preallocated at construction,
+ * as an event code plus up to two numeric arguments, so recording allocates nothing and formats nothing.
+ * Once the ring buffer is full the oldest entries are overwritten.
+ *
+ * The ring buffer can be dumped as text on demand, and is dumped automatically when the bot throws in asynchronous mode,
+ * where it shows the handoff between the threads leading up to the throw.
+ * With {@link BWClientConfiguration.Builder#withLogVerbosely}, each entry is also printed as it is recorded.
+ *
+ * Any number of threads may record at once. A dump taken while threads are recording may show the newest entries partially written.
+ */
+class DiagnosticLog {
+    enum Event {
+        OnFrameAsyncStart("Main: onFrame asynchronous start"),
+        OnFrameAsyncEnd("Main: onFrame asynchronous end"),
+        OnFrameSyncStart("Main: onFrame synchronous start"),
+        OnFrameSyncEnd("Main: onFrame synchronous end"),
+        StartingBotThread("Main: Starting bot thread"),
+        PuttingBotOnLiveData("Main: Putting bot on live data"),
+        EnqueuingFrame("Main: Enqueuing frame #%d"),
+        WaitingForBufferCapacity("Main: Waiting for frame buffer capacity on frame #%d"),
+        EnqueuedFrame("Main: Enqueued frame #%d"),
+        WeaningBotOffLiveData("Main: Weaning bot off live data"),
+        RethrowingBotThrowable("Main: Rethrowing bot throwable"),
+        WaitingIndefinitely("Main: Waiting indefinitely on frame #%d"),
+        OutOfTime("Main: Out of time in frame #%d"),
+        WaitingForBot("Main: Waiting %dms for bot on frame #%d"),
+        BotThreadStarted("Bot: Thread started"),
+        BotReady("Bot: Ready for another frame"),
+        BotWaitingForFrame("Bot: Waiting for a frame"),
+        BotReadingLiveFrame("Bot: Reading live frame"),
+        BotSkippedFrames("Bot: Skipped %d stale frames"),
+        BotPeekingFrame("Bot: Peeking next frame from buffer"),
+        BotHandlingEvents("Bot: Handling events on frame #%d"),
+        BotEventsHandled("Bot: Events handled. Dequeuing frame #%d");
+
+        private final String format;
+
+        Event(String format) {
+            this.format = format;
+        }
+
+        private static final Event[] values = values();
+    }
+
+    /**
+     * Longs per entry: the time, the thread and event, and two arguments
+     */
+    private static final int ENTRY_SIZE = 4;
+
+    private final BWClientConfiguration configuration;
+    private final int mask;
+    private final long[] entries;
+    private final AtomicLong cursor = new AtomicLong();
+    private final long originNanos = System.nanoTime();
+
+    /**
+     * @param capacity The most entries to keep; rounded up to a power of two. 0 records nothing.
+     */
+    DiagnosticLog(BWClientConfiguration configuration, int capacity) {
+        this.configuration = configuration;
+        final int size = capacity == 0 ? 0 : Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        mask = size - 1;
+        entries = new long[size * ENTRY_SIZE];
+    }
+
+    /**
+     * @return A log sized as the configuration requests
+     */
+    static DiagnosticLog create(BWClientConfiguration configuration) {
+        return new DiagnosticLog(configuration, configuration.getDiagnosticLogCapacity());
+    }
+
+    void log(Event event) {
+        log(event, 0, 0);
+    }
+
+    void log(Event event, long arg0) {
+        log(event, arg0, 0);
+    }
+
+    void log(Event event, long arg0, long arg1) {
+        final long now = System.nanoTime();
+        final long threadId = Thread.currentThread().getId();
+        if (entries.length > 0) {
+            final int slot = (int) (cursor.getAndIncrement() & mask) * ENTRY_SIZE;
+            entries[slot] = now;
+            entries[slot + 1] = threadId << 16 | event.ordinal();
+            entries[slot + 2] = arg0;
+            entries[slot + 3] = arg1;
+        }
+        if (configuration.getLogVerbosely()) {
+            configuration.log(format(event, arg0, arg1));
+        }
+    }
+
+    private static String format(Event event, long arg0, long arg1) {
+        return String.format(event.format, arg0, arg1);
+    }
+
+    /**
+     * @return The number of entries recorded so far, including any since overwritten
+     */
+    long getEntriesRecorded() {
+        return cursor.get();
+    }
+
+    /**
+     * Writes the entries held in the ring buffer, oldest first, one per line:
+     * milliseconds since the log was created, the recording thread's id, and the message.
+     */
+    void dump(PrintStream out) {
+        final long end = cursor.get();
+        final long start = Math.max(0, end - (mask + 1));
+        out.println("JBWAPI diagnostics: " + (end - start) + " of " + end + " entries");
+        final StringBuilder line = new StringBuilder();
+        for (long i = start; i < end; i++) {
+            final int slot = (int) (i & mask) * ENTRY_SIZE;
+            final int ordinal = (int) (entries[slot + 1] & 0xFFFF);
+            if (ordinal >= Event.values.length) {
+                continue;
+            }
+            line.setLength(0);
+            line.append(String.format("%10.3f", (entries[slot] - originNanos) / 1000000d))
+                .append(" [").append(entries[slot + 1] >>> 16).append("] ")
+                .append(format(Event.values[ordinal], entries[slot + 2], entries[slot + 3]));
+            out.println(line);
+        }
+    }
+}
@@ -1,66 +1,180 @@
 package bwapi;
 
-import sun.misc.Unsafe;
-
 import java.util.ArrayList;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 /**
  * Circular buffer of game states.
+ *
+ * Subclasses decide how the main thread (which enqueues frames) and the bot thread (which consumes them) hand frames off to each other.
  */
-class FrameBuffer {
+abstract class FrameBuffer {
     private static final int BUFFER_SIZE = ClientData.GameData.SIZE;
-    private static final Unsafe unsafe = UnsafeTools.getUnsafe();
+    private static final int MAX_UNITS = 10000;
+    private static final int MAX_EVENTS = 10000;
+    private static final int MAX_EVENT_STRINGS = 1000;
+
+    // Offsets of blocks of game data, used to skip copying data which is unused or which doesn't change after game start
+    static final int UNITS_START = 69656; // getUnits
+    static final int UNITARRAY_START = 3429656; // getUnitArray, getBullets, ..., getMapHash
+    static final int STATICTILES_START = 3447004; // getGroundHeight, isWalkable, isBuildable
+    static final int STATICTILES_END = 4823260;
+    static final int REGION_START = 5085404; // getMapTileRegionId, ..., getRegions
+    static final int REGION_END = 10586480;
+    static final int STRINGSSHAPES_START = 10962632; // getStringCount, ... getShapes
+    static final int STRINGSHAPES_END = 32242636;
+    static final int UNITFINDER_START = 32962644; // getUnitSearchSize, getXUnitSearch
+    static final int UNITFINDER_Y_START = 32989848; // getYUnitSearch
+    static final int UNITFINDER_END = ClientData.GameData.SIZE;
+
+    /**
+     * Entries in each of the unit finder's lists: one for each edge of the at most 1,700 units Broodwar tracks
+     */
+    static final int UNITFINDER_ENTRIES = (UNITFINDER_Y_START - UNITFINDER_START - 4) / ClientData.unitFinder.SIZE;
+
+    /**
+     * Start and end offsets of the blocks of game data which change during the game.
+     * Each is copied into the frame buffer every frame, except the unit finder, which is only copied
+     * with {@link BWClientConfiguration.Builder#withAsyncCopyUnitFinder}.
+     */
+    static final int[][] MUTABLE_SECTIONS = {
+        { 0, STATICTILES_START },
+        { STATICTILES_END, REGION_START },
+        { REGION_END, STRINGSSHAPES_START },
+        { STRINGSHAPES_END, UNITFINDER_END }
+    };
 
     private WrappedBuffer liveData;
+    private final ClientData liveClientData = new ClientData();
+    private int unitsInUse = 0;
     private PerformanceMetrics performanceMetrics;
-    private final BWClientConfiguration configuration;
-    private final int capacity;
-    private int stepGame = 0;
-    private int stepBot = 0;
+    private FrameTracer tracer = FrameTracer.DISABLED;
+    private DiagnosticLog diagnostics;
+    final BWClientConfiguration configuration;
+    final int capacity;
+    private int depth;
     private final ArrayList<WrappedBuffer> dataBuffer = new ArrayList<>();
+    private final long[] deadlines;
+    private final FrameCopier frameCopier;
+    private final ClientData staleClientData = new ClientData();
+    private final ClientData latestClientData = new ClientData();
+    private final ArrayList<String> coalescedStrings = new ArrayList<>();
+    private int[] coalescedEvents;
 
-    private final Lock lockWrite = new ReentrantLock();
-    final Lock lockSize = new ReentrantLock();
-    final Condition conditionSize = lockSize.newCondition();
+    /**
+     * In compact mode, holds the data which doesn't change after game start on behalf of every buffered frame; otherwise null.
+     */
+    private final WrappedBuffer sharedData;
+
+    /**
+     * Whether the main thread is waiting for the bot to make room in the buffer, or has yet to record how long it waited
+     */
+    private volatile boolean waitingForCapacity;
 
     FrameBuffer(BWClientConfiguration configuration) {
         this.capacity = configuration.getAsyncFrameBufferCapacity();
+        this.depth = capacity;
+        this.deadlines = new long[capacity];
         this.configuration = configuration;
+        this.diagnostics = new DiagnosticLog(configuration, 0);
+        this.frameCopier = new FrameCopier(configuration.getAsyncCopyThreads());
+        this.sharedData = configuration.getAsyncCompactFrames() ? new WrappedBuffer(BUFFER_SIZE) : null;
         while(dataBuffer.size() < capacity) {
-            dataBuffer.add(new WrappedBuffer(BUFFER_SIZE));
+            dataBuffer.add(sharedData == null ? new WrappedBuffer(BUFFER_SIZE) : new WrappedBufferCompact(sharedData));
         }
     }
 
+    /**
+     * @return A frame buffer using the handoff mechanism requested by the configuration
+     */
+    static FrameBuffer create(BWClientConfiguration configuration) {
+        return configuration.getAsyncWaitStrategy() == AsyncWaitStrategy.Lock
+            ? new FrameBufferLocking(configuration)
+            : new FrameBufferLockFree(configuration);
+    }
+
     /**
      * Resets for a new game
      */
     void initialize(WrappedBuffer liveData, PerformanceMetrics performanceMetrics) {
         this.liveData = liveData;
         this.performanceMetrics = performanceMetrics;
-        stepGame = 0;
-        stepBot = 0;
+        liveClientData.setBuffer(liveData);
+        unitsInUse = 0;
+        depth = capacity;
+        waitingForCapacity = false;
+    }
+
+    void setTracer(FrameTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    void setDiagnostics(DiagnosticLog diagnostics) {
+        this.diagnostics = diagnostics;
     }
 
     /**
      * @return The number of frames currently buffered ahead of the bot's current frame
      */
-    synchronized int framesBuffered() {
-        return stepGame - stepBot;
-    }
+    abstract int framesBuffered();
+
+    /**
+     * @return The number of frames enqueued so far this game.
+     */
+    abstract int stepGame();
+
+    /**
+     * @return The number of frames dequeued so far this game.
+     */
+    abstract int stepBot();
+
+    /**
+     * Makes the most recently copied frame available to the bot, and wakes up any thread waiting on it.
+     */
+    abstract void publishFrame();
+
+    /**
+     * Peeks the front-most value in the buffer.
+     */
+    abstract WrappedBuffer peek();
+
+    /**
+     * Removes the front-most frame in the buffer.
+     */
+    abstract void dequeue();
+
+    /**
+     * Wakes up threads waiting on this buffer, so they can re-evaluate their wait conditions.
+     * Use after changing state (outside the buffer) that a waiting thread depends on.
+     */
+    abstract void signal();
+
+    /**
+     * Performs an action which checks the buffer and then acts on it, such that no other thread changes the buffer in between
+     * (as far as the handoff mechanism allows).
+     *
+     * @return The action's result
+     */
+    abstract boolean atomically(BooleanSupplier action);
+
+    /**
+     * Blocks until a condition holds. The condition is re-evaluated whenever the buffer changes or is signalled.
+     */
+    abstract void awaitUninterruptibly(BooleanSupplier condition);
+
+    /**
+     * Blocks until a condition holds or the timeout expires.
+     * The condition is re-evaluated whenever the buffer changes or is signalled.
+     *
+     * @return Whether the condition holds
+     */
+    abstract boolean await(BooleanSupplier condition, long timeoutNanos) throws InterruptedException;
 
     /**
      * @return Number of frames currently stored in the buffer
      */
     int size() {
-        lockSize.lock();
-        try {
-            return framesBuffered();
-        }  finally {
-            lockSize.unlock();
-        }
+        return framesBuffered();
     }
 
     /**
@@ -70,99 +184,243 @@ class FrameBuffer {
         return size() <= 0;
     }
 
+    /**
+     * Limits how many frames may be buffered, without changing the memory allocated for the buffer.
+     * Should only be called from the main thread.
+     *
+     * @param depth The most frames to buffer, between 1 and the capacity
+     */
+    void setDepth(int depth) {
+        this.depth = Math.max(1, Math.min(capacity, depth));
+    }
+
+    /**
+     * @return The most frames which may currently be buffered
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return Whether the bot has made room for a frame the main thread was waiting to enqueue,
+     * and the main thread has yet to wake up and record how long it waited.
+     * The bot should hold off starting another frame until then.
+     */
+    boolean isWakingMainThread() {
+        return waitingForCapacity && ! full();
+    }
+
     /**
      * @return Whether the frame buffer is full and can not buffer any additional frames.
      * When the frame buffer is full, JBWAPI must wait for the bot to complete a frame before returning control to StarCraft.
      */
     boolean full() {
-        lockSize.lock();
-        try {
-            return framesBuffered() >= capacity;
-        } finally {
-            lockSize.unlock();
-        }
-    }
-
-    private int indexGame() {
-        return stepGame % capacity;
+        return framesBuffered() >= depth;
     }
 
-    private int indexBot() {
-        return stepBot % capacity;
+    /**
+     * @return The buffer holding the frame at the given step
+     */
+    WrappedBuffer bufferAt(int step) {
+        return dataBuffer.get(step % capacity);
     }
 
     /**
-     * Copy dataBuffer from shared memory into the head of the frame buffer.
+     * Skips the bot ahead to the newest buffered frame, dequeuing the frames in front of it.
+     * Events from the skipped frames are merged, in order, ahead of the newest frame's own events,
+     * so the bot still handles every event exactly once. The skipped frames' MatchFrame events are dropped.
+     * Should only be called from the bot thread, before it peeks at its next frame.
+     *
+     * @return The number of frames skipped
      */
-    void enqueueFrame() {
-        lockWrite.lock();
-        try {
-            lockSize.lock();
-            try {
-                while (full()) {
-                    configuration.log("Main: Waiting for frame buffer capacity");
-                    performanceMetrics.getIntentionallyBlocking().startTiming();
-                    conditionSize.awaitUninterruptibly();
+    int skipToLatestFrame() {
+        final int step = stepBot();
+        int skip = framesBuffered() - 1;
+        // The newest frame has room for a limited number of events; skip fewer frames if they would overflow it
+        while (skip > 0 && ! canCoalesce(step, skip)) {
+            --skip;
+        }
+        if (skip <= 0) {
+            return 0;
+        }
+        if (coalescedEvents == null) {
+            coalescedEvents = new int[3 * MAX_EVENTS];
+        }
+        latestClientData.setBuffer(bufferAt(step + skip));
+        ClientData.GameData latest = latestClientData.gameData();
+        final int latestStringCount = latest.getEventStringCount();
+        int eventCount = 0;
+        coalescedStrings.clear();
+        for (int i = 0; i < skip; i++) {
+            staleClientData.setBuffer(bufferAt(step + i));
+            ClientData.GameData stale = staleClientData.gameData();
+            for (int j = 0; j < stale.getEventCount(); j++) {
+                ClientData.Event event = stale.getEvents(j);
+                EventType type = event.getType();
+                if (type == null || type == EventType.MatchFrame) {
+                    continue;
                 }
-                performanceMetrics.getIntentionallyBlocking().stopTiming();
-            } finally { lockSize.unlock(); };
-
-            // For the first frame of the game, populate all buffers completely
-            // This is to ensure all buffers have access to immutable data like regions/walkability/buildability
-            // Afterwards, we want to shorten this process by only copying important and mutable data
-            if (stepGame == 0) {
-                for (WrappedBuffer frameBuffer : dataBuffer) {
-                    copyBuffer(liveData, frameBuffer, true);
+                int v1 = event.getV1();
+                int v2 = event.getV2();
+                // Move the event's text into the newest frame's strings
+                if (type == EventType.SendText || type == EventType.SaveGame) {
+                    coalescedStrings.add(stale.getEventStrings(v1));
+                    v1 = latestStringCount + coalescedStrings.size() - 1;
+                } else if (type == EventType.ReceiveText) {
+                    coalescedStrings.add(stale.getEventStrings(v2));
+                    v2 = latestStringCount + coalescedStrings.size() - 1;
                 }
-            } else {
-                performanceMetrics.getCopyingToBuffer().time(() -> {
-                    WrappedBuffer dataTarget = dataBuffer.get(indexGame());
-                    copyBuffer(liveData, dataTarget, false);
-                });
+                coalescedEvents[3 * eventCount] = type.id;
+                coalescedEvents[3 * eventCount + 1] = v1;
+                coalescedEvents[3 * eventCount + 2] = v2;
+                ++eventCount;
+            }
+        }
+        for (int j = 0; j < latest.getEventCount(); j++) {
+            ClientData.Event event = latest.getEvents(j);
+            EventType type = event.getType();
+            if (type == null) {
+                continue;
             }
+            coalescedEvents[3 * eventCount] = type.id;
+            coalescedEvents[3 * eventCount + 1] = event.getV1();
+            coalescedEvents[3 * eventCount + 2] = event.getV2();
+            ++eventCount;
+        }
 
-            lockSize.lock();
-            try {
-                performanceMetrics.getFrameBufferSize().record(framesBuffered());
-                ++stepGame;
-                conditionSize.signalAll();
-            } finally { lockSize.unlock(); }
-        } finally { lockWrite.unlock(); }
+        for (int i = 0; i < coalescedStrings.size(); i++) {
+            latest.setEventStrings(latestStringCount + i, coalescedStrings.get(i));
+        }
+        latest.setEventStringCount(latestStringCount + coalescedStrings.size());
+        for (int j = 0; j < eventCount; j++) {
+            ClientData.Event event = latest.getEvents(j);
+            event.setType(EventType.idToEnum[coalescedEvents[3 * j]]);
+            event.setV1(coalescedEvents[3 * j + 1]);
+            event.setV2(coalescedEvents[3 * j + 2]);
+        }
+        latest.setEventCount(eventCount);
+
+        for (int i = 0; i < skip; i++) {
+            dequeue();
+        }
+        return skip;
     }
 
     /**
-     * Peeks the front-most value in the buffer.
+     * @return Whether the events of the frames from step through step + skip fit into a single frame
      */
-    WrappedBuffer peek() {
-        lockSize.lock();
-        try {
-            while(empty()) conditionSize.awaitUninterruptibly();
-            return dataBuffer.get(indexBot());
-        } finally { lockSize.unlock(); }
+    private boolean canCoalesce(int step, int skip) {
+        int events = 0;
+        int strings = 0;
+        for (int i = 0; i <= skip; i++) {
+            staleClientData.setBuffer(bufferAt(step + i));
+            events += staleClientData.gameData().getEventCount();
+            strings += staleClientData.gameData().getEventStringCount();
+        }
+        return events <= MAX_EVENTS && strings <= MAX_EVENT_STRINGS;
     }
 
     /**
-     * Removes the front-most frame in the buffer.
+     * @return The deadline of the frame at the given step, as passed to {@link #enqueueFrame(long)}
      */
-    void dequeue() {
-        lockSize.lock();
-        try {
-            while(empty()) conditionSize.awaitUninterruptibly();
-            ++stepBot;
-            conditionSize.signalAll();
-        } finally { lockSize.unlock(); }
+    long deadlineAt(int step) {
+        return deadlines[step % capacity];
     }
 
     /**
+     * Copy dataBuffer from shared memory into the head of the frame buffer, with no deadline.
+     */
+    void enqueueFrame() {
+        enqueueFrame(Long.MAX_VALUE);
+    }
+
+    /**
+     * Copy dataBuffer from shared memory into the head of the frame buffer.
      *
-     * @param source Address to copy from
-     * @param destination Address to copy to
-     * @param size Number of bytes to copy
+     * @param deadlineNanos When the bot should be done with the frame, on the System.nanoTime() clock
      */
-    private void copyBuffer(WrappedBuffer source, WrappedBuffer destination, long offset, int size) {
-        long addressSource = source.getAddress() + offset;
-        long addressDestination = destination.getAddress() + offset;
-        unsafe.copyMemory(addressSource, addressDestination, size);
+    void enqueueFrame(long deadlineNanos) {
+        final int frame = liveClientData.gameData().getFrameCount();
+        if (atomically(() -> waitingForCapacity = full())) {
+            diagnostics.log(DiagnosticLog.Event.WaitingForBufferCapacity, frame);
+            performanceMetrics.getIntentionallyBlocking().startTiming();
+            final long waitStart = tracer.begin();
+            // Record how long we blocked within the handoff, before the bot may start its next frame
+            awaitUninterruptibly(() -> {
+                if (full()) {
+                    return false;
+                }
+                performanceMetrics.getIntentionallyBlocking().stopTiming();
+                waitingForCapacity = false;
+                return true;
+            });
+            signal();
+            tracer.end(FrameTracer.WAIT_FOR_CAPACITY, waitStart, frame);
+        }
+
+        updateUnitsInUse();
+        final long copyStart = tracer.begin();
+
+        // For the first frame of the game, populate all buffers completely
+        // This is to ensure all buffers have access to immutable data like regions/walkability/buildability
+        // Afterwards, we want to shorten this process by only copying important and mutable data
+        final int step = stepGame();
+        deadlines[step % capacity] = deadlineNanos;
+        if (step == 0) {
+            if (sharedData == null) {
+                for (WrappedBuffer frameBuffer : dataBuffer) {
+                    copyBuffer(liveData, frameBuffer, true);
+                }
+            } else {
+                copyBuffer(liveData, sharedData, true);
+                for (WrappedBuffer frameBuffer : dataBuffer) {
+                    for (int run = 0; run < WrappedBufferCompact.RUN_OFFSETS.length; run++) {
+                        frameCopier.add(WrappedBufferCompact.RUN_OFFSETS[run], WrappedBufferCompact.RUN_SIZES[run]);
+                    }
+                    frameCopier.copy(liveData, frameBuffer);
+                }
+            }
+        } else {
+            performanceMetrics.getCopyingToBuffer().time(() -> {
+                WrappedBuffer dataTarget = bufferAt(step);
+                copyBuffer(liveData, dataTarget, false);
+            });
+        }
+        tracer.end(FrameTracer.COPY_BUFFER, copyStart, frame);
+
+        performanceMetrics.getFrameBufferSize().record(framesBuffered());
+        publishFrame();
+    }
+
+    /**
+     * Raises the number of unit slots to copy so that it covers every unit announced to the bot so far.
+     * Units are only ever exposed to the bot via the initial units and unit events,
+     * so slots above the highest announced index are never read from the frame buffer.
+     */
+    private void updateUnitsInUse() {
+        ClientData.GameData gameData = liveClientData.gameData();
+        unitsInUse = Math.max(unitsInUse, gameData.getInitialUnitCount());
+        for (int i = 0; i < gameData.getEventCount(); i++) {
+            ClientData.Event event = gameData.getEvents(i);
+            EventType type = event.getType();
+            if (type == null) {
+                continue;
+            }
+            switch (type) {
+                case UnitDiscover:
+                case UnitEvade:
+                case UnitShow:
+                case UnitHide:
+                case UnitCreate:
+                case UnitDestroy:
+                case UnitMorph:
+                case UnitRenegade:
+                case UnitComplete:
+                    unitsInUse = Math.max(unitsInUse, event.getV1() + 1);
+                    break;
+            }
+        }
+        unitsInUse = Math.min(unitsInUse, MAX_UNITS);
     }
 
     void copyBuffer(WrappedBuffer source, WrappedBuffer destination, boolean copyEverything) {
@@ -172,26 +430,34 @@ class FrameBuffer {
         but are prone to large amounts of variance.
 
         The normal Java way to execute this copy is via ByteBuffer.put(), which has reasonably good performance characteristics.
+        With asyncCopyThreads > 1, large copies are split across several threads to make use of more memory bandwidth.
         */
 
         if (copyEverything) {
-            copyBuffer(source, destination, 0, FrameBuffer.BUFFER_SIZE);
+            frameCopier.add(0, FrameBuffer.BUFFER_SIZE);
         } else {
             // After the buffer has been filled the first time,
             // we can omit copying blocks of data which are unused or which don't change after game start.
             // These blocks account for *most* of the 33MB shared memory,
             // so omitting them drastically reduces the copy duration
-            final int STATICTILES_START = 3447004; // getGroundHeight, isWalkable, isBuildable
-            final int STATICTILES_END = 4823260;
-            final int REGION_START = 5085404; // getMapTileRegionId, ..., getRegions
-            final int REGION_END = 10586480;
-            final int STRINGSSHAPES_START = 10962632; // getStringCount, ... getShapes
-            final int STRINGSHAPES_END = 32242636;
-            final int UNITFINDER_START = 32962644;
-            copyBuffer(source, destination, 0, STATICTILES_START);
-            copyBuffer(source, destination, STATICTILES_END, REGION_START - STATICTILES_END);
-            copyBuffer(source, destination, REGION_END, STRINGSSHAPES_START - REGION_END);
-            copyBuffer(source, destination, STRINGSHAPES_END, UNITFINDER_START - STRINGSHAPES_END);
+            if (configuration.getAsyncCopyLiveUnitsOnly()) {
+                // Most of the 10,000 unit slots are unused in a typical game,
+                // so only copy the ones which the bot could possibly be looking at
+                frameCopier.add(0, UNITS_START + unitsInUse * ClientData.UnitData.SIZE);
+                frameCopier.add(UNITARRAY_START, STATICTILES_START - UNITARRAY_START);
+            } else {
+                frameCopier.add(0, STATICTILES_START);
+            }
+            frameCopier.add(STATICTILES_END, REGION_START - STATICTILES_END);
+            frameCopier.add(REGION_END, STRINGSSHAPES_START - REGION_END);
+            frameCopier.add(STRINGSHAPES_END, UNITFINDER_START - STRINGSHAPES_END);
+            if (configuration.getAsyncCopyUnitFinder()) {
+                // Only the entries in use; the rest of each list is left over from earlier frames
+                final int entries = Math.max(0, Math.min(UNITFINDER_ENTRIES, source.getInt(UNITFINDER_START)));
+                frameCopier.add(UNITFINDER_START, 4 + entries * ClientData.unitFinder.SIZE);
+                frameCopier.add(UNITFINDER_Y_START, entries * ClientData.unitFinder.SIZE);
+            }
         }
+        frameCopier.copy(source, destination);
     }
 }
@@ -0,0 +1,214 @@
+package bwapi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Frame buffer which hands frames from the main thread (the only producer) to the bot thread (the only consumer)
+ * via a pair of sequence counters, without taking any locks.
+ *
+ * Each counter is only ever written by one thread, so advancing it is a single volatile write.
+ * Waiting threads spin and/or park according to the configured {@link AsyncWaitStrategy}.
+ */
+class FrameBufferLockFree extends FrameBuffer {
+    /**
+     * How many times SpinThenPark polls before parking. Roughly tens of microseconds on current hardware.
+     */
+    private static final int SPIN_ITERATIONS = 1 << 12;
+
+    /**
+     * How long to park when every parking slot is taken; the waiter then polls at this interval instead of waiting to be woken.
+     */
+    private static final long UNREGISTERED_PARK_NANOS = 100000;
+
+    /**
+     * Thread.onSpinWait() where available (Java 9+), or null.
+     */
+    private static final MethodHandle onSpinWait = findOnSpinWait();
+
+    private final AsyncWaitStrategy waitStrategy;
+    private final Sequence stepGame = new Sequence();
+    private final Sequence stepBot = new Sequence();
+
+    /**
+     * Threads which are parked (or about to park) waiting for the buffer to change.
+     * One slot each for the main thread and the bot thread.
+     */
+    private final AtomicReferenceArray<Thread> parkedThreads = new AtomicReferenceArray<>(2);
+
+    private final BooleanSupplier notEmpty = () -> ! empty();
+
+    FrameBufferLockFree(BWClientConfiguration configuration) {
+        super(configuration);
+        waitStrategy = configuration.getAsyncWaitStrategy();
+    }
+
+    @Override
+    void initialize(WrappedBuffer liveData, PerformanceMetrics performanceMetrics) {
+        super.initialize(liveData, performanceMetrics);
+        stepGame.set(0);
+        stepBot.set(0);
+    }
+
+    @Override
+    int framesBuffered() {
+        // Read the consumer's counter first; the producer's counter can only have grown since.
+        final int bot = stepBot.get();
+        return stepGame.get() - bot;
+    }
+
+    @Override
+    int stepGame() {
+        return stepGame.get();
+    }
+
+    @Override
+    int stepBot() {
+        return stepBot.get();
+    }
+
+    @Override
+    void publishFrame() {
+        stepGame.set(stepGame.get() + 1);
+        signal();
+    }
+
+    @Override
+    WrappedBuffer peek() {
+        awaitUninterruptibly(notEmpty);
+        return bufferAt(stepBot.get());
+    }
+
+    @Override
+    void dequeue() {
+        awaitUninterruptibly(notEmpty);
+        stepBot.set(stepBot.get() + 1);
+        signal();
+    }
+
+    @Override
+    void signal() {
+        for (int i = 0; i < parkedThreads.length(); i++) {
+            Thread thread = parkedThreads.get(i);
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * Runs the action directly. Each counter has a single writer, so a thread checking whether the buffer is empty
+     * can only see it change in one direction: the main thread only ever fills it, and the bot thread only ever drains it.
+     */
+    @Override
+    boolean atomically(BooleanSupplier action) {
+        return action.getAsBoolean();
+    }
+
+    @Override
+    void awaitUninterruptibly(BooleanSupplier condition) {
+        int spins = 0;
+        while ( ! condition.getAsBoolean()) {
+            spins = idle(condition, spins, Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    boolean await(BooleanSupplier condition, long timeoutNanos) throws InterruptedException {
+        final long deadlineNanos = System.nanoTime() + timeoutNanos;
+        int spins = 0;
+        while ( ! condition.getAsBoolean()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return false;
+            }
+            spins = idle(condition, spins, remainingNanos);
+        }
+        return true;
+    }
+
+    /**
+     * Waits briefly, as dictated by the wait strategy.
+     *
+     * @return The number of times the caller has spun so far
+     */
+    private int idle(BooleanSupplier condition, int spins, long timeoutNanos) {
+        if (waitStrategy == AsyncWaitStrategy.BusySpin
+            || (waitStrategy == AsyncWaitStrategy.SpinThenPark && spins < SPIN_ITERATIONS)) {
+            onSpinWait();
+            return spins + 1;
+        }
+        park(condition, timeoutNanos);
+        return spins;
+    }
+
+    private void park(BooleanSupplier condition, long timeoutNanos) {
+        final Thread thread = Thread.currentThread();
+        int slot = -1;
+        for (int i = 0; i < parkedThreads.length() && slot < 0; i++) {
+            if (parkedThreads.compareAndSet(i, null, thread)) {
+                slot = i;
+            }
+        }
+        try {
+            // Check again after registering, so a signal sent between the caller's check and our registration isn't lost
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            LockSupport.parkNanos(this, slot < 0 ? Math.min(timeoutNanos, UNREGISTERED_PARK_NANOS) : timeoutNanos);
+        } finally {
+            if (slot >= 0) {
+                parkedThreads.set(slot, null);
+            }
+        }
+    }
+
+    private static MethodHandle findOnSpinWait() {
+        try {
+            return MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static void onSpinWait() {
+        if (onSpinWait != null) {
+            try {
+                onSpinWait.invokeExact();
+            } catch (Throwable ignored) {}
+        }
+    }
+
+    /**
+     * Padding which keeps a counter off the cache lines of neighboring objects,
+     * so the main and bot threads don't slow each other down by writing to the same cache line.
+     */
+    @SuppressWarnings("unused")
+    static class SequencePaddingLeft {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    static class SequenceValue extends SequencePaddingLeft {
+        volatile int value;
+    }
+
+    @SuppressWarnings("unused")
+    static class Sequence extends SequenceValue {
+        long p9, p10, p11, p12, p13, p14, p15;
+
+        int get() {
+            return value;
+        }
+
+        void set(int newValue) {
+            value = newValue;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package bwapi;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Frame buffer which hands frames between threads via a lock and condition variable.
+ */
+class FrameBufferLocking extends FrameBuffer {
+    private int stepGame = 0;
+    private int stepBot = 0;
+
+    private final Lock lockSize = new ReentrantLock();
+    private final Condition conditionSize = lockSize.newCondition();
+
+    FrameBufferLocking(BWClientConfiguration configuration) {
+        super(configuration);
+    }
+
+    @Override
+    void initialize(WrappedBuffer liveData, PerformanceMetrics performanceMetrics) {
+        super.initialize(liveData, performanceMetrics);
+        lockSize.lock();
+        try {
+            stepGame = 0;
+            stepBot = 0;
+        } finally { lockSize.unlock(); }
+    }
+
+    @Override
+    int framesBuffered() {
+        lockSize.lock();
+        try {
+            return stepGame - stepBot;
+        } finally { lockSize.unlock(); }
+    }
+
+    @Override
+    int stepGame() {
+        lockSize.lock();
+        try {
+            return stepGame;
+        } finally { lockSize.unlock(); }
+    }
+
+    @Override
+    int stepBot() {
+        lockSize.lock();
+        try {
+            return stepBot;
+        } finally { lockSize.unlock(); }
+    }
+
+    @Override
+    void publishFrame() {
+        lockSize.lock();
+        try {
+            ++stepGame;
+            conditionSize.signalAll();
+        } finally { lockSize.unlock(); }
+    }
+
+    @Override
+    WrappedBuffer peek() {
+        lockSize.lock();
+        try {
+            while(empty()) conditionSize.awaitUninterruptibly();
+            return bufferAt(stepBot);
+        } finally { lockSize.unlock(); }
+    }
+
+    @Override
+    void dequeue() {
+        lockSize.lock();
+        try {
+            while(empty()) conditionSize.awaitUninterruptibly();
+            ++stepBot;
+            conditionSize.signalAll();
+        } finally { lockSize.unlock(); }
+    }
+
+    @Override
+    void signal() {
+        lockSize.lock();
+        try {
+            conditionSize.signalAll();
+        } finally { lockSize.unlock(); }
+    }
+
+    @Override
+    boolean atomically(BooleanSupplier action) {
+        lockSize.lock();
+        try {
+            return action.getAsBoolean();
+        } finally { lockSize.unlock(); }
+    }
+
+    @Override
+    void awaitUninterruptibly(BooleanSupplier condition) {
+        lockSize.lock();
+        try {
+            while ( ! condition.getAsBoolean()) {
+                conditionSize.awaitUninterruptibly();
+            }
+        } finally { lockSize.unlock(); }
+    }
+
+    @Override
+    boolean await(BooleanSupplier condition, long timeoutNanos) throws InterruptedException {
+        lockSize.lock();
+        try {
+            long remainingNanos = timeoutNanos;
+            while ( ! condition.getAsBoolean()) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = conditionSize.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally { lockSize.unlock(); }
+    }
+}
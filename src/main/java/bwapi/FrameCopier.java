@@ -0,0 +1,167 @@
+package bwapi;
+
+import sun.misc.Unsafe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copies segments of a frame from one buffer to another,
+ * optionally splitting large copies across a small pool of dedicated threads.
+ *
+ * Callers describe a copy with {@link #add} and then perform it with {@link #copy}.
+ * Each segment must be contiguous in both buffers (see {@link WrappedBuffer#getAddress(int)}).
+ * Not thread-safe; only the thread which enqueues frames should use it.
+ */
+class FrameCopier {
+    /**
+     * Copies smaller than this are performed on the calling thread,
+     * as handing them to other threads would cost more than it saves.
+     */
+    static final long PARALLEL_THRESHOLD_BYTES = 1 << 20;
+
+    private static final Unsafe unsafe = UnsafeTools.getUnsafe();
+    private static final AtomicInteger poolCount = new AtomicInteger();
+
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+    private final List<Callable<Void>> workerTasks = new ArrayList<>();
+    private final List<Future<Void>> workerFutures = new ArrayList<>();
+
+    private int[] segmentOffsets = new int[8];
+    private long[] segmentSizes = new long[8];
+    private long[] segmentSources = new long[8];
+    private long[] segmentDestinations = new long[8];
+    private int segments = 0;
+    private long totalBytes = 0;
+
+    /**
+     * @param threads How many threads (including the calling thread) to split large copies across
+     */
+    FrameCopier(int threads) {
+        this.threads = Math.max(1, threads);
+        if (this.threads > 1) {
+            final int pool = poolCount.incrementAndGet();
+            final AtomicInteger threadCount = new AtomicInteger();
+            executor = new ThreadPoolExecutor(
+                this.threads - 1,
+                this.threads - 1,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "JBWAPI Copy " + pool + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            // Let the threads die off if the copier is no longer used, eg. after the game ends
+            executor.allowCoreThreadTimeOut(true);
+            for (int worker = 1; worker < this.threads; worker++) {
+                final int workerIndex = worker;
+                workerTasks.add(() -> {
+                    copyShare(workerIndex);
+                    return null;
+                });
+            }
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Includes a segment in the next copy.
+     *
+     * @param offset Offset into both buffers at which the segment starts
+     * @param size Number of bytes to copy
+     */
+    void add(int offset, long size) {
+        if (size <= 0) {
+            return;
+        }
+        if (segments == segmentOffsets.length) {
+            segmentOffsets = Arrays.copyOf(segmentOffsets, 2 * segments);
+            segmentSizes = Arrays.copyOf(segmentSizes, 2 * segments);
+            segmentSources = Arrays.copyOf(segmentSources, 2 * segments);
+            segmentDestinations = Arrays.copyOf(segmentDestinations, 2 * segments);
+        }
+        segmentOffsets[segments] = offset;
+        segmentSizes[segments] = size;
+        ++segments;
+        totalBytes += size;
+    }
+
+    /**
+     * Copies all segments added since the last copy, then forgets them.
+     */
+    void copy(WrappedBuffer source, WrappedBuffer destination) {
+        for (int i = 0; i < segments; i++) {
+            segmentSources[i] = source.getAddress(segmentOffsets[i]);
+            segmentDestinations[i] = destination.getAddress(segmentOffsets[i]);
+        }
+        try {
+            if (executor == null || totalBytes < PARALLEL_THRESHOLD_BYTES) {
+                for (int i = 0; i < segments; i++) {
+                    unsafe.copyMemory(segmentSources[i], segmentDestinations[i], segmentSizes[i]);
+                }
+            } else {
+                copyParallel();
+            }
+        } finally {
+            segments = 0;
+            totalBytes = 0;
+        }
+    }
+
+    private void copyParallel() {
+        workerFutures.clear();
+        for (Callable<Void> task : workerTasks) {
+            workerFutures.add(executor.submit(task));
+        }
+        // The calling thread takes a share of the work rather than idling
+        copyShare(0);
+        boolean interrupted = false;
+        for (Future<Void> future : workerFutures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copies one worker's share of the segments.
+     * The segments are treated as one contiguous run of bytes, which is divided evenly among the workers.
+     */
+    private void copyShare(int worker) {
+        final long shareStart = totalBytes * worker / threads;
+        final long shareEnd = totalBytes * (worker + 1) / threads;
+        long segmentStart = 0;
+        for (int i = 0; i < segments && segmentStart < shareEnd; i++) {
+            final long segmentEnd = segmentStart + segmentSizes[i];
+            final long from = Math.max(shareStart, segmentStart);
+            final long to = Math.min(shareEnd, segmentEnd);
+            if (from < to) {
+                final long skip = from - segmentStart;
+                unsafe.copyMemory(segmentSources[i] + skip, segmentDestinations[i] + skip, to - from);
+            }
+            segmentStart = segmentEnd;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package bwapi;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Records the stream of frames received from BWAPI, and the commands sent back, to a file.
+ * Recordings can be played back deterministically without StarCraft by {@link ClientConnectionRecording}.
+ *
+ * A recording starts with a header describing the layout of the game data, followed by records.
+ * The first frame is recorded in full. Each later frame records only the mutable sections of the game data
+ * (see {@link FrameBuffer#MUTABLE_SECTIONS}), XORed with the previous frame so unchanged bytes compress away.
+ * The commands a bot sends are recorded the same way, XORed with the frame they were sent in response to.
+ * Every record is compressed separately with Deflate.
+ *
+ * The thread which talks to BWAPI only copies the data to record into a recycled buffer.
+ * A writer thread diffs, compresses and writes it, flushing whenever it catches up,
+ * so the recording stays usable however the bot exits. If the writer falls a few records behind,
+ * recording waits for it rather than dropping frames.
+ *
+ * Only the thread which talks to BWAPI should call it.
+ */
+class FrameRecorder implements Closeable {
+    static final int MAGIC = 0x4A425752; // "JBWR"
+    static final int VERSION = 2;
+
+    static final byte RECORD_FULL_FRAME = 0;
+    static final byte RECORD_FRAME_DIFF = 1;
+    static final byte RECORD_COMMANDS_DIFF = 2;
+
+    /**
+     * The section of game data holding the game and unit commands sent by the bot.
+     */
+    static final int COMMANDS_START = FrameBuffer.STRINGSHAPES_END;
+    static final int COMMANDS_END = FrameBuffer.UNITFINDER_START;
+
+    /**
+     * How many records may wait for the writer before recording waits for it.
+     */
+    private static final int QUEUE_RECORDS = 4;
+
+    private static final Record STOP = new Record((byte) -1, null);
+
+    private final WrappedBuffer liveData;
+    private final DataOutputStream output;
+    private final int mutableSize;
+    private final int commandsPosition;
+
+    /**
+     * Records waiting for the writer, in order.
+     */
+    private final BlockingQueue<Record> pending = new ArrayBlockingQueue<>(QUEUE_RECORDS);
+
+    /**
+     * Buffers the writer has finished with. The writer holds on to one more frame, to diff the next against.
+     */
+    private final BlockingQueue<byte[]> freeFrames = new ArrayBlockingQueue<>(QUEUE_RECORDS + 2);
+    private final BlockingQueue<byte[]> freeCommands = new ArrayBlockingQueue<>(QUEUE_RECORDS);
+    private int framesAllocated = 0;
+    private int commandsAllocated = 0;
+    private boolean started = false;
+
+    private final Thread writer;
+    private volatile IOException failure;
+
+    // Used only by the writer
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[1 << 16];
+
+    /**
+     * The mutable sections of the last frame written, back to back.
+     */
+    private byte[] previous;
+
+    FrameRecorder(final String path, final WrappedBuffer liveData) throws IOException {
+        this.liveData = liveData;
+        int size = 0;
+        int position = -1;
+        for (int[] section : FrameBuffer.MUTABLE_SECTIONS) {
+            if (section[0] == COMMANDS_START) {
+                position = size;
+            }
+            size += section[1] - section[0];
+        }
+        mutableSize = size;
+        commandsPosition = position;
+
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 20));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(ClientData.GameData.SIZE);
+        output.writeInt(FrameBuffer.MUTABLE_SECTIONS.length);
+        for (int[] section : FrameBuffer.MUTABLE_SECTIONS) {
+            output.writeInt(section[0]);
+            output.writeInt(section[1]);
+        }
+        output.flush();
+
+        writer = new Thread(this::write, "JBWAPI Recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Data copied for the writer.
+     */
+    private static class Record {
+        final byte type;
+        final byte[] data;
+
+        Record(final byte type, final byte[] data) {
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Records the frame BWAPI has just made available.
+     */
+    void recordFrame() throws IOException {
+        checkWriter();
+        if ( ! started) {
+            final byte[] full = new byte[ClientData.GameData.SIZE];
+            liveData.getBytes(0, full, 0, full.length);
+            enqueue(new Record(RECORD_FULL_FRAME, full));
+            started = true;
+            return;
+        }
+        byte[] current = freeFrames.poll();
+        if (current == null) {
+            if (framesAllocated < QUEUE_RECORDS + 1) {
+                ++framesAllocated;
+                current = new byte[mutableSize];
+            } else {
+                current = take(freeFrames);
+            }
+        }
+        readMutableSections(current);
+        enqueue(new Record(RECORD_FRAME_DIFF, current));
+    }
+
+    /**
+     * Records the commands about to be sent to BWAPI for the last frame recorded.
+     */
+    void recordCommands() throws IOException {
+        checkWriter();
+        if ( ! started) {
+            return;
+        }
+        byte[] commands = freeCommands.poll();
+        if (commands == null) {
+            if (commandsAllocated < QUEUE_RECORDS) {
+                ++commandsAllocated;
+                commands = new byte[COMMANDS_END - COMMANDS_START];
+            } else {
+                commands = take(freeCommands);
+            }
+        }
+        liveData.getBytes(COMMANDS_START, commands, 0, commands.length);
+        enqueue(new Record(RECORD_COMMANDS_DIFF, commands));
+    }
+
+    private void readMutableSections(final byte[] destination) {
+        int position = 0;
+        for (int[] section : FrameBuffer.MUTABLE_SECTIONS) {
+            liveData.getBytes(section[0], destination, position, section[1] - section[0]);
+            position += section[1] - section[0];
+        }
+    }
+
+    private void checkWriter() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void enqueue(final Record record) throws IOException {
+        try {
+            pending.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the recording to be written");
+        }
+    }
+
+    private static byte[] take(final BlockingQueue<byte[]> free) throws IOException {
+        try {
+            return free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the recording to be written");
+        }
+    }
+
+    /**
+     * Runs on the writer thread until the recorder is closed.
+     * After a failure, keeps returning buffers so recording never waits on a writer which has given up.
+     */
+    private void write() {
+        while (true) {
+            final Record record;
+            try {
+                record = pending.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (record == STOP) {
+                return;
+            }
+            byte[] finished = record.data;
+            if (failure == null) {
+                try {
+                    finished = writeRecord(record);
+                    if (pending.isEmpty()) {
+                        output.flush();
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (record.type == RECORD_FRAME_DIFF) {
+                freeFrames.offer(finished);
+            } else if (record.type == RECORD_COMMANDS_DIFF) {
+                freeCommands.offer(finished);
+            }
+        }
+    }
+
+    /**
+     * @return The buffer the writer has finished with
+     */
+    private byte[] writeRecord(final Record record) throws IOException {
+        final byte[] data = record.data;
+        switch (record.type) {
+            case RECORD_FULL_FRAME:
+                writeRecord(RECORD_FULL_FRAME, data, data.length);
+                previous = new byte[mutableSize];
+                int position = 0;
+                for (int[] section : FrameBuffer.MUTABLE_SECTIONS) {
+                    System.arraycopy(data, section[0], previous, position, section[1] - section[0]);
+                    position += section[1] - section[0];
+                }
+                return data;
+            case RECORD_FRAME_DIFF:
+                // Diff in place in the previous frame, which is then free to be reused for a later frame
+                final byte[] diff = previous;
+                for (int i = 0; i < mutableSize; i++) {
+                    diff[i] ^= data[i];
+                }
+                writeRecord(RECORD_FRAME_DIFF, diff, mutableSize);
+                previous = data;
+                return diff;
+            case RECORD_COMMANDS_DIFF:
+                for (int i = 0; i < data.length; i++) {
+                    data[i] ^= previous[commandsPosition + i];
+                }
+                writeRecord(RECORD_COMMANDS_DIFF, data, data.length);
+                return data;
+            default:
+                throw new IllegalStateException("Unknown record type: " + record.type);
+        }
+    }
+
+    private void writeRecord(final byte type, final byte[] data, final int length) throws IOException {
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+        int compressedLength = 0;
+        while ( ! deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, 2 * compressed.length);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        output.writeByte(type);
+        output.writeInt(length);
+        output.writeInt(compressedLength);
+        output.write(compressed, 0, compressedLength);
+    }
+
+    /**
+     * Waits for the writer to finish the records already made, then closes the recording.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            pending.put(STOP);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.interrupt();
+        }
+        deflater.end();
+        output.close();
+        checkWriter();
+    }
+}
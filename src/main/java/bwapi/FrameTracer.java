@@ -0,0 +1,196 @@
+package bwapi;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records a timeline of spans (named intervals on a thread) and writes it as a Chrome trace-event JSON file,
+ * which chrome://tracing, Perfetto (ui.perfetto.dev) and Speedscope can display.
+ *
+ * Spans are recorded into a ring buffer preallocated at construction, so recording allocates nothing;
+ * once the ring buffer is full the oldest spans are overwritten. Any number of threads may record at once.
+ * Writing the file should wait until no thread is recording, eg. until the end of a game.
+ *
+ * A span is recorded by calling {@link #begin()} at its start and {@link #end} at its end.
+ * The {@link #DISABLED} tracer records nothing, and costs a field read per call.
+ */
+class FrameTracer {
+    static final String ENQUEUE_FRAME = "enqueueFrame";
+    static final String COPY_BUFFER = "copyBuffer";
+    static final String WAIT_FOR_CAPACITY = "waitForBufferCapacity";
+    static final String WAIT_FOR_BOT = "waitForBot";
+    static final String WAIT_FOR_FRAME = "waitForFrame";
+    static final String HANDLE_EVENTS = "handleEvents";
+    static final String FLUSH_SIDE_EFFECTS = "flushSideEffects";
+    static final String SUBMIT_CLIENT_DATA = "submitClientData";
+    static final String WAIT_FOR_SERVER_DATA = "waitForServerData";
+
+    static final FrameTracer DISABLED = new FrameTracer();
+
+    private final boolean enabled;
+    private final String path;
+    private final int mask;
+    private final long[] startNanos;
+    private final long[] durationNanos;
+    private final String[] names;
+    private final int[] threads;
+    private final int[] frames;
+    private final AtomicLong cursor = new AtomicLong();
+    private final long originNanos = System.nanoTime();
+
+    private final List<String> threadNames = new ArrayList<>();
+    private final ThreadLocal<Integer> threadIndex = ThreadLocal.withInitial(() -> {
+        synchronized (threadNames) {
+            threadNames.add(Thread.currentThread().getName());
+            return threadNames.size() - 1;
+        }
+    });
+
+    private FrameTracer() {
+        enabled = false;
+        path = null;
+        mask = 0;
+        startNanos = null;
+        durationNanos = null;
+        names = null;
+        threads = null;
+        frames = null;
+    }
+
+    /**
+     * @param path Where to write the trace
+     * @param capacity The most spans to keep; rounded up to a power of two
+     */
+    FrameTracer(String path, int capacity) {
+        enabled = true;
+        this.path = path;
+        final int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        mask = size - 1;
+        startNanos = new long[size];
+        durationNanos = new long[size];
+        names = new String[size];
+        threads = new int[size];
+        frames = new int[size];
+    }
+
+    /**
+     * @return A tracer for the configuration, or {@link #DISABLED} if tracing is not configured
+     */
+    static FrameTracer create(BWClientConfiguration configuration) {
+        return configuration.getTracePath() == null
+            ? DISABLED
+            : new FrameTracer(configuration.getTracePath(), configuration.getTraceCapacity());
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The start time of a span, to pass to {@link #end}
+     */
+    long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a span on the current thread which started at the result of {@link #begin()} and ends now.
+     *
+     * @param name The name of the span. Not copied, so should not be built anew for each span
+     * @param start The result of {@link #begin()}
+     * @param frame The frame the span concerns
+     */
+    void end(String name, long start, int frame) {
+        if ( ! enabled) {
+            return;
+        }
+        final long now = System.nanoTime();
+        final int slot = (int) (cursor.getAndIncrement() & mask);
+        startNanos[slot] = start;
+        durationNanos[slot] = now - start;
+        names[slot] = name;
+        threads[slot] = threadIndex.get();
+        frames[slot] = frame;
+    }
+
+    /**
+     * @return The number of spans recorded so far, including any since overwritten
+     */
+    long getSpansRecorded() {
+        return cursor.get();
+    }
+
+    /**
+     * Writes the spans held in the ring buffer to the trace file, replacing any previous contents.
+     */
+    void write() throws IOException {
+        if ( ! enabled) {
+            return;
+        }
+        final long end = cursor.get();
+        final long start = Math.max(0, end - (mask + 1));
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+            writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+            boolean first = true;
+            synchronized (threadNames) {
+                for (int thread = 0; thread < threadNames.size(); thread++) {
+                    writer.write(first ? "\n" : ",\n");
+                    first = false;
+                    writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread
+                        + ",\"args\":{\"name\":" + quote(threadNames.get(thread)) + "}}");
+                }
+            }
+            for (long i = start; i < end; i++) {
+                final int slot = (int) (i & mask);
+                writer.write(first ? "\n" : ",\n");
+                first = false;
+                writer.write("{\"name\":" + quote(names[slot])
+                    + ",\"ph\":\"X\",\"pid\":1,\"tid\":" + threads[slot]
+                    + ",\"ts\":" + micros(startNanos[slot] - originNanos)
+                    + ",\"dur\":" + micros(durationNanos[slot])
+                    + ",\"args\":{\"frame\":" + frames[slot] + "}}");
+            }
+            writer.write("\n]}\n");
+        }
+    }
+
+    /**
+     * Writes the trace file, reporting rather than throwing any failure.
+     */
+    void writeQuietly() {
+        try {
+            write();
+        } catch (IOException e) {
+            System.err.println("Unable to write trace to " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static String micros(long nanos) {
+        return nanos / 1000 + "." + String.format("%03d", Math.abs(nanos % 1000));
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        final StringBuilder output = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                output.append('\\').append(c);
+            } else if (c < 0x20) {
+                output.append(String.format("\\u%04x", (int) c));
+            } else {
+                output.append(c);
+            }
+        }
+        return output.append('"').toString();
+    }
+}
@@ -0,0 +1,191 @@
+package bwapi;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Profiles frames where the bot's event handlers overrun a time threshold.
+ *
+ * The thread handling events marks the start and end of each frame's handling.
+ * A daemon thread checks in on it about once per threshold; once a frame has run over the threshold,
+ * it samples the handling thread's stack at a fixed interval until the frame ends.
+ * Samples from the whole game are aggregated by stack, and written as folded stacks
+ * (the input format of flamegraph.pl and Speedscope) at the end of the game.
+ *
+ * Frames within the threshold cost two volatile writes; sampling only pauses the bot during overruns.
+ */
+class FrameWatchdog {
+    private final String path;
+    private final long thresholdNanos;
+    private final long intervalNanos;
+
+    private volatile Thread watched;
+    private volatile long frameStartNanos;
+    private volatile boolean running;
+    private Thread thread;
+
+    private final Map<String, Long> samples = new HashMap<>();
+    private int overruns;
+    private long samplesTaken;
+
+    /**
+     * @param path Where to write the profile
+     * @param thresholdMs How long a frame may run before sampling starts
+     * @param intervalMs How often to sample during an overrun
+     */
+    FrameWatchdog(String path, int thresholdMs, int intervalMs) {
+        this.path = path;
+        this.thresholdNanos = thresholdMs * 1000000L;
+        this.intervalNanos = Math.max(1, intervalMs) * 1000000L;
+    }
+
+    /**
+     * @return A watchdog for the configuration, or null if the watchdog is not configured
+     */
+    static FrameWatchdog create(BWClientConfiguration configuration) {
+        if (configuration.getWatchdogProfilePath() == null) {
+            return null;
+        }
+        return new FrameWatchdog(
+            configuration.getWatchdogProfilePath(),
+            configuration.getWatchdogThresholdMs() > 0 ? configuration.getWatchdogThresholdMs() : configuration.getMaxFrameDurationMs(),
+            configuration.getWatchdogSampleIntervalMs());
+    }
+
+    /**
+     * Starts watching for a new game, discarding samples from any previous game.
+     */
+    void start() {
+        stopThread();
+        synchronized (this) {
+            samples.clear();
+            overruns = 0;
+            samplesTaken = 0;
+        }
+        frameStartNanos = 0;
+        running = true;
+        thread = new Thread(this::watch, "JBWAPI Watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Marks the start of the current thread's handling of a frame.
+     */
+    void frameStarted() {
+        watched = Thread.currentThread();
+        frameStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of the frame's handling.
+     */
+    void frameEnded() {
+        frameStartNanos = 0;
+    }
+
+    private void watch() {
+        while (running) {
+            final long start = frameStartNanos;
+            if (start == 0) {
+                LockSupport.parkNanos(Math.max(intervalNanos, thresholdNanos));
+                continue;
+            }
+            final long sinceStart = System.nanoTime() - start;
+            if (sinceStart < thresholdNanos) {
+                LockSupport.parkNanos(thresholdNanos - sinceStart);
+                continue;
+            }
+            final Thread target = watched;
+            boolean counted = false;
+            while (running && frameStartNanos == start) {
+                final StackTraceElement[] stack = target.getStackTrace();
+                // The frame may have ended while the stack was being taken
+                if (frameStartNanos != start) {
+                    break;
+                }
+                synchronized (this) {
+                    if ( ! counted) {
+                        ++overruns;
+                        counted = true;
+                    }
+                    samples.merge(fold(stack), 1L, Long::sum);
+                    ++samplesTaken;
+                }
+                LockSupport.parkNanos(intervalNanos);
+            }
+        }
+    }
+
+    /**
+     * @return The stack as one line of a folded-stack profile, outermost frame first
+     */
+    static String fold(StackTraceElement[] stack) {
+        final StringBuilder output = new StringBuilder();
+        for (int i = stack.length - 1; i >= 0; i--) {
+            if (output.length() > 0) {
+                output.append(';');
+            }
+            // Spaces and semicolons separate the fields of a folded stack
+            output.append((stack[i].getClassName() + "." + stack[i].getMethodName()).replace(' ', '_').replace(';', ':'));
+        }
+        return output.length() == 0 ? "[unknown]" : output.toString();
+    }
+
+    /**
+     * @return How many frames have overrun the threshold and been sampled this game
+     */
+    synchronized int getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * @return How many stack samples have been taken this game
+     */
+    synchronized long getSamplesTaken() {
+        return samplesTaken;
+    }
+
+    /**
+     * Stops watching, and writes the game's profile, reporting rather than throwing any failure.
+     */
+    void stop() {
+        stopThread();
+        try {
+            write();
+        } catch (IOException e) {
+            System.err.println("Unable to write watchdog profile to " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void stopThread() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    private synchronized void write() throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Long> sample : samples.entrySet()) {
+                writer.write(sample.getKey());
+                writer.write(' ');
+                writer.write(Long.toString(sample.getValue()));
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package bwapi;
 import bwapi.ClientData.GameData;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -42,9 +43,22 @@ public final class Game {
 
     private static final int REGION_DATA_SIZE = 5000;
 
-    private final Set<Integer> visibleUnits = new HashSet<>();
+    private final UnitRegistry visibleUnits = new UnitRegistry();
 
-    private List<Unit> allUnits;
+    private UnitRegistry allUnits;
+    /**
+     * Increases whenever the units' positions are refreshed or the list of units is replaced
+     */
+    private int unitUpdates;
+    private volatile UnitGrid unitGrid;
+    private UnitFinder unitFinder;
+    /**
+     * The frame the units' positions were last refreshed for. BWAPI's unit finder holds the edges of that frame's units
+     * only once they have been, not during the unit events which come before it.
+     */
+    private int positionsFrame = -1;
+    private final UnitFilter isGeyser = u -> u.getType() == Resource_Vespene_Geyser;
+    private final UnitFilter isNeutral = u -> u.getPlayer().equals(neutral());
     private final ClientData clientData;
 
     private List<Unit> staticMinerals;
@@ -104,6 +118,12 @@ public final class Game {
     final ConnectedUnitCache larvaCache = new ConnectedUnitCache(this, Unit::getHatchery);
 
     final SideEffectQueue sideEffects = new SideEffectQueue();
+    final CommandOptimizer commandOptimizer = new CommandOptimizer();
+
+    private static final int MAX_TRACE_SPAN_DEPTH = 32;
+    private FrameTracer tracer = FrameTracer.DISABLED;
+    private ThreadLocal<TraceSpans> traceSpans = ThreadLocal.withInitial(TraceSpans::new);
+    private long frameDeadlineNanos = Long.MAX_VALUE;
 
     Game() {
         clientData = new ClientData();
@@ -111,6 +131,25 @@ public final class Game {
 
     void setConfiguration(BWClientConfiguration configuration) {
         this.configuration = configuration;
+        commandOptimizer.setConfiguration(configuration);
+    }
+
+    void setTracer(FrameTracer tracer) {
+        this.tracer = tracer;
+        traceSpans = ThreadLocal.withInitial(TraceSpans::new);
+    }
+
+    /**
+     * The spans a thread has opened with {@link #beginTraceSpan} and not yet closed, innermost last
+     */
+    private static class TraceSpans {
+        final String[] names = new String[MAX_TRACE_SPAN_DEPTH];
+        final long[] starts = new long[MAX_TRACE_SPAN_DEPTH];
+        int depth = 0;
+    }
+
+    void setFrameDeadlineNanos(long deadlineNanos) {
+        frameDeadlineNanos = deadlineNanos;
     }
 
     ClientData botClientData() {
@@ -150,7 +189,7 @@ public final class Game {
     Call this method in EventHander::OnMatchStart
     */
     void init() {
-        visibleUnits.clear();
+        visibleUnits.reset();
 
         loadedUnitsCache.reset();
         interceptorsCache.reset();
@@ -215,7 +254,7 @@ public final class Game {
         final List<Unit> staticMinerals = new ArrayList<>();
         final List<Unit> staticGeysers = new ArrayList<>();
         final List<Unit> staticNeutralUnits = new ArrayList<>();
-        final List<Unit> allUnits = new ArrayList<>();
+        final UnitRegistry allUnits = new UnitRegistry();
         for (int id = 0; id < gameData().getInitialUnitCount(); id++) {
             final Unit unit = new Unit(gameData().getUnits(id), id, this);
             //skip ghost units
@@ -223,7 +262,7 @@ public final class Game {
                 continue;
             }
             this.units[id] = unit;
-            allUnits.add(unit);
+            allUnits.register(unit);
 
             if (unit.getType().isMineralField()) {
                 staticMinerals.add(unit);
@@ -239,7 +278,8 @@ public final class Game {
         this.staticMinerals = Collections.unmodifiableList(staticMinerals);
         this.staticGeysers = Collections.unmodifiableList(staticGeysers);
         this.staticNeutralUnits = Collections.unmodifiableList(staticNeutralUnits);
-        this.allUnits = Collections.unmodifiableList(allUnits);
+        this.allUnits = allUnits;
+        positionsFrame = gameData().getFrameCount();
 
         buildable = new boolean[mapWidth][mapHeight];
         groundHeight = new int[mapWidth][mapHeight];
@@ -285,6 +325,12 @@ public final class Game {
                     .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
         }
         setLatCom(!configuration.getAsync());
+        // BWAPI's unit finder is only up to date in the live game data, or in frame buffers which copy it
+        unitFinder = configuration.getAsync() && ! configuration.getAsyncCopyUnitFinder() ? null : new UnitFinder(clientData, this);
+        commandOptimizer.reset();
+        if (configuration.getCommandOptimizationLevel() > 0) {
+            setCommandOptimizationLevel(configuration.getCommandOptimizationLevel());
+        }
     }
 
     void unitCreate(final int id) {
@@ -303,20 +349,23 @@ public final class Game {
 
     void unitShow(final int id) {
         unitCreate(id);
-        visibleUnits.add(id);
+        visibleUnits.register(units[id]);
     }
 
     void unitHide(final int id) {
-        visibleUnits.remove(id);
+        visibleUnits.unregister(id);
     }
 
     void onFrame(final int frame) {
         if (frame > 0) {
-            allUnits = visibleUnits.stream()
-                    .map(i -> units[i])
-                    .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
+            allUnits = visibleUnits;
         }
-        getAllUnits().forEach(u -> u.updatePosition(frame));
+        final List<Unit> accessible = allUnits;
+        for (int i = 0; i < accessible.size(); i++) {
+            accessible.get(i).updatePosition(frame);
+        }
+        positionsFrame = frame;
+        ++unitUpdates;
     }
 
     /**
@@ -345,6 +394,9 @@ public final class Game {
      * visible to the player.
      * <p>
      * Units that are inside refineries are not included in this set.
+     * <p>
+     * The same read-only list is returned every frame, and changes as units are shown and hidden,
+     * in no particular order. Copy it to keep the units of a particular frame.
      *
      * @return List<Unit> containing all known units in the game.
      */
@@ -352,15 +404,47 @@ public final class Game {
         return allUnits;
     }
 
+    /**
+     * @return A spatial index of {@link #getAllUnits}, built on the first unit query of each frame
+     */
+    UnitGrid getUnitGrid() {
+        final int version = unitUpdates + visibleUnits.getVersion();
+        UnitGrid grid = unitGrid;
+        if (grid == null || grid.getVersion() != version) {
+            // Threads racing here each build an identical grid; whichever is kept, the others are discarded
+            grid = new UnitGrid(allUnits, version, mapWidth, mapHeight);
+            unitGrid = grid;
+        }
+        return grid;
+    }
+
     /**
      * Retrieves the set of all accessible @minerals in the game.
      *
      * @return List<Unit> containing @minerals
      */
     public List<Unit> getMinerals() {
-        return getAllUnits().stream()
-                .filter(u -> u.getType().isMineralField())
-                .collect(Collectors.toList());
+        final List<Unit> minerals = new ArrayList<>();
+        getMinerals(minerals);
+        return minerals;
+    }
+
+    /**
+     * Adds all accessible @minerals in the game to a collection, eg. one reused every frame.
+     *
+     * @param output The collection to add @minerals to
+     */
+    public void getMinerals(final Collection<? super Unit> output) {
+        Visits.visitAll(getAllUnits(), UnitFilter.IsMineralField, output, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Performs an action for each accessible @mineral in the game.
+     *
+     * @param action The action to perform
+     */
+    public void forEachMineral(final Consumer<? super Unit> action) {
+        Visits.visitAll(getAllUnits(), UnitFilter.IsMineralField, null, action, Integer.MAX_VALUE);
     }
 
     /**
@@ -369,9 +453,27 @@ public final class Game {
      * @return List<Unit> containing @geysers
      */
     public List<Unit> getGeysers() {
-        return getAllUnits().stream()
-                .filter(u -> u.getType() == Resource_Vespene_Geyser)
-                .collect(Collectors.toList());
+        final List<Unit> geysers = new ArrayList<>();
+        getGeysers(geysers);
+        return geysers;
+    }
+
+    /**
+     * Adds all accessible @geysers in the game to a collection, eg. one reused every frame.
+     *
+     * @param output The collection to add @geysers to
+     */
+    public void getGeysers(final Collection<? super Unit> output) {
+        Visits.visitAll(getAllUnits(), isGeyser, output, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Performs an action for each accessible @geyser in the game.
+     *
+     * @param action The action to perform
+     */
+    public void forEachGeyser(final Consumer<? super Unit> action) {
+        Visits.visitAll(getAllUnits(), isGeyser, null, action, Integer.MAX_VALUE);
     }
 
     /**
@@ -381,9 +483,27 @@ public final class Game {
      * @return List<Unit> containing all neutral units.
      */
     public List<Unit> getNeutralUnits() {
-        return getAllUnits().stream()
-                .filter(u -> u.getPlayer().equals(neutral()))
-                .collect(Collectors.toList());
+        final List<Unit> neutralUnits = new ArrayList<>();
+        getNeutralUnits(neutralUnits);
+        return neutralUnits;
+    }
+
+    /**
+     * Adds all accessible neutral units in the game to a collection, eg. one reused every frame.
+     *
+     * @param output The collection to add neutral units to
+     */
+    public void getNeutralUnits(final Collection<? super Unit> output) {
+        Visits.visitAll(getAllUnits(), isNeutral, output, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Performs an action for each accessible neutral unit in the game.
+     *
+     * @param action The action to perform
+     */
+    public void forEachNeutralUnit(final Consumer<? super Unit> action) {
+        Visits.visitAll(getAllUnits(), isNeutral, null, action, Integer.MAX_VALUE);
     }
 
     /**
@@ -428,9 +548,27 @@ public final class Game {
      * @return List<Bullet> containing all accessible {@link Bullet} objects.
      */
     public List<Bullet> getBullets() {
-        return Arrays.stream(bullets)
-                .filter(Bullet::exists)
-                .collect(Collectors.toList());
+        final List<Bullet> accessibleBullets = new ArrayList<>();
+        getBullets(accessibleBullets);
+        return accessibleBullets;
+    }
+
+    /**
+     * Adds all accessible bullets to a collection, eg. one reused every frame.
+     *
+     * @param output The collection to add {@link Bullet} objects to
+     */
+    public void getBullets(final Collection<? super Bullet> output) {
+        Visits.visitAll(bullets, Bullet::exists, output, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Performs an action for each accessible bullet.
+     *
+     * @param action The action to perform
+     */
+    public void forEachBullet(final Consumer<? super Bullet> action) {
+        Visits.visitAll(bullets, Bullet::exists, null, action, Integer.MAX_VALUE);
     }
 
     /**
@@ -680,10 +818,68 @@ public final class Game {
      * given build tile.
      */
     public List<Unit> getUnitsOnTile(final int tileX, final int tileY, final UnitFilter pred) {
-        return getAllUnits().stream().filter(u -> {
+        final List<Unit> output = new ArrayList<>();
+        visitUnitsOnTile(tileX, tileY, pred, output, null, Integer.MAX_VALUE);
+        return inListOrder(output);
+    }
+
+    /**
+     * Adds the accessible units that are on a given build tile to a collection, eg. one reused every frame,
+     * in no particular order.
+     *
+     * @param output The collection to add units to
+     * @see #getUnitsOnTile(int, int, UnitFilter)
+     */
+    public void getUnitsOnTile(final int tileX, final int tileY, final UnitFilter pred, final Collection<? super Unit> output) {
+        visitUnitsOnTile(tileX, tileY, pred, output, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Performs an action for each accessible unit that is on a given build tile, in no particular order.
+     *
+     * @param action The action to perform
+     * @see #getUnitsOnTile(int, int, UnitFilter)
+     */
+    public void forEachUnitOnTile(final int tileX, final int tileY, final UnitFilter pred, final Consumer<? super Unit> action) {
+        visitUnitsOnTile(tileX, tileY, pred, null, action, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Whether any accessible unit matching the predicate is on a given build tile
+     * @see #getUnitsOnTile(int, int, UnitFilter)
+     */
+    public boolean hasUnitOnTile(final int tileX, final int tileY, final UnitFilter pred) {
+        return visitUnitsOnTile(tileX, tileY, pred, null, null, 1) > 0;
+    }
+
+    /**
+     * @return The number of accessible units matching the predicate that are on a given build tile
+     * @see #getUnitsOnTile(int, int, UnitFilter)
+     */
+    public int countUnitsOnTile(final int tileX, final int tileY, final UnitFilter pred) {
+        return visitUnitsOnTile(tileX, tileY, pred, null, null, Integer.MAX_VALUE);
+    }
+
+    private int visitUnitsOnTile(final int tileX, final int tileY, final UnitFilter pred,
+                                 final Collection<? super Unit> output, final Consumer<? super Unit> action, final int limit) {
+        final UnitFilter onTile = u -> {
             final TilePosition tp = u.getTilePosition();
             return tp.x == tileX && tp.y == tileY && pred.test(u);
-        }).collect(Collectors.toList());
+        };
+        final UnitGrid grid = getUnitGrid();
+        if (grid.getMinX() < 0 || grid.getMinY() < 0) {
+            return Visits.visitAll(getAllUnits(), onTile, output, action, limit);
+        }
+        // A unit's tile is that of the top-left corner of its footprint, up to 128 pixels left and up of its position
+        // (Special_Floor_Hatch); within 128 pixels of the top or left of the map, the corner is reflected back onto the map
+        final int left = tileX * 32;
+        final int top = tileY * 32;
+        return grid.visit(
+                tileX <= 4 ? Math.min(0, left) : left,
+                tileY <= 4 ? Math.min(0, top) : top,
+                tileX <= 4 ? Math.max(128, left + 159) : left + 159,
+                tileY <= 4 ? Math.max(128, top + 159) : top + 159,
+                onTile, output, action, limit);
     }
 
     public List<Unit> getUnitsInRectangle(final int left, final int top, final int right, final int bottom) {
@@ -702,9 +898,75 @@ public final class Game {
      * given rectangle bounds.
      */
     public List<Unit> getUnitsInRectangle(final int left, final int top, final int right, final int bottom, final UnitFilter pred) {
-        return getAllUnits().stream()
-                .filter(u -> left <= u.getRight() && top <= u.getBottom() && right >= u.getLeft() && bottom >= u.getTop() && pred.test(u))
-                .collect(Collectors.toList());
+        final List<Unit> output = new ArrayList<>();
+        visitUnitsInRectangle(left, top, right, bottom, pred, output, null, Integer.MAX_VALUE);
+        return inListOrder(output);
+    }
+
+    /**
+     * Adds the accessible units that are in a given rectangle to a collection, eg. one reused every frame,
+     * in no particular order.
+     *
+     * @param output The collection to add units to
+     * @see #getUnitsInRectangle(int, int, int, int, UnitFilter)
+     */
+    public void getUnitsInRectangle(final int left, final int top, final int right, final int bottom, final UnitFilter pred, final Collection<? super Unit> output) {
+        visitUnitsInRectangle(left, top, right, bottom, pred, output, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Performs an action for each accessible unit that is in a given rectangle, in no particular order.
+     *
+     * @param action The action to perform
+     * @see #getUnitsInRectangle(int, int, int, int, UnitFilter)
+     */
+    public void forEachUnitInRectangle(final int left, final int top, final int right, final int bottom, final UnitFilter pred, final Consumer<? super Unit> action) {
+        visitUnitsInRectangle(left, top, right, bottom, pred, null, action, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Whether any accessible unit matching the predicate is in a given rectangle
+     * @see #getUnitsInRectangle(int, int, int, int, UnitFilter)
+     */
+    public boolean hasUnitInRectangle(final int left, final int top, final int right, final int bottom, final UnitFilter pred) {
+        return visitUnitsInRectangle(left, top, right, bottom, pred, null, null, 1) > 0;
+    }
+
+    /**
+     * @return The number of accessible units matching the predicate that are in a given rectangle
+     * @see #getUnitsInRectangle(int, int, int, int, UnitFilter)
+     */
+    public int countUnitsInRectangle(final int left, final int top, final int right, final int bottom, final UnitFilter pred) {
+        return visitUnitsInRectangle(left, top, right, bottom, pred, null, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Visits the accessible units that are in a given rectangle and match a filter, in no particular order, allocating nothing.
+     *
+     * @param output If not null, receives each unit visited
+     * @param action If not null, is invoked for each unit visited
+     * @param limit The most units to visit
+     * @return The number of units visited
+     */
+    int visitUnitsInRectangle(final int left, final int top, final int right, final int bottom, final UnitFilter filter,
+                              final Collection<? super Unit> output, final Consumer<? super Unit> action, final int limit) {
+        return unitFinder == null || positionsFrame != getFrameCount()
+                ? getUnitGrid().visit(left, top, right, bottom, filter, output, action, limit)
+                : unitFinder.visit(left, top, right, bottom, filter, output, action, limit);
+    }
+
+    /**
+     * Sorts the units found by a query into the order of {@link #getAllUnits}, as the queries returning lists
+     * always have, so that eg. ties in {@link #getClosestUnit} are broken the same way whichever index answers them.
+     *
+     * @return The units, sorted in place
+     */
+    List<Unit> inListOrder(final List<Unit> units) {
+        if (units.size() > 1) {
+            final UnitRegistry all = allUnits;
+            units.sort(Comparator.comparingInt(all::indexOf));
+        }
+        return units;
     }
 
     public List<Unit> getUnitsInRectangle(final Position leftTop, final Position rightBottom) {
@@ -739,9 +1001,58 @@ public final class Game {
     }
 
     public List<Unit> getUnitsInRadius(final Position center, final int radius, final UnitFilter pred) {
-        return getAllUnits().stream()
-                .filter(u -> center.getApproxDistance(u.getPosition()) <= radius && pred.test(u))
-                .collect(Collectors.toList());
+        final List<Unit> output = new ArrayList<>();
+        visitUnitsInRadius(center, radius, pred, output, null, Integer.MAX_VALUE);
+        return inListOrder(output);
+    }
+
+    /**
+     * Adds the accessible units that are within a given radius of a position to a collection, eg. one reused every frame,
+     * in no particular order.
+     *
+     * @param output The collection to add units to
+     * @see #getUnitsInRadius(int, int, int, UnitFilter)
+     */
+    public void getUnitsInRadius(final Position center, final int radius, final UnitFilter pred, final Collection<? super Unit> output) {
+        visitUnitsInRadius(center, radius, pred, output, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Performs an action for each accessible unit that is within a given radius of a position, in no particular order.
+     *
+     * @param action The action to perform
+     * @see #getUnitsInRadius(int, int, int, UnitFilter)
+     */
+    public void forEachUnitInRadius(final Position center, final int radius, final UnitFilter pred, final Consumer<? super Unit> action) {
+        visitUnitsInRadius(center, radius, pred, null, action, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Whether any accessible unit matching the predicate is within a given radius of a position
+     * @see #getUnitsInRadius(int, int, int, UnitFilter)
+     */
+    public boolean hasUnitInRadius(final Position center, final int radius, final UnitFilter pred) {
+        return visitUnitsInRadius(center, radius, pred, null, null, 1) > 0;
+    }
+
+    /**
+     * @return The number of accessible units matching the predicate that are within a given radius of a position
+     * @see #getUnitsInRadius(int, int, int, UnitFilter)
+     */
+    public int countUnitsInRadius(final Position center, final int radius, final UnitFilter pred) {
+        return visitUnitsInRadius(center, radius, pred, null, null, Integer.MAX_VALUE);
+    }
+
+    private int visitUnitsInRadius(final Position center, final int radius, final UnitFilter pred,
+                                   final Collection<? super Unit> output, final Consumer<? super Unit> action, final int limit) {
+        final UnitFilter inRadius = u -> center.getApproxDistance(u.getPosition()) <= radius && pred.test(u);
+        if (radius > 1 << 24) {
+            return Visits.visitAll(getAllUnits(), inRadius, output, action, limit);
+        }
+        // The approximate distance is never less than 92% of the larger axis distance, less rounding,
+        // so every unit in the radius has its position (and so overlaps) this square
+        final int reach = radius + (radius >> 3) + 3;
+        return visitUnitsInRectangle(center.x - reach, center.y - reach, center.x + reach, center.y + reach, inRadius, output, action, limit);
     }
 
     public Unit getClosestUnitInRectangle(final Position center, final int left, final int top, final int right, final int bottom) {
@@ -2552,6 +2863,69 @@ public final class Game {
         addCommand(SetCommandOptimizerLevel, level, 0);
     }
 
+    /**
+     * Opens a span on the timeline recorded with {@link BWClientConfiguration.Builder#withTracePath}, eg. to see how long
+     * a bot's build order or pathfinding takes each frame. Spans nest, and each must be closed with {@link #endTraceSpan}
+     * on the same thread. Each thread has its own spans, so threads a bot runs work on can trace it too.
+     * Does nothing unless tracing is enabled.
+     *
+     * @param name The name to show for the span. To avoid allocating, pass a constant rather than building a new string each time.
+     */
+    public void beginTraceSpan(final String name) {
+        if ( ! tracer.isEnabled()) {
+            return;
+        }
+        final TraceSpans spans = traceSpans.get();
+        if (spans.depth < MAX_TRACE_SPAN_DEPTH) {
+            spans.names[spans.depth] = name;
+            spans.starts[spans.depth] = tracer.begin();
+        }
+        ++spans.depth;
+    }
+
+    /**
+     * Closes the span most recently opened with {@link #beginTraceSpan} on the current thread.
+     */
+    public void endTraceSpan() {
+        if ( ! tracer.isEnabled()) {
+            return;
+        }
+        final TraceSpans spans = traceSpans.get();
+        if (spans.depth == 0) {
+            return;
+        }
+        --spans.depth;
+        if (spans.depth < MAX_TRACE_SPAN_DEPTH) {
+            tracer.end(spans.names[spans.depth], spans.starts[spans.depth], getFrameCount());
+            spans.names[spans.depth] = null;
+        }
+    }
+
+    /**
+     * Retrieves when the bot should be done with the current frame, as computed from {@link BWClientConfiguration#getMaxFrameDurationMs}.
+     *
+     * In synchronous mode the frame's time starts when JBWAPI receives it from BWAPI. In asynchronous mode it starts when the frame
+     * arrives from BWAPI, not when the bot gets to it, so a bot which has fallen behind has no time left on its older frames.
+     *
+     * @return The deadline, on the same clock as {@link System#nanoTime()}, or Long.MAX_VALUE if the frame has no time limit
+     * (frame 0 with {@link BWClientConfiguration.Builder#withUnlimitedFrameZero}).
+     */
+    public long getFrameDeadlineNanos() {
+        return frameDeadlineNanos;
+    }
+
+    /**
+     * Retrieves how much of the current frame's time budget is left. See {@link #getFrameDeadlineNanos}.
+     *
+     * @return Milliseconds until the frame's deadline; negative once it has passed, or infinite if the frame has no time limit.
+     */
+    public double getRemainingFrameTimeMs() {
+        if (frameDeadlineNanos == Long.MAX_VALUE) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (frameDeadlineNanos - System.nanoTime()) / 1000000d;
+    }
+
     /**
      * Returns the remaining countdown time. The countdown timer is used in @CTF and @UMS game types.
      *
@@ -2713,52 +3087,63 @@ public final class Game {
      * Convenience method for adding a unit command from raw arguments.
      */
     void addUnitCommand(final int type, final int unit, final int target, final int x, final int y, final int extra) {
-        enqueueOrDo(SideEffect.addUnitCommand(type, unit, target, x, y, extra));
+        if (configuration.getAsync()) {
+            sideEffects.addUnitCommand(type, unit, target, x, y, extra);
+        } else {
+            SideEffect.addUnitCommand(gameData(), type, unit, target, x, y, extra);
+        }
     }
 
     /**
      * Convenience method for adding a game command from raw arguments.
      */
     void addCommand(final CommandType type, final int value1, final int value2) {
-        enqueueOrDo(SideEffect.addCommand(type, value1, value2));
+        if (configuration.getAsync()) {
+            sideEffects.addCommand(type, value1, value2);
+        } else {
+            SideEffect.addCommand(gameData(), type, value1, value2);
+        }
     }
 
     /**
      * Convenience method for adding a game command from raw arguments.
      */
     void addCommand(final CommandType type, final String value1, final int value2) {
-        enqueueOrDo(SideEffect.addCommand(type, value1, value2));
+        if (configuration.getAsync()) {
+            sideEffects.addCommand(type, value1, value2);
+        } else {
+            SideEffect.addCommand(gameData(), type, value1, value2);
+        }
     }
 
     /**
      * Convenience method for adding a shape from raw arguments.
      */
     void addShape(final ShapeType type, final CoordinateType coordType, final int x1, final int y1, final int x2, final int y2, final int extra1, final int extra2, final int color, final boolean isSolid) {
-        enqueueOrDo(SideEffect.addShape(type, coordType, x1, y1, x2, y2, extra1, extra2, color, isSolid));
+        if (configuration.getAsync()) {
+            sideEffects.addShape(type, coordType, x1, y1, x2, y2, extra1, extra2, color, isSolid);
+        } else {
+            SideEffect.addShape(gameData(), type, coordType, x1, y1, x2, y2, extra1, extra2, color, isSolid);
+        }
     }
 
     /**
      * Convenience method for adding a shape from raw arguments.
      */
     void addShape(final ShapeType type, final CoordinateType coordType, final int x1, final int y1, final int x2, final int y2, final String text, final int extra2, final int color, final boolean isSolid) {
-        enqueueOrDo(SideEffect.addShape(type, coordType, x1, y1, x2, y2, text, extra2, color, isSolid));
-    }
-
-    /**
-     * Applies a side effect, either immediately (if operating synchronously)
-     * or by enqueuing it for later execution (if operating asynchronously).
-     *
-     * @param sideEffect
-     */
-    void enqueueOrDo(SideEffect sideEffect) {
         if (configuration.getAsync()) {
-            sideEffects.enqueue(sideEffect);
+            sideEffects.addShape(type, coordType, x1, y1, x2, y2, text, extra2, color, isSolid);
         } else {
-            sideEffect.apply(gameData());
+            SideEffect.addShape(gameData(), type, coordType, x1, y1, x2, y2, text, extra2, color, isSolid);
         }
     }
 
     void setAllUnits(List<Unit> units) {
-        allUnits = Collections.unmodifiableList(units);
+        final UnitRegistry registry = new UnitRegistry();
+        units.forEach(registry::register);
+        allUnits = registry;
+        ++unitUpdates;
+        // The unit finder describes the game's own units, not these
+        unitFinder = null;
     }
 }
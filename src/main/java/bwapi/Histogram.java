@@ -0,0 +1,223 @@
+package bwapi;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size histogram of non-negative values, in the style of HdrHistogram.
+ *
+ * Values are counted in log-linear buckets: each power of two is split into 64 buckets,
+ * so any value is represented to within 1/64 (about 1.6%) of itself, from the resolution
+ * given at construction up to 2^40 times that resolution. Larger values are counted as the largest trackable value.
+ *
+ * Recording allocates nothing, and any number of threads may record at once.
+ * Queries see each bucket's count atomically, but may see a recording in progress on another thread only in part.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    private static final int MAGNITUDE_BITS = 40;
+    private static final long MAX_UNITS = (1L << MAGNITUDE_BITS) - 1;
+    private static final int BUCKETS = (MAGNITUDE_BITS - SUB_BUCKET_BITS + 2) * SUB_BUCKET_HALF;
+
+    private final double resolution;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalUnits = new AtomicLong();
+
+    /**
+     * The state of this histogram as of the last interval taken, if any
+     */
+    private Histogram intervalStart;
+
+    /**
+     * @param resolution The smallest difference between values worth distinguishing, eg. 0.001 to track milliseconds to the microsecond
+     */
+    public Histogram(double resolution) {
+        if ( ! (resolution > 0)) {
+            throw new IllegalArgumentException("resolution must be positive.");
+        }
+        this.resolution = resolution;
+    }
+
+    public double getResolution() {
+        return resolution;
+    }
+
+    private static int bucketOf(final long units) {
+        if (units < SUB_BUCKET_COUNT) {
+            return (int) units;
+        }
+        final int shift = 64 - Long.numberOfLeadingZeros(units) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF + (int) (units >>> shift);
+    }
+
+    private static int shiftOf(final int bucket) {
+        return bucket < SUB_BUCKET_COUNT ? 0 : bucket / SUB_BUCKET_HALF - 1;
+    }
+
+    private static long lowestUnitsOf(final int bucket) {
+        final int shift = shiftOf(bucket);
+        return (long) (bucket - shift * SUB_BUCKET_HALF) << shift;
+    }
+
+    private static long highestUnitsOf(final int bucket) {
+        return lowestUnitsOf(bucket) + (1L << shiftOf(bucket)) - 1;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     */
+    void record(final double value) {
+        final double scaled = value / resolution + 0.5;
+        final long units = scaled >= MAX_UNITS ? MAX_UNITS : scaled > 0 ? (long) scaled : 0;
+        counts.incrementAndGet(bucketOf(units));
+        totalUnits.addAndGet(units);
+        totalCount.incrementAndGet();
+    }
+
+    /**
+     * @return The number of values recorded
+     */
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return The mean of the values recorded, or 0 if none have been
+     */
+    public double getMean() {
+        final long count = totalCount.get();
+        return count == 0 ? 0 : totalUnits.get() * resolution / count;
+    }
+
+    /**
+     * @return The largest value recorded, to within the precision of the histogram, or 0 if none have been
+     */
+    public double getMax() {
+        for (int bucket = BUCKETS - 1; bucket >= 0; bucket--) {
+            if (counts.get(bucket) > 0) {
+                return highestUnitsOf(bucket) * resolution;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param percentile A percentile between 0 and 100, eg. 99.9
+     * @return The smallest value which at least this percentage of recorded values are no larger than,
+     * to within the precision of the histogram, or 0 if no values have been recorded
+     */
+    public double getValueAtPercentile(final double percentile) {
+        final long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        final double fraction = Math.min(100, Math.max(0, percentile)) / 100;
+        final long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        int lastNonEmpty = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            final long bucketCount = counts.get(bucket);
+            if (bucketCount > 0) {
+                seen += bucketCount;
+                lastNonEmpty = bucket;
+                if (seen >= rank) {
+                    break;
+                }
+            }
+        }
+        return highestUnitsOf(lastNonEmpty) * resolution;
+    }
+
+    /**
+     * @return How many recorded values were at least this large, to within the precision of the histogram
+     */
+    public long getCountAtOrAbove(final double value) {
+        final double scaled = value / resolution;
+        if (scaled > MAX_UNITS) {
+            return 0;
+        }
+        long output = 0;
+        for (int bucket = bucketOf(scaled > 0 ? (long) Math.ceil(scaled) : 0); bucket < BUCKETS; bucket++) {
+            output += counts.get(bucket);
+        }
+        return output;
+    }
+
+    /**
+     * Adds the values recorded by another histogram to this one, eg. to combine the histograms of several games.
+     *
+     * @param other A histogram with the same resolution
+     */
+    public void add(final Histogram other) {
+        if (other.resolution != resolution) {
+            throw new IllegalArgumentException("Can not add histograms with different resolutions.");
+        }
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            final long count = other.counts.get(bucket);
+            if (count != 0) {
+                counts.addAndGet(bucket, count);
+            }
+        }
+        totalUnits.addAndGet(other.totalUnits.get());
+        totalCount.addAndGet(other.totalCount.get());
+    }
+
+    private void subtract(final Histogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            final long count = other.counts.get(bucket);
+            if (count != 0) {
+                counts.addAndGet(bucket, -count);
+            }
+        }
+        totalUnits.addAndGet(-other.totalUnits.get());
+        totalCount.addAndGet(-other.totalCount.get());
+    }
+
+    /**
+     * Forgets all recorded values.
+     * Values recorded by other threads during a reset may be partially forgotten.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        totalUnits.set(0);
+        totalCount.set(0);
+    }
+
+    /**
+     * @return A copy of the values recorded so far
+     */
+    public Histogram copy() {
+        final Histogram output = new Histogram(resolution);
+        output.add(this);
+        return output;
+    }
+
+    /**
+     * @return The values recorded since the last call to this method (or since construction)
+     */
+    public Histogram getIntervalHistogram() {
+        return getIntervalHistogram(new Histogram(resolution));
+    }
+
+    /**
+     * Allocation-free version of {@link #getIntervalHistogram()}.
+     *
+     * @param target A histogram with the same resolution, which is overwritten with the interval's values
+     * @return target
+     */
+    public synchronized Histogram getIntervalHistogram(final Histogram target) {
+        if (intervalStart == null) {
+            intervalStart = new Histogram(resolution);
+        }
+        target.reset();
+        target.add(this);
+        target.subtract(intervalStart);
+        intervalStart.add(target);
+        return target;
+    }
+}
@@ -0,0 +1,87 @@
+package bwapi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event types.
+ * Only {@link JfrEvents} should refer to this class, and only once it has found JFR to be available,
+ * as loading it fails on Java runtimes without JFR.
+ */
+final class JfrEventTypes {
+    private JfrEventTypes() {}
+
+    static boolean isAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+
+    /**
+     * Keeps {@link JfrEvents#isRecording} up to date as recordings start and stop.
+     */
+    static void watchRecordings() {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recordingStateChanged(final Recording recording) {
+                JfrEvents.setRecording(anyRecordingRunning());
+            }
+        });
+        JfrEvents.setRecording(anyRecordingRunning());
+    }
+
+    private static boolean anyRecordingRunning() {
+        // Asking an uninitialized recorder for its recordings would start it up
+        if ( ! FlightRecorder.isInitialized()) {
+            return false;
+        }
+        for (Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+            if (recording.getState() == RecordingState.RUNNING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Name("bwapi.FramePhase")
+    @Label("Frame Phase")
+    @Category({"JBWAPI", "Frames"})
+    @Description("A phase of handling a frame, as timed by JBWAPI's performance metrics")
+    @StackTrace(false)
+    static class FramePhase extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Frame")
+        int frame;
+
+        @Label("Events")
+        int events;
+
+        @Label("Unit Commands")
+        int unitCommands;
+    }
+
+    @Name("bwapi.EventDispatch")
+    @Label("Event Dispatch")
+    @Category({"JBWAPI", "Events"})
+    @Description("A BWAPI event handed to the bot's event listener")
+    @StackTrace(false)
+    static class EventDispatch extends Event {
+        @Label("Event Type")
+        String eventType;
+
+        @Label("Frame")
+        int frame;
+
+        @Label("Value")
+        @Description("The event's first value, eg. the unit ID for unit events")
+        int value;
+    }
+}
@@ -0,0 +1,106 @@
+package bwapi;
+
+/**
+ * Emits JDK Flight Recorder events for the frame lifecycle, when the Java runtime supports JFR
+ * (Java 8u262 and later, or Java 11 and later). Otherwise every method does nothing.
+ *
+ * Events are begun and committed in pairs, with the event passed between them as an opaque handle.
+ * While no recording is running, beginning an event returns null after reading a flag, without allocating.
+ * While one is, the event is allocated and then dropped if the recording does not enable its type.
+ */
+final class JfrEvents {
+    /**
+     * Whether any JFR recording is running, kept up to date by a listener on the flight recorder
+     */
+    private static volatile boolean recording = false;
+
+    static final boolean ENABLED = isAvailable();
+
+    private JfrEvents() {}
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            if ( ! JfrEventTypes.isAvailable()) {
+                return false;
+            }
+            JfrEventTypes.watchRecordings();
+            return true;
+        } catch (Throwable throwable) {
+            return false;
+        }
+    }
+
+    static void setRecording(final boolean recording) {
+        JfrEvents.recording = recording;
+    }
+
+    static boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * @return A handle to pass to {@link #commitPhase}, or null if no event is being recorded
+     */
+    static Object beginPhase() {
+        if ( ! ENABLED || ! recording) {
+            return null;
+        }
+        final JfrEventTypes.FramePhase event = new JfrEventTypes.FramePhase();
+        if ( ! event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param handle The result of {@link #beginPhase}
+     * @param phase The name of the phase
+     * @param gameData The frame the phase handled, or null
+     */
+    static void commitPhase(final Object handle, final String phase, final ClientData.GameData gameData) {
+        final JfrEventTypes.FramePhase event = (JfrEventTypes.FramePhase) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            if (gameData != null) {
+                event.frame = gameData.getFrameCount();
+                event.events = gameData.getEventCount();
+                event.unitCommands = gameData.getUnitCommandCount();
+            } else {
+                event.frame = -1;
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * @return A handle to pass to {@link #commitDispatch}, or null if no event is being recorded
+     */
+    static Object beginDispatch() {
+        if ( ! ENABLED || ! recording) {
+            return null;
+        }
+        final JfrEventTypes.EventDispatch event = new JfrEventTypes.EventDispatch();
+        if ( ! event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param handle The result of {@link #beginDispatch}
+     */
+    static void commitDispatch(final Object handle, final EventType type, final int frame, final int value) {
+        final JfrEventTypes.EventDispatch event = (JfrEventTypes.EventDispatch) handle;
+        event.end();
+        if (event.shouldCommit()) {
+            event.eventType = type == null ? null : type.name();
+            event.frame = frame;
+            event.value = value;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package bwapi;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures memory activity affecting a frame: bytes allocated by a thread, and time the JVM spent paused for garbage collection.
+ *
+ * Allocation is read from HotSpot's per-thread allocation counter, where the JVM provides one.
+ * GC pauses are collected from the JVM's garbage collection notifications into a small ring buffer,
+ * then matched against the frame's time window. Notifications arrive shortly after each collection,
+ * so a pause at the very end of a frame may occasionally be missed.
+ */
+final class MemoryMonitor {
+    private static final int PAUSE_HISTORY = 256;
+
+    private static final com.sun.management.ThreadMXBean threadBean = allocationBean();
+    private static final RuntimeMXBean runtimeBean = ManagementFactory.getRuntimeMXBean();
+
+    private static final long[] pauseStarts = new long[PAUSE_HISTORY];
+    private static final long[] pauseEnds = new long[PAUSE_HISTORY];
+    private static final AtomicLong pausesRecorded = new AtomicLong();
+    private static boolean listening = false;
+
+    private MemoryMonitor() {}
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+                if (allocationBean.isThreadAllocatedMemorySupported()) {
+                    allocationBean.setThreadAllocatedMemoryEnabled(true);
+                    return allocationBean;
+                }
+            }
+        } catch (Throwable ignored) {
+            // Not a HotSpot JVM; allocation can not be measured
+        }
+        return null;
+    }
+
+    /**
+     * Starts collecting GC pauses, if not already started. Collection continues for the life of the JVM.
+     */
+    static synchronized void start() {
+        if (listening) {
+            return;
+        }
+        listening = true;
+        try {
+            final NotificationListener listener = (notification, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    final GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    // Concurrent collectors report their concurrent cycles too, which do not pause the bot
+                    if ( ! info.getGcName().endsWith("Cycles")) {
+                        final GcInfo gcInfo = info.getGcInfo();
+                        recordPause(gcInfo.getStartTime(), gcInfo.getEndTime());
+                    }
+                }
+            };
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+                }
+            }
+        } catch (Throwable ignored) {
+            // Not a HotSpot JVM; GC pauses can not be measured
+        }
+    }
+
+    static void recordPause(final long startMillis, final long endMillis) {
+        synchronized (pauseStarts) {
+            final int slot = (int) (pausesRecorded.get() % PAUSE_HISTORY);
+            pauseStarts[slot] = startMillis;
+            pauseEnds[slot] = endMillis;
+            pausesRecorded.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return Whether {@link #allocatedBytes()} can measure allocation on this JVM
+     */
+    static boolean canMeasureAllocation() {
+        return threadBean != null;
+    }
+
+    /**
+     * @return The total bytes allocated so far by the current thread, or 0 if this can not be measured
+     */
+    static long allocatedBytes() {
+        return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return Milliseconds since the JVM started, on the same clock as GC pause times
+     */
+    static long uptimeMillis() {
+        return runtimeBean.getUptime();
+    }
+
+    /**
+     * @return Milliseconds of GC pauses overlapping a window of time, as measured by {@link #uptimeMillis()}
+     */
+    static long pauseMillisBetween(final long startMillis, final long endMillis) {
+        if (pausesRecorded.get() == 0) {
+            return 0;
+        }
+        long output = 0;
+        synchronized (pauseStarts) {
+            final long recorded = pausesRecorded.get();
+            for (long i = Math.max(0, recorded - PAUSE_HISTORY); i < recorded; i++) {
+                final int slot = (int) (i % PAUSE_HISTORY);
+                output += Math.max(0, Math.min(endMillis, pauseEnds[slot]) - Math.max(startMillis, pauseStarts[slot]));
+            }
+        }
+        return output;
+    }
+}
@@ -22,6 +22,13 @@ public class PerformanceMetric {
             mean = (mean * samples + value) / (samples + 1d);
             ++samples;
         }
+        void clear() {
+            samples = 0;
+            last = 0d;
+            mean = 0d;
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+        }
         public double getSamples() {
             return samples;
         }
@@ -58,15 +65,27 @@ public class PerformanceMetric {
         }
     }
 
+    private final PerformanceMetrics metrics;
     private final String name;
     private long timeStarted = 0;
     private int interrupted = 0;
+    private Object flightEvent = null;
+    private ClientData.GameData frameSource = null;
 
     private final RunningTotal runningTotal = new RunningTotal();
+    private final RunningTotal noSamples = new RunningTotal();
+    private final Histogram histogram = new Histogram(0.001);
     private ArrayList<Threshold> thresholds = new ArrayList<>();
 
+    /**
+     * The number of resets of the metrics whose values have been cleared from this metric
+     */
+    private int resets;
+
     PerformanceMetric(PerformanceMetrics metrics, String name, double... thresholds) {
+        this.metrics = metrics;
         this.name = name;
+        this.resets = metrics.getResets();
         for (double threshold : thresholds) {
             this.thresholds.add(new Threshold(threshold));
         }
@@ -74,11 +93,50 @@ public class PerformanceMetric {
     }
 
     public RunningTotal getRunningTotal() {
-        return runningTotal;
+        return isResetPending() ? noSamples : runningTotal;
+    }
+
+    /**
+     * @return The distribution of recorded values, for percentile queries.
+     * Durations are tracked to the microsecond.
+     */
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Sets the frame whose number and counts are attached to this metric's Flight Recorder events.
+     */
+    void setFrameSource(ClientData.GameData gameData) {
+        frameSource = gameData;
     }
 
     public int getInterrupted() {
-        return interrupted;
+        return isResetPending() ? 0 : interrupted;
+    }
+
+    /**
+     * @return Whether the metrics have been reset since this metric last cleared its values
+     */
+    private boolean isResetPending() {
+        return resets != metrics.getResets();
+    }
+
+    /**
+     * Clears the values recorded before the latest reset, if not done already.
+     * Runs on the thread which records this metric, so never races with recording.
+     * The histogram was already cleared by the reset.
+     */
+    private void applyReset() {
+        final int latest = metrics.getResets();
+        if (resets != latest) {
+            runningTotal.clear();
+            for (int i = 0; i < thresholds.size(); i++) {
+                thresholds.get(i).runningTotal.clear();
+            }
+            interrupted = 0;
+            resets = latest;
+        }
     }
 
     /**
@@ -109,10 +167,14 @@ public class PerformanceMetric {
      * The next call to stopTiming() will record the duration in fractional milliseconds.
      */
     void startTiming() {
+        applyReset();
         if (timeStarted > 0) {
             ++interrupted;
         }
         timeStarted = System.nanoTime();
+        if (JfrEvents.ENABLED) {
+            flightEvent = JfrEvents.beginPhase();
+        }
     }
 
 
@@ -127,14 +189,22 @@ public class PerformanceMetric {
         long timeDiff = timeEnded - timeStarted;
         timeStarted = 0;
         record(timeDiff / 1000000d);
+        if (flightEvent != null) {
+            JfrEvents.commitPhase(flightEvent, name, frameSource);
+            flightEvent = null;
+        }
     }
 
     /**
      * Manually records a specific value.
      */
     void record(double value) {
+        applyReset();
         runningTotal.record(value);
-        thresholds.forEach(threshold -> threshold.record(value));
+        histogram.record(value);
+        for (int i = 0; i < thresholds.size(); i++) {
+            thresholds.get(i).record(value);
+        }
     }
 
     /**
@@ -142,7 +212,7 @@ public class PerformanceMetric {
      */
     @Override
     public String toString() {
-        if (runningTotal.samples <= 0) {
+        if (isResetPending() || runningTotal.samples <= 0) {
             return name + ": No samples.";
         }
         DecimalFormat formatter = new DecimalFormat("###,###.#");
@@ -155,7 +225,13 @@ public class PerformanceMetric {
                     + formatter.format(runningTotal.min)
                     + " - "
                     + formatter.format(runningTotal.max)
-                    + "]";
+                    + "]"
+                + "\np50 "
+                    + formatter.format(histogram.getValueAtPercentile(50))
+                    + ", p99 "
+                    + formatter.format(histogram.getValueAtPercentile(99))
+                    + ", p99.9 "
+                    + formatter.format(histogram.getValueAtPercentile(99.9));
         for (Threshold threshold : thresholds) {
             output += threshold.toString();
         }
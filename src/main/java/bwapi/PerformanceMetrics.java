@@ -1,6 +1,9 @@
 package bwapi;
 
-import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Collects various performance metrics.
@@ -74,6 +77,15 @@ public class PerformanceMetrics {
     }
     private PerformanceMetric framesBehind;
 
+    /**
+     * Number of buffered frames the bot skipped to reach the newest frame, each time it took a frame from the buffer.
+     * Applicable only in asynchronous mode with asyncSkipToLatestFrame.
+     */
+    public PerformanceMetric getFramesSkipped() {
+        return framesSkipped;
+    }
+    private PerformanceMetric framesSkipped;
+
     /**
      * Time spent applying bot commands to the live frame.
      */
@@ -82,6 +94,66 @@ public class PerformanceMetrics {
     }
     private PerformanceMetric flushSideEffects;
 
+    /**
+     * Number of unit commands dropped each frame for repeating the unit's last command.
+     * Applicable only with commandRepeatWindowFrames.
+     */
+    public PerformanceMetric getUnitCommandsDropped() {
+        return unitCommandsDropped;
+    }
+    private PerformanceMetric unitCommandsDropped;
+
+    /**
+     * Duration of the bot's handler for each event of a type.
+     * Tracked only if enabled with {@link BWClientConfiguration.Builder#withEventTypeMetrics}; otherwise null.
+     */
+    public PerformanceMetric getEventTypeDuration(EventType type) {
+        return eventTypeDurations == null ? null : eventTypeDurations[type.id];
+    }
+    private PerformanceMetric[] eventTypeDurations;
+
+    /**
+     * Number of events of a type handled by the bot each frame.
+     * Tracked only if enabled with {@link BWClientConfiguration.Builder#withEventTypeMetrics}; otherwise null.
+     */
+    public PerformanceMetric getEventTypeCount(EventType type) {
+        return eventTypeCounts == null ? null : eventTypeCounts[type.id];
+    }
+    private PerformanceMetric[] eventTypeCounts;
+    private int[] eventTypeCountsThisFrame;
+
+    /**
+     * Time spent running a {@link TaskScheduler} task, per frame it runs.
+     *
+     * @param name The name the task was added to the scheduler with
+     * @return The task's metric, or null if the task has not run yet this game. A task's metric is kept when the metrics are reset.
+     */
+    public PerformanceMetric getTaskDuration(String name) {
+        return taskDurations.get(name);
+    }
+    /**
+     * Read from any thread, while the bot thread adds tasks as they first run
+     */
+    private final Map<String, PerformanceMetric> taskDurations = new ConcurrentHashMap<>();
+
+    /**
+     * Kilobytes allocated by the thread running the bot's event handlers, per frame.
+     * Tracked only if enabled with {@link BWClientConfiguration.Builder#withMemoryMetrics}.
+     */
+    public PerformanceMetric getBotAllocation() {
+        return botAllocation;
+    }
+    private PerformanceMetric botAllocation;
+
+    /**
+     * Milliseconds of garbage collection pauses while the bot's event handlers ran, per frame.
+     * Tracked only if enabled with {@link BWClientConfiguration.Builder#withMemoryMetrics}.
+     */
+    public PerformanceMetric getGcPauses() {
+        return gcPauses;
+    }
+    private PerformanceMetric gcPauses;
+
     /**
      * Time spent waiting for bot event handlers to complete for a single frame.
      */
@@ -169,18 +241,17 @@ public class PerformanceMetrics {
     PerformanceMetric numberOfEventsTimesDurationReceiveToSent;
 
     private BWClientConfiguration configuration;
-    private ArrayList<PerformanceMetric> performanceMetrics = new ArrayList<>();
-
-    PerformanceMetrics(BWClientConfiguration configuration) {
-        this.configuration = configuration;
-        reset();
-    }
+    private final List<PerformanceMetric> performanceMetrics = new CopyOnWriteArrayList<>();
+    private ClientData.GameData liveFrame;
+    private ClientData.GameData botFrame;
 
     /**
-     * Clears all tracked data and starts counting from a blank slate.
+     * How many times the metrics have been reset
      */
-    public void reset() {
-        performanceMetrics.clear();
+    private volatile int resets = 0;
+
+    PerformanceMetrics(BWClientConfiguration configuration) {
+        this.configuration = configuration;
         frameDurationReceiveToSend = new PerformanceMetric(this, "Frame duration: After receiving 'frame ready' -> before sending 'frame done'", 5, 10, 15, 20, 25, 30, 35, 40, 45, 50, 55, 85);
         frameDurationReceiveToSent = new PerformanceMetric(this, "Frame duration: After receiving 'frame ready' -> after sending 'frame done'", 5, 10, 15, 20, 25, 30, 35, 40, 45, 50, 55, 85);
         frameDurationReceiveToReceive = new PerformanceMetric(this, "Frame duration: After receiving 'frame ready' -> receiving next 'frame ready'", 5, 10, 15, 20, 25, 30, 35, 40, 45, 50, 55, 85);
@@ -191,13 +262,105 @@ public class PerformanceMetrics {
         intentionallyBlocking = new PerformanceMetric(this, "Time holding frame until buffer frees capacity", 0);
         frameBufferSize = new PerformanceMetric(this, "Frames already buffered when enqueuing a new frame", 0, 1);
         framesBehind = new PerformanceMetric(this, "Frames behind real-time when handling events", 0, 1);
+        framesSkipped = new PerformanceMetric(this, "Stale frames skipped to reach the newest frame", 0, 1);
         flushSideEffects = new PerformanceMetric(this, "Time flushing side effects", 1, 3, 5);
+        unitCommandsDropped = new PerformanceMetric(this, "Unit commands dropped as repeats", 1, 10, 100);
         botResponse = new PerformanceMetric(this, "Duration of bot event handlers", 5, 10, 15, 20, 25, 30, 35, 40, 45, 50, 55, 85);
+        botAllocation = new PerformanceMetric(this, "Kilobytes allocated by bot event handlers", 100, 1000, 10000, 100000);
+        gcPauses = new PerformanceMetric(this, "Garbage collection pauses during bot event handlers", 1, 10, 55, 85);
         botIdle = new PerformanceMetric(this, "Time bot spent idle", Long.MAX_VALUE);
         clientIdle = new PerformanceMetric(this, "Time client spent waiting for bot", configuration.getMaxFrameDurationMs());
         excessSleep = new PerformanceMetric(this, "Excess duration of client sleep", 1, 5, 10, 15, 20, 25, 30, 35, 40, 45, 50, 55, 85);
         numberOfEvents = new PerformanceMetric(this, "Number of events received from BWAPI", 1, 2, 3, 4, 5, 6, 8, 10, 15, 20);
         numberOfEventsTimesDurationReceiveToSent = new PerformanceMetric(this, "Number of events received from BWAPI, multiplied by the receive-to-sent duration of that frame", 5, 10, 15, 20, 25, 30, 35, 40, 45, 50, 55, 85);
+        if (configuration.getEventTypeMetrics()) {
+            final EventType[] types = EventType.values();
+            eventTypeDurations = new PerformanceMetric[types.length];
+            eventTypeCounts = new PerformanceMetric[types.length];
+            eventTypeCountsThisFrame = new int[types.length];
+            for (EventType type : types) {
+                eventTypeDurations[type.id] = new PerformanceMetric(this, "Duration of bot handler for " + type + " event", 1, 5, 10, 20, 55);
+                eventTypeCounts[type.id] = new PerformanceMetric(this, "Number of " + type + " events per frame", 1, 10, 100);
+            }
+        } else {
+            eventTypeDurations = null;
+            eventTypeCounts = null;
+            eventTypeCountsThisFrame = null;
+        }
+        applyFrameSources();
+    }
+
+    /**
+     * Clears all tracked data and starts counting from a blank slate.
+     *
+     * May be called from any thread, eg. over JMX while the game runs. Metrics read as empty from then on;
+     * the thread which records each metric clears its old values just before it next records, so never races with the reset.
+     */
+    public synchronized void reset() {
+        // Histograms are safe to clear while other threads record to them
+        for (PerformanceMetric metric : performanceMetrics) {
+            metric.getHistogram().reset();
+        }
+        ++resets;
+    }
+
+    int getResets() {
+        return resets;
+    }
+
+    /**
+     * Records the bot handling one event, if event type metrics are enabled.
+     *
+     * @param type The type of the event
+     * @param nanos How long the bot's handler took
+     */
+    void recordEventHandled(EventType type, long nanos) {
+        if (type == null) {
+            return;
+        }
+        eventTypeDurations[type.id].record(nanos / 1000000d);
+        ++eventTypeCountsThisFrame[type.id];
+    }
+
+    /**
+     * Records how many events of each type the bot handled this frame, if event type metrics are enabled.
+     */
+    void recordEventTypeCounts() {
+        for (int i = 0; i < eventTypeCounts.length; i++) {
+            eventTypeCounts[i].record(eventTypeCountsThisFrame[i]);
+            eventTypeCountsThisFrame[i] = 0;
+        }
+    }
+
+    /**
+     * @return The metric for a scheduler task, created if this is the first time it has run
+     */
+    PerformanceMetric taskDuration(String name) {
+        PerformanceMetric metric = taskDurations.get(name);
+        if (metric == null) {
+            metric = new PerformanceMetric(this, "Duration of task " + name, 1, 5, 10, 20, 55);
+            metric.setFrameSource(botFrame);
+            taskDurations.put(name, metric);
+        }
+        return metric;
+    }
+
+    /**
+     * Sets the frames whose numbers and counts are attached to Flight Recorder events:
+     * the live frame for metrics measured by the client, and the bot's frame for metrics measured by the bot.
+     */
+    void setFrameSources(ClientData.GameData liveFrame, ClientData.GameData botFrame) {
+        this.liveFrame = liveFrame;
+        this.botFrame = botFrame;
+        applyFrameSources();
+    }
+
+    private void applyFrameSources() {
+        for (PerformanceMetric metric : performanceMetrics) {
+            metric.setFrameSource(liveFrame);
+        }
+        botResponse.setFrameSource(botFrame);
+        botIdle.setFrameSource(botFrame);
     }
 
     void addMetric(PerformanceMetric performanceMetric) {
@@ -2,9 +2,11 @@ package bwapi;
 
 import bwapi.ClientData.PlayerData;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 import static bwapi.UnitType.*;
 import static bwapi.UpgradeType.*;
@@ -27,6 +29,7 @@ public class Player implements Comparable<Player> {
     private final TilePosition startLocation;
     private final Color color;
     private PlayerSelf self = null;
+    private final UnitFilter isOwned = u -> equals(u.getPlayer());
     PlayerSelf self() {
         if (self == null) {
             self = new PlayerSelf();
@@ -71,9 +74,29 @@ public class Player implements Comparable<Player> {
      * This does not include units that are loaded into transports, @Bunkers, @Refineries, @Assimilators, or @Extractors.
      */
     public List<Unit> getUnits() {
-        return game.getAllUnits().stream()
-                .filter(u -> equals(u.getPlayer()))
-                .collect(Collectors.toList());
+        final List<Unit> units = new ArrayList<>();
+        getUnits(units);
+        return units;
+    }
+
+    /**
+     * Adds all units that the player owns to a collection, eg. one reused every frame.
+     *
+     * @param output The collection to add units to
+     * @see #getUnits()
+     */
+    public void getUnits(final Collection<? super Unit> output) {
+        Visits.visitAll(game.getAllUnits(), isOwned, output, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Performs an action for each unit that the player owns.
+     *
+     * @param action The action to perform
+     * @see #getUnits()
+     */
+    public void forEachUnit(final Consumer<? super Unit> action) {
+        Visits.visitAll(game.getAllUnits(), isOwned, null, action, Integer.MAX_VALUE);
     }
 
     /**
@@ -1,22 +1,120 @@
 package bwapi;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Queue of intended bot interactions with the game, to be flushed as JBWAPI returns control to StarCraft after a frame.
+ *
+ * Side effects are recorded as plain ints in a pair of batches, so enqueuing one doesn't allocate.
+ * The bot appends to one batch while the main thread flushes the other; flushing swaps the two.
+ * Appending only contends with other appending threads and with the swap itself, which takes a few nanoseconds.
  */
 class SideEffectQueue {
+    private static final int UNIT_COMMAND_INTS = 6;
+    private static final int COMMAND_INTS = 4;
+    private static final int SHAPE_INTS = 11;
+    private static final int NO_STRING = -1;
 
-    private ArrayList<SideEffect> queue = new ArrayList<>();
+    private final Batch[] batches = { new Batch(), new Batch() };
+    private volatile Batch appending = batches[0];
 
     /**
-     * Includes a side effect to be sent back to BWAPI in the future.
-     *
-     * @param sideEffect
-     * A side effect to be applied to the game state the next time the queue is flushed.
+     * Includes a unit command to be sent back to BWAPI in the future.
+     */
+    void addUnitCommand(final int type, final int unit, final int target, final int x, final int y, final int extra) {
+        final Batch batch = acquire();
+        try {
+            final int i = batch.reserveUnitCommand();
+            final int[] ints = batch.unitCommands;
+            ints[i] = type;
+            ints[i + 1] = unit;
+            ints[i + 2] = target;
+            ints[i + 3] = x;
+            ints[i + 4] = y;
+            ints[i + 5] = extra;
+        } finally {
+            batch.writing.set(false);
+        }
+    }
+
+    /**
+     * Includes a game command to be sent back to BWAPI in the future.
+     */
+    void addCommand(final CommandType type, final int value1, final int value2) {
+        addCommand(type, value1, null, value2);
+    }
+
+    /**
+     * Includes a game command with text to be sent back to BWAPI in the future.
+     */
+    void addCommand(final CommandType type, final String text, final int value2) {
+        addCommand(type, 0, text, value2);
+    }
+
+    private void addCommand(final CommandType type, final int value1, final String text, final int value2) {
+        final Batch batch = acquire();
+        try {
+            final int i = batch.reserveCommand();
+            final int[] ints = batch.commands;
+            ints[i] = type.id;
+            ints[i + 1] = value1;
+            ints[i + 2] = value2;
+            ints[i + 3] = text == null ? NO_STRING : batch.intern(text);
+        } finally {
+            batch.writing.set(false);
+        }
+    }
+
+    /**
+     * Includes a shape to be drawn in the future.
      */
-    synchronized void enqueue(SideEffect sideEffect) {
-        queue.add(sideEffect);
+    void addShape(final ShapeType type, final CoordinateType coordType, final int x1, final int y1, final int x2, final int y2, final int extra1, final int extra2, final int color, final boolean isSolid) {
+        addShape(type, coordType, x1, y1, x2, y2, extra1, null, extra2, color, isSolid);
+    }
+
+    /**
+     * Includes a text shape to be drawn in the future.
+     */
+    void addShape(final ShapeType type, final CoordinateType coordType, final int x1, final int y1, final int x2, final int y2, final String text, final int extra2, final int color, final boolean isSolid) {
+        addShape(type, coordType, x1, y1, x2, y2, 0, text, extra2, color, isSolid);
+    }
+
+    private void addShape(final ShapeType type, final CoordinateType coordType, final int x1, final int y1, final int x2, final int y2, final int extra1, final String text, final int extra2, final int color, final boolean isSolid) {
+        final Batch batch = acquire();
+        try {
+            final int i = batch.reserveShape();
+            final int[] ints = batch.shapes;
+            ints[i] = type.id;
+            ints[i + 1] = coordType.id;
+            ints[i + 2] = x1;
+            ints[i + 3] = y1;
+            ints[i + 4] = x2;
+            ints[i + 5] = y2;
+            ints[i + 6] = extra1;
+            ints[i + 7] = extra2;
+            ints[i + 8] = color;
+            ints[i + 9] = isSolid ? 1 : 0;
+            ints[i + 10] = text == null ? NO_STRING : batch.intern(text);
+        } finally {
+            batch.writing.set(false);
+        }
+    }
+
+    /**
+     * @return The batch currently accepting side effects, which the caller has exclusive access to until it clears Batch.writing.
+     */
+    private Batch acquire() {
+        while (true) {
+            final Batch batch = appending;
+            if (batch.writing.compareAndSet(false, true)) {
+                // The batches may have been swapped while we were acquiring this one
+                if (batch == appending) {
+                    return batch;
+                }
+                batch.writing.set(false);
+            }
+        }
     }
 
     /**
@@ -26,7 +124,157 @@ class SideEffectQueue {
      * The live game frame's data, using the BWAPI shared memory.
      */
     synchronized void flushTo(ClientData.GameData liveGameData) {
-        queue.forEach(x -> x.apply(liveGameData));
-        queue.clear();
+        final Batch batch = appending;
+        appending = batch == batches[0] ? batches[1] : batches[0];
+        // Wait for any append which acquired the batch before the swap
+        while (batch.writing.get()) {
+            Thread.yield();
+        }
+        try {
+            batch.flushTo(liveGameData);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Side effects stored as struct-of-arrays, with the text of commands and shapes interned into a string table.
+     */
+    private static class Batch {
+        final AtomicBoolean writing = new AtomicBoolean();
+        int[] unitCommands = new int[UNIT_COMMAND_INTS * 64];
+        int unitCommandCount = 0;
+        int[] commands = new int[COMMAND_INTS * 16];
+        int commandCount = 0;
+        int[] shapes = new int[SHAPE_INTS * 256];
+        int shapeCount = 0;
+        String[] strings = new String[16];
+        int stringCount = 0;
+        /**
+         * Open-addressing hash table over strings: each slot holds the index of a string plus one, or 0 if empty.
+         * Kept at most half full, and reused from batch to batch.
+         */
+        int[] stringSlots = new int[32];
+        /**
+         * The slot holding each string, so clearing the table only touches the slots in use
+         */
+        int[] slotOfString = new int[16];
+        int[] gameDataStringIndices = new int[16];
+
+        int reserveUnitCommand() {
+            final int i = UNIT_COMMAND_INTS * unitCommandCount++;
+            if (i + UNIT_COMMAND_INTS > unitCommands.length) {
+                unitCommands = Arrays.copyOf(unitCommands, 2 * unitCommands.length);
+            }
+            return i;
+        }
+
+        int reserveCommand() {
+            final int i = COMMAND_INTS * commandCount++;
+            if (i + COMMAND_INTS > commands.length) {
+                commands = Arrays.copyOf(commands, 2 * commands.length);
+            }
+            return i;
+        }
+
+        int reserveShape() {
+            final int i = SHAPE_INTS * shapeCount++;
+            if (i + SHAPE_INTS > shapes.length) {
+                shapes = Arrays.copyOf(shapes, 2 * shapes.length);
+            }
+            return i;
+        }
+
+        /**
+         * @return The index of the string in this batch's string table, adding it if this batch hasn't seen it yet
+         */
+        int intern(final String string) {
+            final int mask = stringSlots.length - 1;
+            int slot = slotFor(string, mask);
+            while (stringSlots[slot] != 0) {
+                final int index = stringSlots[slot] - 1;
+                if (strings[index].equals(string)) {
+                    return index;
+                }
+                slot = (slot + 1) & mask;
+            }
+            final int index = stringCount++;
+            if (index == strings.length) {
+                strings = Arrays.copyOf(strings, 2 * index);
+                slotOfString = Arrays.copyOf(slotOfString, 2 * index);
+            }
+            strings[index] = string;
+            stringSlots[slot] = index + 1;
+            slotOfString[index] = slot;
+            if (2 * stringCount > stringSlots.length) {
+                growStringSlots();
+            }
+            return index;
+        }
+
+        private static int slotFor(final String string, final int mask) {
+            final int hash = string.hashCode();
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+
+        private void growStringSlots() {
+            stringSlots = new int[2 * stringSlots.length];
+            final int mask = stringSlots.length - 1;
+            for (int index = 0; index < stringCount; index++) {
+                int slot = slotFor(strings[index], mask);
+                while (stringSlots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                stringSlots[slot] = index + 1;
+                slotOfString[index] = slot;
+            }
+        }
+
+        /**
+         * @return The index of an interned string in GameData, adding it to GameData the first time it is used
+         */
+        private int gameDataString(final ClientData.GameData gameData, final int index) {
+            if (gameDataStringIndices[index] == NO_STRING) {
+                gameDataStringIndices[index] = GameDataUtils.addString(gameData, strings[index]);
+            }
+            return gameDataStringIndices[index];
+        }
+
+        void flushTo(final ClientData.GameData gameData) {
+            if (gameDataStringIndices.length < stringCount) {
+                gameDataStringIndices = new int[Math.max(stringCount, 2 * gameDataStringIndices.length)];
+            }
+            Arrays.fill(gameDataStringIndices, 0, stringCount, NO_STRING);
+
+            for (int c = 0; c < unitCommandCount; c++) {
+                final int i = UNIT_COMMAND_INTS * c;
+                SideEffect.addUnitCommand(gameData,
+                    unitCommands[i], unitCommands[i + 1], unitCommands[i + 2], unitCommands[i + 3], unitCommands[i + 4], unitCommands[i + 5]);
+            }
+            for (int c = 0; c < commandCount; c++) {
+                final int i = COMMAND_INTS * c;
+                final int value1 = commands[i + 3] == NO_STRING ? commands[i + 1] : gameDataString(gameData, commands[i + 3]);
+                SideEffect.addCommand(gameData, CommandType.idToEnum[commands[i]], value1, commands[i + 2]);
+            }
+            for (int s = 0; s < shapeCount; s++) {
+                final int i = SHAPE_INTS * s;
+                final int extra1 = shapes[i + 10] == NO_STRING ? shapes[i + 6] : gameDataString(gameData, shapes[i + 10]);
+                SideEffect.addShape(gameData,
+                    ShapeType.idToEnum[shapes[i]], CoordinateType.idToEnum[shapes[i + 1]],
+                    shapes[i + 2], shapes[i + 3], shapes[i + 4], shapes[i + 5],
+                    extra1, shapes[i + 7], shapes[i + 8], shapes[i + 9] != 0);
+            }
+        }
+
+        void clear() {
+            unitCommandCount = 0;
+            commandCount = 0;
+            shapeCount = 0;
+            for (int index = 0; index < stringCount; index++) {
+                stringSlots[slotOfString[index]] = 0;
+            }
+            Arrays.fill(strings, 0, stringCount, null);
+            stringCount = 0;
+        }
     }
 }
@@ -0,0 +1,143 @@
+package bwapi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Spreads long-running work (eg. map analysis, build planning, search) across frames, using whatever time is left in each frame.
+ *
+ * Work is split into {@link Task}s, each done a small step at a time. Call {@link #run} once per frame, typically at the end of onFrame:
+ * it steps the tasks in turn while the frame has time left (see {@link Game#getRemainingFrameTimeMs}), and picks up where it left off next frame.
+ * Each task's time per frame is recorded to {@link PerformanceMetrics#getTaskDuration}.
+ *
+ * Tasks run on the thread which calls {@link #run}. A scheduler is not safe to use from multiple threads.
+ */
+public class TaskScheduler {
+    /**
+     * Work done a step at a time. Each step should be short compared to a frame (well under a millisecond is ideal),
+     * as a step which starts with time left in the frame runs to completion even if it overruns the frame.
+     */
+    @FunctionalInterface
+    public interface Task {
+        /**
+         * Does the next step of the task.
+         *
+         * @return Whether the task has more steps to do. Once a task returns false it is removed from the scheduler.
+         */
+        boolean step();
+    }
+
+    private static class Entry {
+        final String name;
+        final Task task;
+        long nanosThisFrame;
+
+        Entry(String name, Task task) {
+            this.name = name;
+            this.task = task;
+        }
+    }
+
+    private final BWClient bwClient;
+    private final LongSupplier nanoTime;
+    private final List<Entry> entries = new ArrayList<>();
+    private int next = 0;
+
+    /**
+     * @param bwClient The client whose frame budget and performance metrics to use
+     */
+    public TaskScheduler(BWClient bwClient) {
+        this(bwClient, System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime The clock frame deadlines are on, in place of System.nanoTime()
+     */
+    TaskScheduler(BWClient bwClient, LongSupplier nanoTime) {
+        this.bwClient = bwClient;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Adds a task, to be stepped until it reports it is done.
+     *
+     * @param name The name under which to report the task's time in performance metrics
+     * @param task The task
+     */
+    public void add(String name, Task task) {
+        entries.add(new Entry(name, task));
+    }
+
+    /**
+     * @return The number of tasks with steps left to do
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all tasks.
+     */
+    public void clear() {
+        entries.clear();
+        next = 0;
+    }
+
+    /**
+     * Steps tasks in turn while the current frame has more than a reserve of time left,
+     * starting after the last task stepped by the previous call.
+     * On a frame with no time limit (see {@link Game#getFrameDeadlineNanos}), steps tasks for up to the max frame duration,
+     * so tasks which never finish still let the frame end.
+     *
+     * @param reserveMs Time to leave unused at the end of the frame, eg. for sending commands
+     * @return The number of steps run
+     */
+    public int run(double reserveMs) {
+        final Game game = bwClient.getGame();
+        if (game == null || entries.isEmpty()) {
+            return 0;
+        }
+        long now = nanoTime.getAsLong();
+        final long deadlineNanos = game.getFrameDeadlineNanos() == Long.MAX_VALUE
+            ? now + bwClient.getConfiguration().getMaxFrameDurationMs() * 1000000L
+            : game.getFrameDeadlineNanos();
+        final long stopNanos = deadlineNanos - (long) (reserveMs * 1000000);
+        int steps = 0;
+        while ( ! entries.isEmpty() && stopNanos - now > 0) {
+            if (next >= entries.size()) {
+                next = 0;
+            }
+            final Entry entry = entries.get(next);
+            final boolean more;
+            try {
+                more = entry.task.step();
+            } finally {
+                final long end = nanoTime.getAsLong();
+                entry.nanosThisFrame += end - now;
+                now = end;
+                ++steps;
+            }
+            if (more) {
+                ++next;
+            } else {
+                record(entry);
+                entries.remove(next);
+            }
+        }
+        for (Entry entry : entries) {
+            record(entry);
+        }
+        return steps;
+    }
+
+    private void record(Entry entry) {
+        if (entry.nanosThisFrame > 0) {
+            final PerformanceMetrics metrics = bwClient.getPerformanceMetrics();
+            if (metrics != null) {
+                metrics.taskDuration(entry.name).record(entry.nanosThisFrame / 1000000d);
+            }
+            entry.nanosThisFrame = 0;
+        }
+    }
+}
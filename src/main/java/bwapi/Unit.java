@@ -4,6 +4,7 @@ package bwapi;
 import bwapi.ClientData.UnitData;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -1265,12 +1266,60 @@ public class Unit implements Comparable<Unit> {
         if (!exists()) {
             return Collections.emptyList();
         }
-        return game.getUnitsInRectangle(
+        final List<Unit> output = new ArrayList<>();
+        visitUnitsInRadius(radius, pred, output, null, Integer.MAX_VALUE);
+        return game.inListOrder(output);
+    }
+
+    /**
+     * Adds the units in a given radius of the current unit to a collection, eg. one reused every frame,
+     * in no particular order.
+     *
+     * @param output The collection to add units to
+     * @see #getUnitsInRadius(int, UnitFilter)
+     */
+    public void getUnitsInRadius(final int radius, final UnitFilter pred, final Collection<? super Unit> output) {
+        visitUnitsInRadius(radius, pred, output, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Performs an action for each unit in a given radius of the current unit, in no particular order.
+     *
+     * @param action The action to perform
+     * @see #getUnitsInRadius(int, UnitFilter)
+     */
+    public void forEachUnitInRadius(final int radius, final UnitFilter pred, final Consumer<? super Unit> action) {
+        visitUnitsInRadius(radius, pred, null, action, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Whether any unit matching the predicate is in a given radius of the current unit
+     * @see #getUnitsInRadius(int, UnitFilter)
+     */
+    public boolean hasUnitInRadius(final int radius, final UnitFilter pred) {
+        return visitUnitsInRadius(radius, pred, null, null, 1) > 0;
+    }
+
+    /**
+     * @return The number of units matching the predicate in a given radius of the current unit
+     * @see #getUnitsInRadius(int, UnitFilter)
+     */
+    public int countUnitsInRadius(final int radius, final UnitFilter pred) {
+        return visitUnitsInRadius(radius, pred, null, null, Integer.MAX_VALUE);
+    }
+
+    private int visitUnitsInRadius(final int radius, final UnitFilter pred,
+                                   final Collection<? super Unit> output, final Consumer<? super Unit> action, final int limit) {
+        if (!exists()) {
+            return 0;
+        }
+        return game.visitUnitsInRectangle(
                 getLeft() - radius,
                 getTop() - radius,
                 getRight() + radius,
                 getBottom() + radius,
-                u -> getDistance(u) <= radius && pred.test(u));
+                u -> getDistance(u) <= radius && pred.test(u),
+                output, action, limit);
     }
 
     public List<Unit> getUnitsInWeaponRange(final WeaponType weapon) {
@@ -1292,10 +1341,58 @@ public class Unit implements Comparable<Unit> {
         if (!exists()) {
             return Collections.emptyList();
         }
+        final List<Unit> output = new ArrayList<>();
+        visitUnitsInWeaponRange(weapon, pred, output, null, Integer.MAX_VALUE);
+        return game.inListOrder(output);
+    }
+
+    /**
+     * Adds the units within weapon range of this unit to a collection, eg. one reused every frame,
+     * in no particular order.
+     *
+     * @param output The collection to add units to
+     * @see #getUnitsInWeaponRange(WeaponType, UnitFilter)
+     */
+    public void getUnitsInWeaponRange(final WeaponType weapon, final UnitFilter pred, final Collection<? super Unit> output) {
+        visitUnitsInWeaponRange(weapon, pred, output, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Performs an action for each unit within weapon range of this unit, in no particular order.
+     *
+     * @param action The action to perform
+     * @see #getUnitsInWeaponRange(WeaponType, UnitFilter)
+     */
+    public void forEachUnitInWeaponRange(final WeaponType weapon, final UnitFilter pred, final Consumer<? super Unit> action) {
+        visitUnitsInWeaponRange(weapon, pred, null, action, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Whether any unit matching the predicate is within weapon range of this unit
+     * @see #getUnitsInWeaponRange(WeaponType, UnitFilter)
+     */
+    public boolean hasUnitInWeaponRange(final WeaponType weapon, final UnitFilter pred) {
+        return visitUnitsInWeaponRange(weapon, pred, null, null, 1) > 0;
+    }
+
+    /**
+     * @return The number of units matching the predicate within weapon range of this unit
+     * @see #getUnitsInWeaponRange(WeaponType, UnitFilter)
+     */
+    public int countUnitsInWeaponRange(final WeaponType weapon, final UnitFilter pred) {
+        return visitUnitsInWeaponRange(weapon, pred, null, null, Integer.MAX_VALUE);
+    }
+
+    private int visitUnitsInWeaponRange(final WeaponType weapon, final UnitFilter pred,
+                                        final Collection<? super Unit> output, final Consumer<? super Unit> action, final int limit) {
+        // Return if this unit does not exist
+        if (!exists()) {
+            return 0;
+        }
 
         final int max = getPlayer().weaponMaxRange(weapon);
 
-        return game.getUnitsInRectangle(
+        return game.visitUnitsInRectangle(
                 getLeft() - max,
                 getTop() - max,
                 getRight() + max,
@@ -1325,7 +1422,8 @@ public class Unit implements Comparable<Unit> {
                             (!weapon.targetsNonBuilding() || ut.isBuilding()) &&
                             (!weapon.targetsNonRobotic() || ut.isRobotic()) &&
                             (!weapon.targetsOrgOrMech() || (!ut.isOrganic() && !ut.isMechanical()));
-                });
+                },
+                output, action, limit);
     }
 
     /**
@@ -2124,6 +2222,11 @@ public class Unit implements Comparable<Unit> {
             }
         }
 
+        // The unit is already carrying out this order
+        if (game.commandOptimizer.dropRepeat(lastCommand, lastCommandFrame, command, game.getFrameCount())) {
+            return true;
+        }
+
         if (game.isLatComEnabled()) {
             new CommandTemp(command, game).execute();
         }
@@ -6345,7 +6448,7 @@ public class Unit implements Comparable<Unit> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return id;
     }
 
     public int compareTo(final Unit other) {
@@ -6355,7 +6458,12 @@ public class Unit implements Comparable<Unit> {
     void updatePosition(final int frame) {
         if (frame > lastPositionUpdate) {
             lastPositionUpdate = frame;
-            position = new Position(unitData.getPositionX(), unitData.getPositionY());
+            final int x = unitData.getPositionX();
+            final int y = unitData.getPositionY();
+            // Most units stand still, so keep the same position object until the unit moves
+            if (position == null || position.x != x || position.y != y) {
+                position = new Position(x, y);
+            }
         }
     }
 }
@@ -0,0 +1,124 @@
+package bwapi;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Finds the units in an area using BWAPI's unit finder: two lists which BWAPI maintains each frame in the game data,
+ * holding the left and right edges of every accessible unit sorted by x, and their top and bottom edges sorted by y.
+ *
+ * A unit overlaps a rectangle only if its right and bottom edges lie within the rectangle extended by the size of the largest unit,
+ * so a query binary searches each list for that range, and walks whichever range is shorter.
+ * Unlike {@link UnitGrid} this needs no preparation each frame, but it only works where the unit finder is up to date:
+ * the live game data, and frame buffers which copy it (see {@link BWClientConfiguration.Builder#withAsyncCopyUnitFinder}),
+ * and only once the units' positions have been refreshed for the frame it describes.
+ */
+class UnitFinder {
+    /**
+     * The largest distance between a unit's left and right edges, and between its top and bottom edges
+     */
+    static final int MAX_WIDTH;
+    static final int MAX_HEIGHT;
+
+    static {
+        int width = 0;
+        int height = 0;
+        for (UnitType type : UnitType.values()) {
+            width = Math.max(width, type.dimensionLeft() + type.dimensionRight());
+            height = Math.max(height, type.dimensionUp() + type.dimensionDown());
+        }
+        MAX_WIDTH = width;
+        MAX_HEIGHT = height;
+    }
+
+    private final ClientData clientData;
+    private final Game game;
+
+    /**
+     * @param clientData The game data to search, whichever frame it currently holds
+     * @param game The game whose units to return
+     */
+    UnitFinder(ClientData clientData, Game game) {
+        this.clientData = clientData;
+        this.game = game;
+    }
+
+    /**
+     * Visits the units whose bounding boxes overlap a rectangle, with the same semantics as {@link Game#getUnitsInRectangle},
+     * in no particular order. Allocates nothing.
+     *
+     * @param filter The units to visit
+     * @param output If not null, receives each unit visited
+     * @param action If not null, is invoked for each unit visited
+     * @param limit The most units to visit
+     * @return The number of units visited
+     */
+    int visit(int left, int top, int right, int bottom, UnitFilter filter, Collection<? super Unit> output, Consumer<? super Unit> action, int limit) {
+        final ClientData.GameData data = clientData.gameData();
+        final int entries = Math.max(0, Math.min(FrameBuffer.UNITFINDER_ENTRIES, data.getUnitSearchSize()));
+        final int xFirst = lowerBound(data, true, entries, left);
+        final int xEnd = lowerBound(data, true, entries, (long) right + MAX_WIDTH + 1);
+        final int yFirst = lowerBound(data, false, entries, top);
+        final int yEnd = lowerBound(data, false, entries, (long) bottom + MAX_HEIGHT + 1);
+
+        // Walk whichever list has fewer entries in range
+        final boolean x = xEnd - xFirst <= yEnd - yFirst;
+        final int first = x ? xFirst : yFirst;
+        final int end = x ? xEnd : yEnd;
+        int visited = 0;
+        for (int i = first; i < end && visited < limit; i++) {
+            final ClientData.unitFinder entry = x ? data.getXUnitSearch(i) : data.getYUnitSearch(i);
+            final Unit u = game.getUnit(entry.getUnitIndex());
+            // The lists may name units the bot cannot access, eg. ones hidden by events it has already handled
+            if (u == null || ! game.getAllUnits().contains(u)) {
+                continue;
+            }
+            // Each unit is listed at both of its edges; visit it at its right (or bottom) edge,
+            // which is in range whenever the unit overlaps the rectangle
+            final int edge = x ? u.getRight() : u.getBottom();
+            final int oppositeEdge = x ? u.getLeft() : u.getTop();
+            if (entry.getSearchValue() != edge || (edge == oppositeEdge && isRepeated(data, x, first, i))) {
+                continue;
+            }
+            if (left <= u.getRight() && top <= u.getBottom() && right >= u.getLeft() && bottom >= u.getTop()) {
+                visited += Visits.visit(u, filter, output, action);
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * @return Whether an earlier entry in range lists the same unit at the same edge, as for a unit with no width or height
+     */
+    private static boolean isRepeated(ClientData.GameData data, boolean x, int first, int i) {
+        final ClientData.unitFinder entry = x ? data.getXUnitSearch(i) : data.getYUnitSearch(i);
+        for (int j = i - 1; j >= first; j--) {
+            final ClientData.unitFinder earlier = x ? data.getXUnitSearch(j) : data.getYUnitSearch(j);
+            if (earlier.getSearchValue() != entry.getSearchValue()) {
+                return false;
+            }
+            if (earlier.getUnitIndex() == entry.getUnitIndex()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The index of the first entry in one of the lists whose edge is at least the value
+     */
+    private static int lowerBound(ClientData.GameData data, boolean x, int entries, long value) {
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            final int edge = (x ? data.getXUnitSearch(middle) : data.getYUnitSearch(middle)).getSearchValue();
+            if (edge < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,165 @@
+package bwapi;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A uniform grid over the bounding boxes of a frame's units, for finding the units in an area
+ * without testing every unit in the game.
+ *
+ * Each unit is listed in every cell its bounding box touches; units outside the map are listed in the nearest edge cells.
+ * The grid is immutable once built, so any number of threads may query it.
+ */
+class UnitGrid {
+    /**
+     * Cells are 128 pixels (4 build tiles) square
+     */
+    static final int CELL_SHIFT = 7;
+
+    private final Unit[] units;
+    private final int version;
+    private final int columns;
+    private final int rows;
+    private final int[] lefts;
+    private final int[] tops;
+    private final int[] rights;
+    private final int[] bottoms;
+    private final int minX;
+    private final int minY;
+
+    /**
+     * cellUnits[cellStarts[cell]] to cellUnits[cellStarts[cell + 1] - 1] are the indices of the units in a cell, in ascending order
+     */
+    private final int[] cellStarts;
+    private final int[] cellUnits;
+
+    /**
+     * @param units The units to index, whose positions are up to date
+     * @param version Identifies the state of the game's units the grid describes
+     * @param mapWidth The width of the map in build tiles
+     * @param mapHeight The height of the map in build tiles
+     */
+    UnitGrid(List<Unit> units, int version, int mapWidth, int mapHeight) {
+        // Copied, as the game's list of units changes as units are shown and hidden
+        this.units = units.toArray(new Unit[0]);
+        this.version = version;
+        columns = Math.max(1, (mapWidth * 32 + (1 << CELL_SHIFT) - 1) >> CELL_SHIFT);
+        rows = Math.max(1, (mapHeight * 32 + (1 << CELL_SHIFT) - 1) >> CELL_SHIFT);
+        final int count = this.units.length;
+        lefts = new int[count];
+        tops = new int[count];
+        rights = new int[count];
+        bottoms = new int[count];
+        cellStarts = new int[columns * rows + 1];
+
+        int lowestX = Integer.MAX_VALUE;
+        int lowestY = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            final Unit unit = this.units[i];
+            lefts[i] = unit.getLeft();
+            tops[i] = unit.getTop();
+            rights[i] = unit.getRight();
+            bottoms[i] = unit.getBottom();
+            lowestX = Math.min(lowestX, unit.getX());
+            lowestY = Math.min(lowestY, unit.getY());
+            for (int row = row(tops[i]); row <= row(bottoms[i]); row++) {
+                for (int column = column(lefts[i]); column <= column(rights[i]); column++) {
+                    ++cellStarts[row * columns + column + 1];
+                }
+            }
+        }
+        minX = lowestX;
+        minY = lowestY;
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+        cellUnits = new int[cellStarts[columns * rows]];
+        final int[] filled = Arrays.copyOf(cellStarts, columns * rows);
+        for (int i = 0; i < count; i++) {
+            for (int row = row(tops[i]); row <= row(bottoms[i]); row++) {
+                for (int column = column(lefts[i]); column <= column(rights[i]); column++) {
+                    cellUnits[filled[row * columns + column]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The version of the game's units this grid was built from
+     */
+    int getVersion() {
+        return version;
+    }
+
+    private int column(int x) {
+        return Math.max(0, Math.min(columns - 1, x >> CELL_SHIFT));
+    }
+
+    private int row(int y) {
+        return Math.max(0, Math.min(rows - 1, y >> CELL_SHIFT));
+    }
+
+    /**
+     * @return The lowest x position of any unit, or Integer.MAX_VALUE if there are none
+     */
+    int getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return The lowest y position of any unit, or Integer.MAX_VALUE if there are none
+     */
+    int getMinY() {
+        return minY;
+    }
+
+    private boolean overlaps(int i, int left, int top, int right, int bottom) {
+        return left <= rights[i] && top <= bottoms[i] && right >= lefts[i] && bottom >= tops[i];
+    }
+
+    /**
+     * Visits the units whose bounding boxes overlap a rectangle, with the same semantics as {@link Game#getUnitsInRectangle},
+     * in no particular order. Allocates nothing.
+     *
+     * @param filter The units to visit
+     * @param output If not null, receives each unit visited
+     * @param action If not null, is invoked for each unit visited
+     * @param limit The most units to visit
+     * @return The number of units visited
+     */
+    int visit(int left, int top, int right, int bottom, UnitFilter filter, Collection<? super Unit> output, Consumer<? super Unit> action, int limit) {
+        // A "rectangle" whose edges are swapped can still overlap units which span it
+        final int firstColumn = column(Math.min(left, right));
+        final int lastColumn = column(Math.max(left, right));
+        final int firstRow = row(Math.min(top, bottom));
+        final int lastRow = row(Math.max(top, bottom));
+        int visited = 0;
+
+        // For large areas, testing every unit is cheaper than testing the same units in several cells
+        if ((lastColumn - firstColumn + 1) * (lastRow - firstRow + 1) * 2 > columns * rows) {
+            for (int i = 0; i < units.length && visited < limit; i++) {
+                if (overlaps(i, left, top, right, bottom)) {
+                    visited += Visits.visit(units[i], filter, output, action);
+                }
+            }
+            return visited;
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                final int cell = row * columns + column;
+                for (int j = cellStarts[cell]; j < cellStarts[cell + 1] && visited < limit; j++) {
+                    final int i = cellUnits[j];
+                    // Visit units spanning several cells only in the first of those cells the rectangle covers
+                    if (Math.max(firstColumn, column(lefts[i])) == column
+                            && Math.max(firstRow, row(tops[i])) == row
+                            && overlaps(i, left, top, right, bottom)) {
+                        visited += Visits.visit(units[i], filter, output, action);
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+}
@@ -0,0 +1,135 @@
+package bwapi;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A map from units to ints, stored in arrays indexed by {@link Unit#getID}, for counters and scores without boxing.
+ *
+ * Units without a value read as 0, or the default given to {@link #getOrDefault}.
+ * Units are iterated in order of ID; {@link #forEach} does so without allocating.
+ *
+ * Memory grows with the highest ID in the map rather than its size: about 8 bytes per ID, so a few tens of kilobytes at most.
+ * A UnitIntMap is not safe to modify from multiple threads.
+ */
+public class UnitIntMap {
+    private Unit[] keys;
+    private int[] values;
+    private int size;
+
+    public UnitIntMap() {
+        this(256);
+    }
+
+    /**
+     * @param idCapacity The number of IDs to make room for up front
+     */
+    public UnitIntMap(final int idCapacity) {
+        keys = new Unit[Math.max(16, idCapacity)];
+        values = new int[keys.length];
+    }
+
+    private void ensureCapacity(final int id) {
+        if (id >= keys.length) {
+            final int capacity = Math.max(2 * keys.length, id + 1);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return Whether the map holds a value for the unit with this ID
+     */
+    public boolean containsId(final int id) {
+        return id >= 0 && id < keys.length && keys[id] != null;
+    }
+
+    public boolean containsKey(final Unit unit) {
+        return containsId(unit.getID());
+    }
+
+    /**
+     * @return The value for the unit, or 0 if there is none
+     */
+    public int get(final Unit unit) {
+        return getOrDefault(unit, 0);
+    }
+
+    /**
+     * @return The value for the unit, or defaultValue if there is none
+     */
+    public int getOrDefault(final Unit unit, final int defaultValue) {
+        final int id = unit.getID();
+        return containsId(id) ? values[id] : defaultValue;
+    }
+
+    /**
+     * @return The previous value for the unit, or 0 if there was none
+     */
+    public int put(final Unit unit, final int value) {
+        final int id = unit.getID();
+        ensureCapacity(id);
+        final int previous = values[id];
+        if (keys[id] == null) {
+            ++size;
+        }
+        keys[id] = unit;
+        values[id] = value;
+        return previous;
+    }
+
+    /**
+     * Adds to the value for a unit, treating a missing value as 0.
+     *
+     * @return The new value
+     */
+    public int add(final Unit unit, final int amount) {
+        final int id = unit.getID();
+        ensureCapacity(id);
+        if (keys[id] == null) {
+            keys[id] = unit;
+            ++size;
+        }
+        return values[id] += amount;
+    }
+
+    /**
+     * @return The value removed, or 0 if there was none
+     */
+    public int remove(final Unit unit) {
+        final int id = unit.getID();
+        if ( ! containsId(id)) {
+            return 0;
+        }
+        final int previous = values[id];
+        keys[id] = null;
+        values[id] = 0;
+        --size;
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * Performs an action for each unit and its value, in order of unit ID.
+     */
+    public void forEach(final ObjIntConsumer<? super Unit> action) {
+        for (int id = 0; id < keys.length; id++) {
+            if (keys[id] != null) {
+                action.accept(keys[id], values[id]);
+            }
+        }
+    }
+}
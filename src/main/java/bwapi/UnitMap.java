@@ -0,0 +1,283 @@
+package bwapi;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A map from units to values, stored in arrays indexed by {@link Unit#getID}.
+ *
+ * Getting, putting and removing are a few array accesses, with no hashing and no entry objects.
+ * Entries are iterated in order of unit ID; {@link #forEach} does so without allocating.
+ * Null values are not supported: putting null removes the unit.
+ *
+ * Memory grows with the highest ID in the map rather than its size: about 8 bytes per ID, so a few tens of kilobytes at most.
+ * A UnitMap is not safe to modify from multiple threads.
+ *
+ * @param <V> The type of values
+ */
+public class UnitMap<V> extends AbstractMap<Unit, V> {
+    private Unit[] keys;
+    private Object[] values;
+    private int size;
+    private int modifications;
+    private Set<Map.Entry<Unit, V>> entrySet;
+
+    public UnitMap() {
+        this(256);
+    }
+
+    /**
+     * @param idCapacity The number of IDs to make room for up front
+     */
+    public UnitMap(final int idCapacity) {
+        keys = new Unit[Math.max(16, idCapacity)];
+        values = new Object[keys.length];
+    }
+
+    private void ensureCapacity(final int id) {
+        if (id >= keys.length) {
+            final int capacity = Math.max(2 * keys.length, id + 1);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return Whether the map holds a value for the unit with this ID
+     */
+    public boolean containsId(final int id) {
+        return id >= 0 && id < keys.length && keys[id] != null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return key instanceof Unit && containsId(((Unit) key).getID());
+    }
+
+    /**
+     * @return The value for the unit with this ID, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V getById(final int id) {
+        return containsId(id) ? (V) values[id] : null;
+    }
+
+    @Override
+    public V get(final Object key) {
+        return key instanceof Unit ? getById(((Unit) key).getID()) : null;
+    }
+
+    @Override
+    public V put(final Unit unit, final V value) {
+        if (value == null) {
+            return removeId(unit.getID());
+        }
+        final int id = unit.getID();
+        ensureCapacity(id);
+        final V previous = getById(id);
+        if (previous == null) {
+            ++size;
+            ++modifications;
+        }
+        keys[id] = unit;
+        values[id] = value;
+        return previous;
+    }
+
+    /**
+     * Gets the value for a unit, first putting one computed by a function if there is none. Avoids the lookups
+     * {@link Map#computeIfAbsent} makes through {@link #get} and {@link #put}.
+     */
+    @Override
+    public V computeIfAbsent(final Unit unit, final Function<? super Unit, ? extends V> mappingFunction) {
+        final V value = getById(unit.getID());
+        if (value != null) {
+            return value;
+        }
+        final V computed = mappingFunction.apply(unit);
+        if (computed != null) {
+            put(unit, computed);
+        }
+        return computed;
+    }
+
+    /**
+     * Removes the value for the unit with this ID.
+     *
+     * @return The value removed, or null if there was none
+     */
+    public V removeId(final int id) {
+        final V previous = getById(id);
+        if (previous != null) {
+            keys[id] = null;
+            values[id] = null;
+            --size;
+            ++modifications;
+        }
+        return previous;
+    }
+
+    @Override
+    public V remove(final Object key) {
+        return key instanceof Unit ? removeId(((Unit) key).getID()) : null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+        ++modifications;
+    }
+
+    /**
+     * Performs an action for each unit and its value, in order of unit ID.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(final BiConsumer<? super Unit, ? super V> action) {
+        for (int id = 0; id < keys.length; id++) {
+            if (keys[id] != null) {
+                action.accept(keys[id], (V) values[id]);
+            }
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<Unit, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<Unit, V>>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    UnitMap.this.clear();
+                }
+
+                @Override
+                public Iterator<Map.Entry<Unit, V>> iterator() {
+                    return new EntryIterator();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<Unit, V>> {
+        private int next = nextId(0);
+        private int last = -1;
+        private int expectedModifications = modifications;
+
+        private int nextId(int id) {
+            while (id < keys.length && keys[id] == null) {
+                ++id;
+            }
+            return id;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < keys.length;
+        }
+
+        @Override
+        public Map.Entry<Unit, V> next() {
+            if (next >= keys.length) {
+                throw new NoSuchElementException();
+            }
+            if (modifications != expectedModifications) {
+                throw new ConcurrentModificationException();
+            }
+            last = next;
+            next = nextId(next + 1);
+            return new Entry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modifications != expectedModifications) {
+                throw new ConcurrentModificationException();
+            }
+            removeId(last);
+            last = -1;
+            expectedModifications = modifications;
+        }
+    }
+
+    /**
+     * An entry which reads and writes through to the map
+     */
+    private class Entry implements Map.Entry<Unit, V> {
+        private final int id;
+        private final Unit key;
+
+        Entry(final int id) {
+            this.id = id;
+            this.key = keys[id];
+        }
+
+        @Override
+        public Unit getKey() {
+            return key;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) values[id];
+        }
+
+        @Override
+        public V setValue(final V value) {
+            if (value == null) {
+                throw new NullPointerException("UnitMap does not support null values");
+            }
+            final V previous = getValue();
+            values[id] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if ( ! (o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return key.equals(other.getKey()) && getValue().equals(other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
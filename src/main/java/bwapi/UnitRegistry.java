@@ -0,0 +1,111 @@
+package bwapi;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The units currently accessible to the bot, kept up to date as units are shown and hidden
+ * rather than rebuilt each frame.
+ *
+ * Units are held in a dense array; hiding a unit moves the last unit into its slot, so adding and removing
+ * are constant time and the order of units is unspecified. The registry is itself the read-only list
+ * returned by {@link Game#getAllUnits}, so the list a bot holds always reflects the current units.
+ */
+class UnitRegistry extends AbstractList<Unit> implements RandomAccess {
+    private Unit[] units = new Unit[256];
+    private int size;
+
+    /**
+     * slots[id] is the index of the unit with that ID in units, plus one, or 0 if the unit is not registered
+     */
+    private int[] slots = new int[256];
+
+    /**
+     * Increases whenever units are added or removed
+     */
+    private int version;
+
+    /**
+     * @return Whether the unit was added, rather than already registered
+     */
+    boolean register(final Unit unit) {
+        final int id = unit.getID();
+        if (id >= slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(2 * slots.length, id + 1));
+        }
+        if (slots[id] != 0) {
+            return false;
+        }
+        if (size == units.length) {
+            units = Arrays.copyOf(units, 2 * size);
+        }
+        units[size++] = unit;
+        slots[id] = size;
+        ++modCount;
+        ++version;
+        return true;
+    }
+
+    /**
+     * @return Whether the unit with this ID was registered
+     */
+    boolean unregister(final int id) {
+        if (id < 0 || id >= slots.length || slots[id] == 0) {
+            return false;
+        }
+        final int slot = slots[id] - 1;
+        final Unit last = units[--size];
+        units[slot] = last;
+        slots[last.getID()] = slot + 1;
+        units[size] = null;
+        slots[id] = 0;
+        ++modCount;
+        ++version;
+        return true;
+    }
+
+    void reset() {
+        Arrays.fill(units, 0, size, null);
+        Arrays.fill(slots, 0);
+        size = 0;
+        ++modCount;
+        ++version;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    @Override
+    public Unit get(final int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return units[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        if ( ! (o instanceof Unit)) {
+            return false;
+        }
+        final int id = ((Unit) o).getID();
+        return id >= 0 && id < slots.length && slots[id] != 0 && units[slots[id] - 1].equals(o);
+    }
+
+    @Override
+    public int indexOf(final Object o) {
+        return contains(o) ? slots[((Unit) o).getID()] - 1 : -1;
+    }
+
+    @Override
+    public int lastIndexOf(final Object o) {
+        return indexOf(o);
+    }
+}
@@ -0,0 +1,290 @@
+package bwapi;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * A set of units, stored as a bitset indexed by {@link Unit#getID}.
+ *
+ * Adding, removing and checking a unit are a few array accesses, and union, intersection and difference with another
+ * UnitSet ({@link #addAll}, {@link #retainAll}, {@link #removeAll}) work 64 units at a time.
+ * Units are iterated in order of ID; {@link #forEach} and {@link #nextId} do so without allocating.
+ *
+ * Memory grows with the highest ID in the set rather than its size: about 4 bytes per ID, so a few tens of kilobytes at most.
+ * A UnitSet is not safe to modify from multiple threads.
+ */
+public class UnitSet extends AbstractSet<Unit> {
+    private long[] words;
+    private Unit[] units;
+    private int size;
+    private int modifications;
+
+    public UnitSet() {
+        this(256);
+    }
+
+    /**
+     * @param idCapacity The number of IDs to make room for up front
+     */
+    public UnitSet(final int idCapacity) {
+        final int capacity = Math.max(64, (idCapacity + 63) & ~63);
+        words = new long[capacity >> 6];
+        units = new Unit[capacity];
+    }
+
+    /**
+     * @param units The units to start with
+     */
+    public UnitSet(final Collection<? extends Unit> units) {
+        this();
+        addAll(units);
+    }
+
+    private void ensureCapacity(final int id) {
+        if (id >= units.length) {
+            final int capacity = Math.max(2 * units.length, (id + 64) & ~63);
+            words = Arrays.copyOf(words, capacity >> 6);
+            units = Arrays.copyOf(units, capacity);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return Whether the set holds the unit with this ID
+     */
+    public boolean containsId(final int id) {
+        return id >= 0 && id < units.length && (words[id >> 6] & (1L << id)) != 0;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof Unit && containsId(((Unit) o).getID());
+    }
+
+    @Override
+    public boolean add(final Unit unit) {
+        final int id = unit.getID();
+        ensureCapacity(id);
+        units[id] = unit;
+        if ((words[id >> 6] & (1L << id)) != 0) {
+            return false;
+        }
+        words[id >> 6] |= 1L << id;
+        ++size;
+        ++modifications;
+        return true;
+    }
+
+    /**
+     * Removes the unit with this ID.
+     *
+     * @return Whether the set held the unit
+     */
+    public boolean removeId(final int id) {
+        if ( ! containsId(id)) {
+            return false;
+        }
+        words[id >> 6] &= ~(1L << id);
+        units[id] = null;
+        --size;
+        ++modifications;
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return contains(o) && removeId(((Unit) o).getID());
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(words, 0);
+        Arrays.fill(units, null);
+        size = 0;
+        ++modifications;
+    }
+
+    /**
+     * @return The unit with this ID if the set holds it, otherwise null
+     */
+    public Unit get(final int id) {
+        return containsId(id) ? units[id] : null;
+    }
+
+    /**
+     * Finds the next unit in the set, for iterating without allocating:
+     * {@code for (int id = set.nextId(0); id >= 0; id = set.nextId(id + 1)) { Unit unit = set.get(id); ... }}
+     *
+     * @return The lowest ID held by the set which is at least fromId, or -1 if there is none
+     */
+    public int nextId(final int fromId) {
+        final int from = Math.max(0, fromId);
+        int word = from >> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+        long bits = words[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Performs an action for each unit in the set, in order of ID.
+     */
+    @Override
+    public void forEach(final Consumer<? super Unit> action) {
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                action.accept(units[(word << 6) + Long.numberOfTrailingZeros(bits)]);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Unit> iterator() {
+        return new Iterator<Unit>() {
+            private int next = nextId(0);
+            private int last = -1;
+            private int expectedModifications = modifications;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Unit next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                if (modifications != expectedModifications) {
+                    throw new ConcurrentModificationException();
+                }
+                last = next;
+                next = nextId(next + 1);
+                return units[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (modifications != expectedModifications) {
+                    throw new ConcurrentModificationException();
+                }
+                removeId(last);
+                last = -1;
+                expectedModifications = modifications;
+            }
+        };
+    }
+
+    /**
+     * Adds the units of a collection; with another UnitSet, computes the union 64 units at a time.
+     */
+    @Override
+    public boolean addAll(final Collection<? extends Unit> c) {
+        if ( ! (c instanceof UnitSet)) {
+            return super.addAll(c);
+        }
+        final UnitSet other = (UnitSet) c;
+        if (other.size == 0) {
+            return false;
+        }
+        ensureCapacity(other.units.length - 1);
+        final int sizeBefore = size;
+        for (int word = 0; word < other.words.length; word++) {
+            long added = other.words[word] & ~words[word];
+            if (added == 0) {
+                continue;
+            }
+            words[word] |= added;
+            size += Long.bitCount(added);
+            while (added != 0) {
+                final int id = (word << 6) + Long.numberOfTrailingZeros(added);
+                units[id] = other.units[id];
+                added &= added - 1;
+            }
+        }
+        if (size == sizeBefore) {
+            return false;
+        }
+        ++modifications;
+        return true;
+    }
+
+    /**
+     * Keeps only the units also in a collection; with another UnitSet, computes the intersection 64 units at a time.
+     */
+    @Override
+    public boolean retainAll(final Collection<?> c) {
+        if ( ! (c instanceof UnitSet)) {
+            return super.retainAll(c);
+        }
+        final UnitSet other = (UnitSet) c;
+        final int sizeBefore = size;
+        for (int word = 0; word < words.length; word++) {
+            final long kept = word < other.words.length ? other.words[word] : 0;
+            removeBits(word, words[word] & ~kept);
+        }
+        return finishBulkRemoval(sizeBefore);
+    }
+
+    /**
+     * Removes the units in a collection; with another UnitSet, computes the difference 64 units at a time.
+     */
+    @Override
+    public boolean removeAll(final Collection<?> c) {
+        if ( ! (c instanceof UnitSet)) {
+            return super.removeAll(c);
+        }
+        final UnitSet other = (UnitSet) c;
+        final int sizeBefore = size;
+        for (int word = 0; word < Math.min(words.length, other.words.length); word++) {
+            removeBits(word, words[word] & other.words[word]);
+        }
+        return finishBulkRemoval(sizeBefore);
+    }
+
+    private void removeBits(final int word, long removed) {
+        if (removed == 0) {
+            return;
+        }
+        words[word] &= ~removed;
+        size -= Long.bitCount(removed);
+        while (removed != 0) {
+            units[(word << 6) + Long.numberOfTrailingZeros(removed)] = null;
+            removed &= removed - 1;
+        }
+    }
+
+    private boolean finishBulkRemoval(final int sizeBefore) {
+        if (size == sizeBefore) {
+            return false;
+        }
+        ++modifications;
+        return true;
+    }
+}
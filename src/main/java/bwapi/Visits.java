@@ -0,0 +1,63 @@
+package bwapi;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Helpers for the variants of queries which, instead of returning a new list, add their results to a caller's collection,
+ * invoke a callback for each, or only count them. None of them allocate.
+ */
+final class Visits {
+    private Visits() {
+    }
+
+    /**
+     * Visits an item if it matches a filter.
+     *
+     * @param output If not null, receives the item if it is visited
+     * @param action If not null, is invoked for the item if it is visited
+     * @return 1 if the item was visited, otherwise 0
+     */
+    static <T> int visit(T item, Predicate<? super T> filter, Collection<? super T> output, Consumer<? super T> action) {
+        if ( ! filter.test(item)) {
+            return 0;
+        }
+        if (output != null) {
+            output.add(item);
+        }
+        if (action != null) {
+            action.accept(item);
+        }
+        return 1;
+    }
+
+    /**
+     * Visits, in order, the items of a list which match a filter.
+     *
+     * @param limit The most items to visit
+     * @return The number of items visited
+     */
+    static <T> int visitAll(List<T> items, Predicate<? super T> filter, Collection<? super T> output, Consumer<? super T> action, int limit) {
+        int visited = 0;
+        for (int i = 0; i < items.size() && visited < limit; i++) {
+            visited += visit(items.get(i), filter, output, action);
+        }
+        return visited;
+    }
+
+    /**
+     * Visits, in order, the items of an array which match a filter.
+     *
+     * @param limit The most items to visit
+     * @return The number of items visited
+     */
+    static <T> int visitAll(T[] items, Predicate<? super T> filter, Collection<? super T> output, Consumer<? super T> action, int limit) {
+        int visited = 0;
+        for (int i = 0; i < items.length && visited < limit; i++) {
+            visited += visit(items[i], filter, output, action);
+        }
+        return visited;
+    }
+}
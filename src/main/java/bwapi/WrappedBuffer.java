@@ -19,6 +19,11 @@ class WrappedBuffer {
         address = UnsafeTools.getAddress(buffer);
     }
 
+    WrappedBuffer(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.address = UnsafeTools.getAddress(buffer);
+    }
+
     WrappedBuffer(final Pointer pointer, final int size) {
         this.buffer = pointer.getByteBuffer(0, size);
         this.address = Pointer.nativeValue(pointer);
@@ -58,18 +63,19 @@ class WrappedBuffer {
 
     String getString(final int offset, final int maxLen) {
         final char[] buf = new char[maxLen];
-        long pos = offset + address;
+        final long start = getAddress(offset);
+        long pos = start;
         for (int i = 0; i < maxLen; i++) {
             byte b = unsafe.getByte(pos);
             if (b == 0) break;
             buf[i] = (char) (b & 0xff);
             pos++;
         }
-        return new String(buf, 0, (int) (pos - offset - address));
+        return new String(buf, 0, (int) (pos - start));
     }
 
     void putString(final int offset, final int maxLen, final String string) {
-        long pos = offset + address;
+        long pos = getAddress(offset);
         for (int i = 0; i < Math.min(string.length(), maxLen - 1); i++) {
             unsafe.putByte(pos, (byte) string.charAt(i));
             pos++;
@@ -78,6 +84,20 @@ class WrappedBuffer {
     }
 
 
+    /**
+     * Copies a contiguous block of game data (see {@link #getAddress(int)}) into an array.
+     */
+    void getBytes(final int offset, final byte[] destination, final int destinationOffset, final int length) {
+        unsafe.copyMemory(null, getAddress(offset), destination, Unsafe.ARRAY_BYTE_BASE_OFFSET + destinationOffset, length);
+    }
+
+    /**
+     * Copies an array into a contiguous block of game data (see {@link #getAddress(int)}).
+     */
+    void putBytes(final int offset, final byte[] source, final int sourceOffset, final int length) {
+        unsafe.copyMemory(source, Unsafe.ARRAY_BYTE_BASE_OFFSET + sourceOffset, null, getAddress(offset), length);
+    }
+
     ByteBuffer getBuffer() {
         return buffer;
     }
@@ -85,4 +105,12 @@ class WrappedBuffer {
     long getAddress() {
         return address;
     }
+
+    /**
+     * @return The memory address holding the byte at an offset.
+     * Subsequent bytes are guaranteed to be contiguous in memory up to the end of the enclosing block of game data.
+     */
+    long getAddress(final int offset) {
+        return address + offset;
+    }
 }
@@ -0,0 +1,125 @@
+package bwapi;
+
+import sun.misc.Unsafe;
+
+import java.util.Arrays;
+
+/**
+ * A frame of game data which stores only the sections that change after the start of the game.
+ * Every other section is read from a full-size buffer shared by all compact frames.
+ *
+ * Game data is divided into pages. Pages overlapping a mutable section (see {@link FrameBuffer#MUTABLE_SECTIONS})
+ * are packed back to back into this frame's own storage; all other pages resolve to the shared buffer.
+ * Consecutive mutable pages stay consecutive in the packed storage, so every field and every mutable section is contiguous.
+ * This relies on fields in the game data never straddling a page boundary, which holds because they are naturally aligned.
+ */
+class WrappedBufferCompact extends WrappedBuffer {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGES = (ClientData.GameData.SIZE + PAGE_SIZE - 1) >>> PAGE_BITS;
+
+    /**
+     * Offsets and sizes of the page-aligned runs of game data which each compact frame stores itself.
+     */
+    static final int[] RUN_OFFSETS;
+    static final int[] RUN_SIZES;
+    static final int PACKED_SIZE;
+
+    static {
+        final boolean[] pageMutable = new boolean[PAGES];
+        for (int[] section : FrameBuffer.MUTABLE_SECTIONS) {
+            for (int page = section[0] >>> PAGE_BITS; page <= (section[1] - 1) >>> PAGE_BITS; page++) {
+                pageMutable[page] = true;
+            }
+        }
+        int runs = 0;
+        for (int page = 0; page < PAGES; page++) {
+            if (pageMutable[page] && (page == 0 || ! pageMutable[page - 1])) {
+                ++runs;
+            }
+        }
+        RUN_OFFSETS = new int[runs];
+        RUN_SIZES = new int[runs];
+        int run = -1;
+        int packedSize = 0;
+        for (int page = 0; page < PAGES; page++) {
+            if ( ! pageMutable[page]) {
+                continue;
+            }
+            if (page == 0 || ! pageMutable[page - 1]) {
+                RUN_OFFSETS[++run] = page << PAGE_BITS;
+            }
+            final int pageSize = Math.min(PAGE_SIZE, ClientData.GameData.SIZE - (page << PAGE_BITS));
+            RUN_SIZES[run] += pageSize;
+            packedSize += pageSize;
+        }
+        PACKED_SIZE = packedSize;
+    }
+
+    private static final Unsafe unsafe = UnsafeTools.getUnsafe();
+
+    /**
+     * For each page, the value which added to an offset within the page yields its memory address.
+     */
+    private final long[] pageBases = new long[PAGES];
+
+    WrappedBufferCompact(final WrappedBuffer shared) {
+        super(PACKED_SIZE);
+        Arrays.fill(pageBases, shared.getAddress(0));
+        final long packedAddress = getAddress();
+        int packedOffset = 0;
+        for (int run = 0; run < RUN_OFFSETS.length; run++) {
+            final long runBase = packedAddress + packedOffset - RUN_OFFSETS[run];
+            final int runEnd = RUN_OFFSETS[run] + RUN_SIZES[run];
+            for (int offset = RUN_OFFSETS[run]; offset < runEnd; offset += PAGE_SIZE) {
+                pageBases[offset >>> PAGE_BITS] = runBase;
+            }
+            packedOffset += RUN_SIZES[run];
+        }
+    }
+
+    @Override
+    long getAddress(final int offset) {
+        return pageBases[offset >>> PAGE_BITS] + offset;
+    }
+
+    @Override
+    byte getByte(final int offset) {
+        return unsafe.getByte(getAddress(offset));
+    }
+
+    @Override
+    void putByte(final int offset, final byte value) {
+        unsafe.putByte(getAddress(offset), value);
+    }
+
+    @Override
+    short getShort(final int offset) {
+        return unsafe.getShort(getAddress(offset));
+    }
+
+    @Override
+    void putShort(final int offset, final short value) {
+        unsafe.putShort(getAddress(offset), value);
+    }
+
+    @Override
+    int getInt(final int offset) {
+        return unsafe.getInt(getAddress(offset));
+    }
+
+    @Override
+    void putInt(final int offset, final int value) {
+        unsafe.putInt(getAddress(offset), value);
+    }
+
+    @Override
+    double getDouble(final int offset) {
+        return unsafe.getDouble(getAddress(offset));
+    }
+
+    @Override
+    void putDouble(final int offset, final double value) {
+        unsafe.putDouble(getAddress(offset), value);
+    }
+}
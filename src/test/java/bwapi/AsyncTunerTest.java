@@ -0,0 +1,133 @@
+package bwapi;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AsyncTunerTest {
+    private final BWClientConfiguration configuration = new BWClientConfiguration.Builder()
+        .withAsync(true)
+        .withAsyncFrameBufferCapacity(4)
+        .withAsyncAdaptive(true)
+        .withMaxFrameDurationMs(40)
+        .withAsyncAdaptiveMinFrameDurationMs(5)
+        .build();
+    private final PerformanceMetrics metrics = new PerformanceMetrics(configuration);
+    private final AsyncTuner tuner = new AsyncTuner(configuration);
+
+    /**
+     * Plays a window of frames
+     *
+     * @param blocked Whether the client waited for buffer capacity on each frame
+     * @param framesBehind How far behind the bot is on each frame
+     * @param botResponseMs How long the bot takes on each frame
+     */
+    private void playWindow(boolean blocked, int framesBehind, double botResponseMs) {
+        playWindow(blocked ? AsyncTuner.WINDOW_FRAMES : 0, framesBehind, botResponseMs, 0);
+    }
+
+    /**
+     * Plays a window of frames
+     *
+     * @param blockedFrames On how many frames the client waited for buffer capacity
+     * @param copyingMs How long copying each frame into the buffer takes
+     */
+    private void playWindow(int blockedFrames, int framesBehind, double botResponseMs, double copyingMs) {
+        for (int i = 0; i < AsyncTuner.WINDOW_FRAMES; i++) {
+            if (i < blockedFrames) {
+                metrics.getIntentionallyBlocking().record(1);
+            }
+            metrics.getFrameBufferSize().record(framesBehind);
+            metrics.getFramesBehind().record(framesBehind);
+            metrics.getBotResponse().record(botResponseMs);
+            metrics.getCopyingToBuffer().record(copyingMs);
+            tuner.onFrame();
+        }
+    }
+
+    @Test
+    public void startsShallowWithLongestDeadline() {
+        tuner.initialize(metrics);
+        assertEquals(1, tuner.getDepth());
+        assertEquals(40, tuner.getDeadlineMs());
+    }
+
+    @Test
+    public void growsWhileBlockingThenShrinksWhileKeepingUp() {
+        tuner.initialize(metrics);
+        for (int expected = 2; expected <= 4; expected++) {
+            playWindow(true, 1, 50);
+            assertEquals(expected, tuner.getDepth());
+        }
+        playWindow(true, 3, 50);
+        assertEquals("Depth is bounded by the capacity", 4, tuner.getDepth());
+
+        for (int i = 1; i < AsyncTuner.CALM_WINDOWS_TO_SHRINK; i++) {
+            playWindow(false, 0, 2);
+            assertEquals(4, tuner.getDepth());
+        }
+        playWindow(false, 0, 2);
+        assertEquals(3, tuner.getDepth());
+
+        playWindow(false, 2, 2);
+        for (int i = 1; i < AsyncTuner.CALM_WINDOWS_TO_SHRINK; i++) {
+            playWindow(false, 0, 2);
+        }
+        assertEquals("A window behind restarts the wait to shrink", 3, tuner.getDepth());
+
+        for (int i = 0; i < 3 * AsyncTuner.CALM_WINDOWS_TO_SHRINK; i++) {
+            playWindow(false, 0, 2);
+        }
+        assertEquals("Depth is bounded by the minimum", 1, tuner.getDepth());
+    }
+
+    @Test
+    public void growsOnlyWhenBlockingOnMoreThanAnEighthOfFrames() {
+        tuner.initialize(metrics);
+        playWindow(AsyncTuner.WINDOW_FRAMES / 8, 1, 50, 0);
+        assertEquals(1, tuner.getDepth());
+        playWindow(AsyncTuner.WINDOW_FRAMES / 8 + 1, 1, 50, 0);
+        assertEquals(2, tuner.getDepth());
+    }
+
+    @Test
+    public void deadlineTracksBotResponse() {
+        tuner.initialize(metrics);
+        playWindow(false, 0, 10);
+        assertEquals(16, tuner.getDeadlineMs());
+        playWindow(false, 0, 100);
+        assertEquals(40, tuner.getDeadlineMs());
+        playWindow(false, 0, 0.1);
+        assertEquals(5, tuner.getDeadlineMs());
+    }
+
+    @Test
+    public void deadlineIncludesCopyingTime() {
+        tuner.initialize(metrics);
+        playWindow(0, 0, 10, 2);
+        assertEquals("1.5 times the bot's response, plus copying, plus a millisecond", 18, tuner.getDeadlineMs());
+        playWindow(0, 0, 20, 3.5);
+        assertEquals("Rounded up to a whole millisecond", 35, tuner.getDeadlineMs());
+        playWindow(0, 0, 20, 30);
+        assertEquals(40, tuner.getDeadlineMs());
+    }
+
+    @Test
+    public void survivesMetricsReset() {
+        tuner.initialize(metrics);
+        playWindow(false, 0, 30);
+        metrics.reset();
+        playWindow(false, 0, 10);
+        assertEquals(16, tuner.getDeadlineMs());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void minimumDepthCanNotExceedCapacity() {
+        new BWClientConfiguration.Builder()
+            .withAsync(true)
+            .withAsyncFrameBufferCapacity(2)
+            .withAsyncAdaptive(true)
+            .withAsyncAdaptiveMinFrameBufferDepth(3)
+            .build();
+    }
+}
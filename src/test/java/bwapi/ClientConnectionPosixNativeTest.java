@@ -0,0 +1,41 @@
+package bwapi;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class ClientConnectionPosixNativeTest {
+
+    private void exchangeFrames(ClientConnectionPosix connection) throws IOException {
+        Assume.assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"));
+        try (SyncSocketServer server = new SyncSocketServer()) {
+            connection.connectSocket(server.path());
+            try {
+                connection.waitForServerData();
+                for (int frame = 0; frame < 100; frame++) {
+                    connection.submitClientData();
+                    connection.waitForServerData();
+                }
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+
+    @Test
+    public void exchangesFramesWithServer() throws IOException {
+        exchangeFrames(new ClientConnectionPosixNative(0));
+    }
+
+    @Test
+    public void exchangesFramesWithServer_IfBusyPolling() throws IOException {
+        exchangeFrames(new ClientConnectionPosixNative(50));
+    }
+
+    @Test(expected = SharedLockConnectionException.class)
+    public void failsToConnectWithoutServer() {
+        Assume.assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"));
+        new ClientConnectionPosixNative(0).connectSocket("/tmp/bwapi_socket_nonexistent");
+    }
+}
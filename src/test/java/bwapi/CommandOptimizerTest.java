@@ -0,0 +1,51 @@
+package bwapi;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CommandOptimizerTest {
+
+    private CommandOptimizer createOptimizer(int repeatWindowFrames) {
+        CommandOptimizer optimizer = new CommandOptimizer();
+        optimizer.setConfiguration(new BWClientConfiguration.Builder()
+                .withCommandRepeatWindowFrames(repeatWindowFrames)
+                .build());
+        optimizer.reset();
+        return optimizer;
+    }
+
+    @Test
+    public void dropsRepeatsWithinWindow() {
+        CommandOptimizer optimizer = createOptimizer(8);
+        UnitCommand move = UnitCommand.move(null, new Position(100, 200));
+
+        assertFalse("Nothing to repeat", optimizer.dropRepeat(null, 0, move, 10));
+        assertTrue(optimizer.dropRepeat(move, 10, UnitCommand.move(null, new Position(100, 200)), 17));
+        assertFalse("Window expired", optimizer.dropRepeat(move, 10, UnitCommand.move(null, new Position(100, 200)), 18));
+        assertFalse("Different target", optimizer.dropRepeat(move, 10, UnitCommand.move(null, new Position(100, 232)), 11));
+        assertFalse("Different type", optimizer.dropRepeat(move, 10, UnitCommand.patrol(null, new Position(100, 200)), 11));
+        assertFalse("Queued", optimizer.dropRepeat(move, 10, UnitCommand.move(null, new Position(100, 200), true), 11));
+        assertEquals(1, optimizer.takeDropped());
+        assertEquals(0, optimizer.takeDropped());
+    }
+
+    @Test
+    public void neverDropsCommandsWhichDoSomethingNewEachTime() {
+        CommandOptimizer optimizer = createOptimizer(8);
+        UnitCommand train = UnitCommand.train(null, UnitType.Terran_Marine);
+        assertFalse(optimizer.dropRepeat(train, 10, UnitCommand.train(null, UnitType.Terran_Marine), 10));
+        UnitCommand stim = UnitCommand.useTech(null, TechType.Stim_Packs);
+        assertFalse(optimizer.dropRepeat(stim, 10, UnitCommand.useTech(null, TechType.Stim_Packs), 10));
+    }
+
+    @Test
+    public void neverDropsWhenDisabled() {
+        CommandOptimizer optimizer = createOptimizer(0);
+        assertFalse(optimizer.isEnabled());
+        UnitCommand stop = UnitCommand.stop(null);
+        assertFalse(optimizer.dropRepeat(stop, 10, UnitCommand.stop(null), 10));
+    }
+}
@@ -0,0 +1,70 @@
+package bwapi;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DiagnosticLogTest {
+    private final BWClientConfiguration configuration = new BWClientConfiguration.Builder().build();
+
+    private static String dump(DiagnosticLog log) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        log.dump(new PrintStream(output, true));
+        return output.toString();
+    }
+
+    @Test
+    public void dumpsEntriesAsText() {
+        DiagnosticLog log = new DiagnosticLog(configuration, 16);
+        log.log(DiagnosticLog.Event.BotThreadStarted);
+        log.log(DiagnosticLog.Event.WaitingForBot, 12, 345);
+        String dump = dump(log);
+        assertTrue(dump.contains("2 of 2 entries"));
+        assertTrue(dump.contains("Bot: Thread started"));
+        assertTrue(dump.contains("Main: Waiting 12ms for bot on frame #345"));
+        assertTrue(dump.indexOf("Thread started") < dump.indexOf("Waiting 12ms"));
+    }
+
+    @Test
+    public void keepsOnlyNewestEntries() {
+        DiagnosticLog log = new DiagnosticLog(configuration, 4);
+        for (int frame = 0; frame < 10; frame++) {
+            log.log(DiagnosticLog.Event.EnqueuingFrame, frame);
+        }
+        assertEquals(10, log.getEntriesRecorded());
+        String dump = dump(log);
+        assertTrue(dump.contains("4 of 10 entries"));
+        assertFalse(dump.contains("frame #5\n"));
+        for (int frame = 6; frame < 10; frame++) {
+            assertTrue(dump.contains("Main: Enqueuing frame #" + frame));
+        }
+    }
+
+    @Test
+    public void recordsNothingWithoutCapacity() {
+        DiagnosticLog log = new DiagnosticLog(configuration, 0);
+        log.log(DiagnosticLog.Event.BotReady);
+        assertEquals(0, log.getEntriesRecorded());
+        assertTrue(dump(log).contains("0 of 0 entries"));
+    }
+
+    @Test
+    public void loggingDoesNotAllocate() {
+        DiagnosticLog log = new DiagnosticLog(configuration, 1024);
+        for (int i = 0; i < 100000; i++) {
+            log.log(DiagnosticLog.Event.BotHandlingEvents, i);
+        }
+        if (MemoryMonitor.canMeasureAllocation()) {
+            long before = MemoryMonitor.allocatedBytes();
+            for (int i = 0; i < 100000; i++) {
+                log.log(DiagnosticLog.Event.BotHandlingEvents, i);
+            }
+            assertTrue(MemoryMonitor.allocatedBytes() - before < 10000);
+        }
+    }
+}
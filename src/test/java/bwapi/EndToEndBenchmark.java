@@ -0,0 +1,71 @@
+package bwapi;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time per frame of whole games played against a local fake BWAPI server,
+ * covering shared memory, the synchronization socket, frame buffering and event dispatch.
+ */
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(EndToEndBenchmark.GAME_FRAMES)
+public class EndToEndBenchmark {
+    static final int GAME_FRAMES = 1000;
+
+    @State(Scope.Thread)
+    public static class Game {
+        @Param({"sync", "sync-native", "async", "async-compact"})
+        String mode;
+
+        WrappedBuffer frame0;
+        BWClientConfiguration configuration;
+        FakeBWAPIServer server;
+
+        @Setup(Level.Trial)
+        public void setupTrial() throws IOException {
+            frame0 = GameBuilder.binToBuffer(GameBuilder.DEFAULT_BUFFER_PATH);
+            BWClientConfiguration.Builder builder = new BWClientConfiguration.Builder();
+            switch (mode) {
+                case "sync-native":
+                    builder.withPosixNativeSync(true);
+                    break;
+                case "async":
+                    builder.withAsync(true);
+                    break;
+                case "async-compact":
+                    builder.withAsync(true).withAsyncCompactFrames(true);
+                    break;
+                default:
+            }
+            configuration = builder.build();
+        }
+
+        @Setup(Level.Invocation)
+        public void setupGame() throws IOException {
+            server = new FakeBWAPIServer(frame0, GAME_FRAMES, 0);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDownGame() throws IOException {
+            server.close();
+        }
+    }
+
+    @Benchmark
+    public int playGame(Game game) {
+        final int[] frames = { 0 };
+        new BWClient(new DefaultBWListener() {
+            @Override
+            public void onFrame() {
+                ++frames[0];
+            }
+        }).startGame(game.configuration);
+        return frames[0];
+    }
+}
@@ -0,0 +1,254 @@
+package bwapi;
+
+import com.sun.jna.Platform;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Plays whole games against {@link FakeBWAPIServer}, through the real connection and synchronization code.
+ */
+public class EndToEndTest {
+    private static final int GAME_FRAMES = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void onlyOnLinux() {
+        Assume.assumeTrue(Platform.isLinux());
+    }
+
+    private BWClient playGame(BWClientConfiguration configuration) throws IOException {
+        return playGame(configuration, () -> {});
+    }
+
+    /**
+     * @param onFrame Runs at the end of the bot's onFrame
+     */
+    private BWClient playGame(BWClientConfiguration configuration, Runnable onFrame) throws IOException {
+        return playGame(configuration, onFrame, new BWClient[1]);
+    }
+
+    /**
+     * @param bwClient Receives the client before the game starts, for use by onFrame
+     */
+    private BWClient playGame(BWClientConfiguration configuration, Runnable onFrame, BWClient[] bwClient) throws IOException {
+        final WrappedBuffer frame0 = GameBuilder.binToBuffer(GameBuilder.DEFAULT_BUFFER_PATH);
+        try (FakeBWAPIServer server = new FakeBWAPIServer(frame0, GAME_FRAMES, 0)) {
+            final int[] starts = { 0 };
+            final int[] frames = { 0 };
+            final int[] ends = { 0 };
+            bwClient[0] = new BWClient(new DefaultBWListener() {
+                @Override
+                public void onStart() {
+                    ++starts[0];
+                }
+
+                @Override
+                public void onFrame() {
+                    ++frames[0];
+                    bwClient[0].getGame().sendText("frame " + bwClient[0].getGame().getFrameCount());
+                    onFrame.run();
+                }
+
+                @Override
+                public void onEnd(boolean isWinner) {
+                    ++ends[0];
+                }
+            });
+            bwClient[0].startGame(configuration);
+
+            assertEquals(1, starts[0]);
+            assertEquals(GAME_FRAMES, frames[0]);
+            assertEquals(1, ends[0]);
+            // The menu frame, every game frame, the end of the game, and the menus after it
+            assertEquals(GAME_FRAMES + 3, server.getFramesServed());
+            // The text sent every frame, and enabling or disabling latency compensation at the start
+            assertEquals(GAME_FRAMES + 1, server.getCommandsReceived());
+            return bwClient[0];
+        }
+    }
+
+    @Test
+    public void playsGame_Synchronously() throws IOException {
+        playGame(new BWClientConfiguration.Builder().build());
+    }
+
+    @Test
+    public void playsGame_Asynchronously() throws IOException {
+        playGame(new BWClientConfiguration.Builder()
+            .withAsync(true)
+            .withAsyncFrameBufferCapacity(4)
+            .build());
+    }
+
+    @Test
+    public void playsGame_WithEventTypeMetrics() throws IOException {
+        PerformanceMetrics metrics = playGame(new BWClientConfiguration.Builder()
+            .withEventTypeMetrics(true)
+            .build()).getPerformanceMetrics();
+
+        assertEquals(GAME_FRAMES, metrics.getEventTypeDuration(EventType.MatchFrame).getHistogram().getTotalCount());
+        assertEquals(1, metrics.getEventTypeDuration(EventType.MatchStart).getHistogram().getTotalCount());
+        assertEquals(0, metrics.getEventTypeDuration(EventType.UnitCreate).getHistogram().getTotalCount());
+        PerformanceMetric.RunningTotal matchFrames = metrics.getEventTypeCount(EventType.MatchFrame).getRunningTotal();
+        // Every game frame, plus the frame which ends the game
+        assertEquals(GAME_FRAMES + 1, matchFrames.getSamples(), 0);
+        assertEquals(GAME_FRAMES, matchFrames.getMean() * matchFrames.getSamples(), 0.001);
+        assertEquals(1, matchFrames.getMax(), 0);
+    }
+
+    @Test
+    public void playsGame_AsynchronouslyAdaptive() throws IOException {
+        // How the depth and deadline adapt is covered by AsyncTunerTest
+        playGame(new BWClientConfiguration.Builder()
+            .withAsync(true)
+            .withAsyncFrameBufferCapacity(4)
+            .withAsyncAdaptive(true)
+            .build());
+    }
+
+    /**
+     * Plays a game in which the bot spends its spare time on a task of 1000 steps of about 0.1ms each
+     */
+    private void playGameWithScheduler(BWClientConfiguration configuration) throws IOException {
+        final BWClient[] bwClient = new BWClient[1];
+        final TaskScheduler[] scheduler = new TaskScheduler[1];
+        final int[] steps = { 0 };
+        final List<Double> remaining = new ArrayList<>();
+        bwClient[0] = playGame(configuration, () -> {
+            if (scheduler[0] == null) {
+                scheduler[0] = new TaskScheduler(bwClient[0]);
+                scheduler[0].add("analysis", () -> {
+                    final long end = System.nanoTime() + 100000;
+                    while (System.nanoTime() < end) {
+                        Thread.yield();
+                    }
+                    return ++steps[0] < 1000;
+                });
+            }
+            remaining.add(bwClient[0].getGame().getRemainingFrameTimeMs());
+            scheduler[0].run(5);
+        }, bwClient);
+
+        assertEquals("Frame 0 has no time limit by default", Double.POSITIVE_INFINITY, remaining.get(0), 0);
+        for (int frame = 1; frame < remaining.size(); frame++) {
+            assertTrue(remaining.get(frame) <= configuration.getMaxFrameDurationMs());
+        }
+        assertTrue("The task spans several frames", bwClient[0].getPerformanceMetrics().getTaskDuration("analysis").getRunningTotal().getSamples() > 1);
+        assertEquals(1000, steps[0]);
+        assertEquals(0, scheduler[0].size());
+    }
+
+    @Test
+    public void playsGame_WithTaskScheduler() throws IOException {
+        playGameWithScheduler(new BWClientConfiguration.Builder().build());
+    }
+
+    @Test
+    public void playsGame_WithTaskScheduler_Asynchronously() throws IOException {
+        playGameWithScheduler(new BWClientConfiguration.Builder()
+            .withAsync(true)
+            .build());
+    }
+
+    @Test
+    public void playsGame_WithMemoryMetrics() throws IOException {
+        PerformanceMetrics metrics = playGame(new BWClientConfiguration.Builder()
+            .withMemoryMetrics(true)
+            .build()).getPerformanceMetrics();
+
+        assertTrue(metrics.getGcPauses().getRunningTotal().getSamples() >= GAME_FRAMES);
+        if (MemoryMonitor.canMeasureAllocation()) {
+            PerformanceMetric.RunningTotal allocation = metrics.getBotAllocation().getRunningTotal();
+            assertTrue(allocation.getSamples() >= GAME_FRAMES);
+            // The bot builds a string to send every frame
+            assertTrue(allocation.getMax() > 0);
+        }
+    }
+
+    @Test
+    public void playsGame_WithJmx() throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName query = new ObjectName("bwapi:type=BWClient,*");
+        final List<Integer> framesSeen = new ArrayList<>();
+        final List<Boolean> inGame = new ArrayList<>();
+        BWClient bwClient = playGame(new BWClientConfiguration.Builder().build(), () -> {
+            try {
+                Set<ObjectName> names = server.queryNames(query, null);
+                assertEquals(1, names.size());
+                ObjectName name = names.iterator().next();
+                framesSeen.add((Integer) server.getAttribute(name, "FrameCount"));
+                inGame.add((Boolean) server.getAttribute(name, "InGame"));
+            } catch (JMException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertEquals(GAME_FRAMES, framesSeen.size());
+        for (int frame = 0; frame < GAME_FRAMES; frame++) {
+            assertEquals(frame, (int) framesSeen.get(frame));
+            assertTrue(inGame.get(frame));
+        }
+        assertTrue("The client unregisters once it stops playing", server.queryNames(query, null).isEmpty());
+
+        BWClientMBean mbean = new BWClientMBean(bwClient);
+        // Frame 0 is not timed, as it has unlimited time by default
+        assertEquals(GAME_FRAMES - 1, mbean.getFramesHandled());
+        assertTrue(mbean.getBotResponseP99Ms() >= mbean.getBotResponseP50Ms());
+        mbean.resetMetrics();
+        assertEquals(0, mbean.getFramesHandled());
+    }
+
+    @Test
+    public void playsGame_WithoutJmx() throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName query = new ObjectName("bwapi:type=BWClient,*");
+        final int[] registered = { 0 };
+        playGame(new BWClientConfiguration.Builder().withJmx(false).build(),
+            () -> registered[0] += server.queryNames(query, null).size());
+        assertEquals(0, registered[0]);
+    }
+
+    @Test
+    public void playsGame_WithTrace() throws IOException {
+        File trace = folder.newFile("trace.json");
+        playGame(new BWClientConfiguration.Builder()
+            .withAsync(true)
+            .withTracePath(trace.getPath())
+            .build());
+
+        String json = new String(Files.readAllBytes(trace.toPath()), StandardCharsets.UTF_8);
+        for (String span : new String[] {
+            FrameTracer.ENQUEUE_FRAME, FrameTracer.COPY_BUFFER, FrameTracer.WAIT_FOR_BOT, FrameTracer.HANDLE_EVENTS,
+            FrameTracer.FLUSH_SIDE_EFFECTS, FrameTracer.SUBMIT_CLIENT_DATA, FrameTracer.WAIT_FOR_SERVER_DATA }) {
+            assertTrue(span, json.contains("\"name\":\"" + span + "\""));
+        }
+        assertTrue(json.contains("\"args\":{\"name\":\"JBWAPI Bot\"}"));
+    }
+
+    @Test
+    public void playsGame_WithNativeSync() throws IOException {
+        playGame(new BWClientConfiguration.Builder()
+            .withPosixNativeSync(true)
+            .build());
+    }
+}
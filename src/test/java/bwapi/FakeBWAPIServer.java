@@ -0,0 +1,210 @@
+package bwapi;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.linux.Fcntl;
+import com.sun.jna.platform.linux.LibRT;
+import org.newsclub.net.unix.AFUNIXServerSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.sun.jna.platform.linux.Mman.*;
+
+/**
+ * Stands in for OpenBW's BWAPI server on Linux, so the whole client path
+ * (Client.connect, ClientConnectionPosix, FrameBuffer, BotWrapper) can run end to end without StarCraft.
+ *
+ * Publishes the game table and game data as POSIX shared memory, and listens on the synchronization socket,
+ * under the same names BWAPI uses. Game data starts as a frame 0 buffer (eg. from src/test/resources).
+ * Once a client connects it is shown one frame of menus, then a game of a fixed number of frames, then menus again.
+ * Each frame is announced no sooner than a fixed interval after the previous one, like a game running at a set speed.
+ *
+ * The game table is shared by every BWAPI instance on the machine, so only one server should run at a time.
+ */
+class FakeBWAPIServer implements AutoCloseable {
+    private static final String GAME_TABLE_NAME = "/bwapi_shared_memory_game_list";
+
+    interface LibCShm extends Library {
+        LibCShm INSTANCE = Native.load(LibCShm.class);
+
+        int ftruncate(int fd, long length);
+        int munmap(Pointer addr, long length);
+        int close(int fd);
+    }
+
+    private final int serverProcID = ThreadLocalRandom.current().nextInt(100000, 1000000);
+    private final String gameDataName = "/bwapi_shared_memory_" + serverProcID;
+    private final File socketFile = new File(ClientConnectionPosix.socketPath(serverProcID));
+    private final int gameFrames;
+    private final long frameIntervalNanos;
+    private final Pointer gameTableView;
+    private final Pointer gameDataView;
+    private final WrappedBuffer gameTable;
+    private final ClientData.GameData gameData;
+    private final AFUNIXServerSocket serverSocket;
+    private final Thread thread;
+    private volatile Socket socket;
+
+    private volatile int framesServed = 0;
+    private volatile long commandsReceived = 0;
+
+    /**
+     * @param frame0 Game data to start from
+     * @param gameFrames How many frames the game lasts
+     * @param frameIntervalNanos The least time between announcing one frame and the next, or 0 to run as fast as the client allows
+     */
+    FakeBWAPIServer(WrappedBuffer frame0, int gameFrames, long frameIntervalNanos) throws IOException {
+        this.gameFrames = gameFrames;
+        this.frameIntervalNanos = frameIntervalNanos;
+
+        gameTableView = createSharedMemory(GAME_TABLE_NAME, GameTable.SIZE);
+        gameTable = new WrappedBuffer(gameTableView, GameTable.SIZE);
+        gameDataView = createSharedMemory(gameDataName, ClientData.GameData.SIZE);
+        final WrappedBuffer gameDataBuffer = new WrappedBuffer(gameDataView, ClientData.GameData.SIZE);
+        UnsafeTools.getUnsafe().copyMemory(frame0.getAddress(0), gameDataBuffer.getAddress(0), ClientData.GameData.SIZE);
+        final ClientData clientData = new ClientData();
+        clientData.setBuffer(gameDataBuffer);
+        gameData = clientData.gameData();
+        showMenus();
+
+        socketFile.delete();
+        serverSocket = AFUNIXServerSocket.newInstance();
+        serverSocket.bind(new AFUNIXSocketAddress(socketFile));
+
+        for (int i = 0; i < GameTable.SIZE; i++) {
+            gameTable.putByte(i, (byte) 0);
+        }
+        gameTable.putInt(0, serverProcID);
+        gameTable.putInt(8, (int) System.currentTimeMillis());
+
+        thread = new Thread(this::serve, "Fake BWAPI server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static Pointer createSharedMemory(String name, int size) throws IOException {
+        final int fd = LibRT.INSTANCE.shm_open(name, Fcntl.O_RDWR | Fcntl.O_CREAT, 0600);
+        if (fd < 0) {
+            throw new IOException("Unable to create shared memory " + name + ": errno " + Native.getLastError());
+        }
+        try {
+            if (LibCShm.INSTANCE.ftruncate(fd, size) < 0) {
+                throw new IOException("Unable to size shared memory " + name + ": errno " + Native.getLastError());
+            }
+            return ClientConnectionPosix.LibCExt.INSTANCE.mmap(Pointer.NULL, size, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+        } finally {
+            LibCShm.INSTANCE.close(fd);
+        }
+    }
+
+    /**
+     * @return The number of frames announced to the client, including the first menu frame
+     */
+    int getFramesServed() {
+        return framesServed;
+    }
+
+    /**
+     * @return The number of game and unit commands the client has sent
+     */
+    long getCommandsReceived() {
+        return commandsReceived;
+    }
+
+    private void showMenus() {
+        gameData.setCommandCount(0);
+        gameData.setUnitCommandCount(0);
+        gameData.setShapeCount(0);
+        gameData.setStringCount(0);
+        gameData.setIsInGame(false);
+        gameData.setEventCount(0);
+    }
+
+    /**
+     * Advances the game data as BWAPI would after the client finishes a frame.
+     *
+     * @param frame How many frames the client has finished
+     */
+    private void advance(int frame) {
+        commandsReceived += gameData.getCommandCount() + gameData.getUnitCommandCount();
+        showMenus();
+        final int gameFrame = frame - 1;
+        if (gameFrame > gameFrames) {
+            return;
+        }
+        gameData.setIsInGame(true);
+        gameData.setFrameCount(gameFrame);
+        int events = 0;
+        if (gameFrame == gameFrames) {
+            addEvent(events++, EventType.MatchEnd, 1);
+        } else {
+            if (gameFrame == 0) {
+                addEvent(events++, EventType.MatchStart, 0);
+            }
+            addEvent(events++, EventType.MatchFrame, 0);
+        }
+        gameData.setEventCount(events);
+    }
+
+    private void addEvent(int index, EventType type, int v1) {
+        final ClientData.Event event = gameData.getEvents(index);
+        event.setType(type);
+        event.setV1(v1);
+        event.setV2(0);
+    }
+
+    private void serve() {
+        try (Socket accepted = serverSocket.accept()) {
+            socket = accepted;
+            gameTable.putByte(4, (byte) 1);
+            final InputStream input = accepted.getInputStream();
+            final OutputStream output = accepted.getOutputStream();
+            long lastAnnounced = System.nanoTime();
+            output.write(2);
+            framesServed = 1;
+            int received;
+            while ((received = input.read()) >= 0) {
+                if (received != 1) {
+                    continue;
+                }
+                advance(framesServed);
+                final long deadline = lastAnnounced + frameIntervalNanos;
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(remaining);
+                }
+                lastAnnounced = System.nanoTime();
+                output.write(2);
+                ++framesServed;
+            }
+        } catch (IOException ignored) {
+            // The client hung up, or the server closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        if (socket != null) {
+            socket.close();
+        }
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        socketFile.delete();
+        LibCShm.INSTANCE.munmap(gameTableView, GameTable.SIZE);
+        LibCShm.INSTANCE.munmap(gameDataView, ClientData.GameData.SIZE);
+        LibRT.INSTANCE.shm_unlink(GAME_TABLE_NAME);
+        LibRT.INSTANCE.shm_unlink(gameDataName);
+    }
+}
@@ -0,0 +1,265 @@
+package bwapi;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameBufferTest {
+
+    private final WrappedBuffer liveData = new WrappedBuffer(ClientData.GameData.SIZE);
+    private final ClientData liveClientData = new ClientData();
+
+    private FrameBuffer createFrameBuffer(BWClientConfiguration configuration) {
+        FrameBuffer frameBuffer = FrameBuffer.create(configuration);
+        frameBuffer.initialize(liveData, new PerformanceMetrics(configuration));
+        liveClientData.setBuffer(liveData);
+        return frameBuffer;
+    }
+
+    private ClientData.GameData nextFrame(FrameBuffer frameBuffer) {
+        frameBuffer.enqueueFrame();
+        ClientData botClientData = new ClientData();
+        botClientData.setBuffer(frameBuffer.peek());
+        frameBuffer.dequeue();
+        return botClientData.gameData();
+    }
+
+    @Test
+    public void ifCopyingLiveUnitsOnly_ThenCopiesAnnouncedUnits() {
+        BWClientConfiguration configuration = new BWClientConfiguration.Builder()
+                .withAsync(true)
+                .withAsyncFrameBufferCapacity(2)
+                .build();
+        FrameBuffer frameBuffer = createFrameBuffer(configuration);
+        ClientData.GameData live = liveClientData.gameData();
+        live.setInitialUnitCount(10);
+        nextFrame(frameBuffer);
+
+        live.setFrameCount(1);
+        live.getUnits(5).setHitPoints(5);
+        live.getUnits(500).setHitPoints(500);
+        live.getUnits(900).setHitPoints(900);
+        live.setEventCount(1);
+        live.getEvents(0).setType(EventType.UnitCreate);
+        live.getEvents(0).setV1(500);
+        ClientData.GameData bot = nextFrame(frameBuffer);
+
+        assertEquals(1, bot.getFrameCount());
+        assertEquals(5, bot.getUnits(5).getHitPoints());
+        assertEquals(500, bot.getUnits(500).getHitPoints());
+        assertEquals("Unannounced units need not be copied", 0, bot.getUnits(900).getHitPoints());
+
+        live.setFrameCount(2);
+        live.setEventCount(0);
+        live.getUnits(500).setHitPoints(499);
+        bot = nextFrame(frameBuffer);
+        assertEquals("Announced units keep being copied", 499, bot.getUnits(500).getHitPoints());
+    }
+
+    @Test
+    public void ifNotCopyingLiveUnitsOnly_ThenCopiesAllUnits() {
+        BWClientConfiguration configuration = new BWClientConfiguration.Builder()
+                .withAsync(true)
+                .withAsyncFrameBufferCapacity(2)
+                .withAsyncCopyLiveUnitsOnly(false)
+                .build();
+        FrameBuffer frameBuffer = createFrameBuffer(configuration);
+        ClientData.GameData live = liveClientData.gameData();
+        nextFrame(frameBuffer);
+
+        live.setFrameCount(1);
+        live.getUnits(9999).setHitPoints(9999);
+        ClientData.GameData bot = nextFrame(frameBuffer);
+
+        assertEquals(9999, bot.getUnits(9999).getHitPoints());
+    }
+
+    @Test
+    public void copiesUnitFinderOnlyIfConfigured() {
+        for (boolean copyUnitFinder : new boolean[] { false, true }) {
+            BWClientConfiguration configuration = new BWClientConfiguration.Builder()
+                    .withAsync(true)
+                    .withAsyncFrameBufferCapacity(2)
+                    .withAsyncCompactFrames(copyUnitFinder)
+                    .withAsyncCopyUnitFinder(copyUnitFinder)
+                    .build();
+            FrameBuffer frameBuffer = createFrameBuffer(configuration);
+            ClientData.GameData live = liveClientData.gameData();
+            live.setUnitSearchSize(0);
+            nextFrame(frameBuffer);
+
+            live.setFrameCount(1);
+            live.setUnitSearchSize(2);
+            live.getXUnitSearch(1).setSearchValue(100);
+            live.getYUnitSearch(1).setSearchValue(200);
+            ClientData.GameData bot = nextFrame(frameBuffer);
+
+            assertEquals(copyUnitFinder ? 2 : 0, bot.getUnitSearchSize());
+            assertEquals(copyUnitFinder ? 100 : 0, bot.getXUnitSearch(1).getSearchValue());
+            assertEquals(copyUnitFinder ? 200 : 0, bot.getYUnitSearch(1).getSearchValue());
+        }
+    }
+
+    @Test
+    public void ifCopyingInParallel_ThenCopiesEverySegment() {
+        BWClientConfiguration configuration = new BWClientConfiguration.Builder()
+                .withAsync(true)
+                .withAsyncFrameBufferCapacity(2)
+                .withAsyncCopyThreads(3)
+                .withAsyncCopyLiveUnitsOnly(false)
+                .build();
+        FrameBuffer frameBuffer = createFrameBuffer(configuration);
+        ClientData.GameData live = liveClientData.gameData();
+        live.setIsWalkable(100, 100, true);
+        live.setMapTileRegionId(10, 10, (short) 10);
+        ClientData.GameData bot = nextFrame(frameBuffer);
+        assertEquals(true, bot.isWalkable(100, 100));
+        assertEquals(10, bot.getMapTileRegionId(10, 10));
+
+        live.setFrameCount(1);
+        live.getUnits(9999).setHitPoints(9999);
+        live.setIsVisible(200, 200, true);
+        live.setEventCount(5);
+        live.setUnitCommandCount(7);
+        bot = nextFrame(frameBuffer);
+
+        assertEquals(1, bot.getFrameCount());
+        assertEquals(9999, bot.getUnits(9999).getHitPoints());
+        assertEquals(true, bot.isVisible(200, 200));
+        assertEquals(5, bot.getEventCount());
+        assertEquals(7, bot.getUnitCommandCount());
+        assertEquals(10, bot.getMapTileRegionId(10, 10));
+    }
+
+    @Test
+    public void ifCompactFrames_ThenFramesShareStaticDataAndKeepTheirOwnMutableData() {
+        BWClientConfiguration configuration = new BWClientConfiguration.Builder()
+                .withAsync(true)
+                .withAsyncFrameBufferCapacity(3)
+                .withAsyncCompactFrames(true)
+                .build();
+        FrameBuffer frameBuffer = createFrameBuffer(configuration);
+        ClientData.GameData live = liveClientData.gameData();
+        live.setInitialUnitCount(1);
+        live.setIsWalkable(100, 100, true);
+        live.setMapTileRegionId(10, 10, (short) 10);
+        live.setMapFileName("maps/compact.scx");
+        ClientData.GameData bot = nextFrame(frameBuffer);
+        assertEquals(true, bot.isWalkable(100, 100));
+        assertEquals(10, bot.getMapTileRegionId(10, 10));
+        assertEquals("maps/compact.scx", bot.getMapFileName());
+
+        // Buffer two frames before reading either, so they occupy different slots at once
+        live.setFrameCount(1);
+        live.getUnits(0).setHitPoints(1);
+        live.setIsVisible(200, 200, true);
+        live.setEventStringCount(1);
+        live.setEventStrings(0, "first");
+        frameBuffer.enqueueFrame();
+        live.setFrameCount(2);
+        live.getUnits(0).setHitPoints(2);
+        live.setIsVisible(200, 200, false);
+        live.setEventStrings(0, "second");
+        frameBuffer.enqueueFrame();
+
+        ClientData botClientData = new ClientData();
+        botClientData.setBuffer(frameBuffer.peek());
+        bot = botClientData.gameData();
+        assertEquals(1, bot.getFrameCount());
+        assertEquals(1, bot.getUnits(0).getHitPoints());
+        assertEquals(true, bot.isVisible(200, 200));
+        assertEquals("first", bot.getEventStrings(0));
+        assertEquals(true, bot.isWalkable(100, 100));
+        frameBuffer.dequeue();
+
+        botClientData.setBuffer(frameBuffer.peek());
+        bot = botClientData.gameData();
+        assertEquals(2, bot.getFrameCount());
+        assertEquals(2, bot.getUnits(0).getHitPoints());
+        assertEquals(false, bot.isVisible(200, 200));
+        assertEquals("second", bot.getEventStrings(0));
+        assertEquals(10, bot.getMapTileRegionId(10, 10));
+        frameBuffer.dequeue();
+    }
+
+    private void setEvent(ClientData.GameData gameData, int index, EventType type, int v1, int v2) {
+        ClientData.Event event = gameData.getEvents(index);
+        event.setType(type);
+        event.setV1(v1);
+        event.setV2(v2);
+    }
+
+    @Test
+    public void skipToLatestFrame_MergesEventsOfSkippedFrames() {
+        BWClientConfiguration configuration = new BWClientConfiguration.Builder()
+                .withAsync(true)
+                .withAsyncFrameBufferCapacity(4)
+                .withAsyncSkipToLatestFrame(true)
+                .build();
+        FrameBuffer frameBuffer = createFrameBuffer(configuration);
+        ClientData.GameData live = liveClientData.gameData();
+        nextFrame(frameBuffer);
+        assertEquals(0, frameBuffer.skipToLatestFrame());
+
+        live.setFrameCount(1);
+        live.setEventCount(2);
+        live.setEventStringCount(1);
+        live.setEventStrings(0, "gg");
+        setEvent(live, 0, EventType.UnitCreate, 7, 0);
+        setEvent(live, 1, EventType.ReceiveText, 1, 0);
+        frameBuffer.enqueueFrame();
+
+        live.setFrameCount(2);
+        live.setEventCount(2);
+        live.setEventStringCount(0);
+        setEvent(live, 0, EventType.UnitDestroy, 7, 0);
+        setEvent(live, 1, EventType.MatchFrame, 0, 0);
+        frameBuffer.enqueueFrame();
+
+        live.setFrameCount(3);
+        live.setEventCount(2);
+        live.setEventStringCount(1);
+        live.setEventStrings(0, "wp");
+        setEvent(live, 0, EventType.SendText, 0, 0);
+        setEvent(live, 1, EventType.MatchFrame, 0, 0);
+        frameBuffer.enqueueFrame();
+
+        assertEquals(2, frameBuffer.skipToLatestFrame());
+        assertEquals(1, frameBuffer.size());
+        ClientData botClientData = new ClientData();
+        botClientData.setBuffer(frameBuffer.peek());
+        ClientData.GameData bot = botClientData.gameData();
+        assertEquals(3, bot.getFrameCount());
+        assertEquals("Skipped MatchFrame events are dropped", 5, bot.getEventCount());
+        assertEquals(EventType.UnitCreate, bot.getEvents(0).getType());
+        assertEquals(EventType.ReceiveText, bot.getEvents(1).getType());
+        assertEquals(1, bot.getEvents(1).getV1());
+        assertEquals("gg", bot.getEventStrings(bot.getEvents(1).getV2()));
+        assertEquals(EventType.UnitDestroy, bot.getEvents(2).getType());
+        assertEquals(7, bot.getEvents(2).getV1());
+        assertEquals(EventType.SendText, bot.getEvents(3).getType());
+        assertEquals("wp", bot.getEventStrings(bot.getEvents(3).getV1()));
+        assertEquals(EventType.MatchFrame, bot.getEvents(4).getType());
+        frameBuffer.dequeue();
+        assertTrue(frameBuffer.empty());
+    }
+
+    @Test
+    public void compactFramesStoreEveryMutableSection() {
+        int stored = 0;
+        for (int run = 0; run < WrappedBufferCompact.RUN_OFFSETS.length; run++) {
+            stored += WrappedBufferCompact.RUN_SIZES[run];
+        }
+        assertEquals(WrappedBufferCompact.PACKED_SIZE, stored);
+        assertTrue("Compact frames should be much smaller than full ones", 4 * stored < ClientData.GameData.SIZE);
+        for (int[] section : FrameBuffer.MUTABLE_SECTIONS) {
+            boolean covered = false;
+            for (int run = 0; run < WrappedBufferCompact.RUN_OFFSETS.length; run++) {
+                covered |= WrappedBufferCompact.RUN_OFFSETS[run] <= section[0]
+                    && section[1] <= WrappedBufferCompact.RUN_OFFSETS[run] + WrappedBufferCompact.RUN_SIZES[run];
+            }
+            assertTrue(covered);
+        }
+    }
+}
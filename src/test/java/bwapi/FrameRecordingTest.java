@@ -0,0 +1,223 @@
+package bwapi;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class FrameRecordingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final WrappedBuffer liveData = GameBuilder.binToBufferUnchecked(GameBuilder.DEFAULT_BUFFER_PATH);
+    private final ClientData liveClientData = new ClientData();
+
+    private ClientData.GameData live() {
+        liveClientData.setBuffer(liveData);
+        return liveClientData.gameData();
+    }
+
+    private void setFrame(int frame, EventType event) {
+        ClientData.GameData live = live();
+        live.setIsInGame(true);
+        live.setFrameCount(frame);
+        live.getUnits(0).setHitPoints(frame);
+        live.setEventCount(1);
+        live.getEvents(0).setType(event);
+    }
+
+    /**
+     * Records a game which starts in the menus, then plays three frames and ends.
+     */
+    private String recordGame() throws IOException {
+        final String path = new File(folder.getRoot(), "game.jbwr").getPath();
+        try (FrameRecorder recorder = new FrameRecorder(path, liveData)) {
+            live().setIsInGame(false);
+            live().setEventCount(0);
+            recorder.recordFrame();
+            recorder.recordCommands();
+            setFrame(0, EventType.MatchStart);
+            recorder.recordFrame();
+            live().setUnitCommandCount(3);
+            recorder.recordCommands();
+            setFrame(1, EventType.MatchFrame);
+            recorder.recordFrame();
+            setFrame(2, EventType.MatchFrame);
+            recorder.recordFrame();
+            setFrame(3, EventType.MatchEnd);
+            recorder.recordFrame();
+        }
+        return path;
+    }
+
+    @Test
+    public void replayedFramesMatchRecordedFrames() throws IOException {
+        final String mapFileName = live().getMapFileName();
+        final ClientConnectionRecording replay = new ClientConnectionRecording(recordGame());
+        final WrappedBuffer replayData = replay.getSharedMemory(1);
+        final ClientData replayClientData = new ClientData();
+        replayClientData.setBuffer(replayData);
+        final ClientData.GameData replayed = replayClientData.gameData();
+
+        replay.waitForServerData();
+        assertFalse(replayed.isInGame());
+        assertEquals(mapFileName, replayed.getMapFileName());
+
+        for (int frame = 0; frame <= 3; frame++) {
+            replay.submitClientData();
+            replay.waitForServerData();
+            assertTrue(replayed.isInGame());
+            assertEquals(frame, replayed.getFrameCount());
+            assertEquals(frame, replayed.getUnits(0).getHitPoints());
+            assertEquals(mapFileName, replayed.getMapFileName());
+        }
+        assertEquals(5, replay.getFramesPlayed());
+
+        replay.waitForServerData();
+        assertFalse("The game ends after the last recorded frame", replayed.isInGame());
+        try {
+            replay.waitForServerData();
+            fail("The connection closes after the game ends");
+        } catch (IOException expected) {
+            // Expected
+        }
+        replay.disconnect();
+    }
+
+    @Test
+    public void botPlaysRecordedGame() throws IOException {
+        final String path = recordGame();
+        final List<Integer> framesSeen = new ArrayList<>();
+        final int[] starts = { 0 };
+        final int[] ends = { 0 };
+        final BWClient[] bwClient = new BWClient[1];
+        bwClient[0] = new BWClient(new DefaultBWListener() {
+            @Override
+            public void onStart() {
+                ++starts[0];
+            }
+
+            @Override
+            public void onFrame() {
+                framesSeen.add(bwClient[0].getGame().getFrameCount());
+            }
+
+            @Override
+            public void onEnd(boolean isWinner) {
+                ++ends[0];
+            }
+        });
+        bwClient[0].startRecordedGame(path, new BWClientConfiguration.Builder().build());
+
+        assertEquals(1, starts[0]);
+        assertEquals(1, ends[0]);
+        assertEquals(2, framesSeen.size());
+        assertEquals(1, (int) framesSeen.get(0));
+        assertEquals(2, (int) framesSeen.get(1));
+    }
+
+    @Test
+    public void missingRecordingIsReportedAsUnreadable() {
+        final String path = new File(folder.getRoot(), "missing.jbwr").getPath();
+        try {
+            new ClientConnectionRecording(path).getSharedMemory(1);
+            fail("A missing recording cannot be played back");
+        } catch (RecordingConnectionException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unable to read recording " + path));
+        }
+    }
+
+    @Test
+    public void framesRecycledByTheWriterReplayInOrder() throws IOException {
+        final String path = new File(folder.getRoot(), "long.jbwr").getPath();
+        try (FrameRecorder recorder = new FrameRecorder(path, liveData)) {
+            for (int frame = 0; frame < 20; frame++) {
+                setFrame(frame, EventType.MatchFrame);
+                recorder.recordFrame();
+                live().setUnitCommandCount(frame);
+                recorder.recordCommands();
+            }
+        }
+        final ClientConnectionRecording replay = new ClientConnectionRecording(path);
+        final ClientData replayClientData = new ClientData();
+        replayClientData.setBuffer(replay.getSharedMemory(1));
+        for (int frame = 0; frame < 20; frame++) {
+            replay.waitForServerData();
+            assertEquals(frame, replayClientData.gameData().getFrameCount());
+            assertEquals(frame, replayClientData.gameData().getUnits(0).getHitPoints());
+        }
+        replay.disconnect();
+    }
+
+    @Test
+    public void botCanDrawOnEveryReplayedFrame() throws IOException {
+        final String path = new File(folder.getRoot(), "drawing.jbwr").getPath();
+        try (FrameRecorder recorder = new FrameRecorder(path, liveData)) {
+            live().setIsInGame(false);
+            live().setEventCount(0);
+            recorder.recordFrame();
+            setFrame(0, EventType.MatchStart);
+            recorder.recordFrame();
+            for (int frame = 1; frame <= 30; frame++) {
+                setFrame(frame, EventType.MatchFrame);
+                recorder.recordFrame();
+            }
+            setFrame(31, EventType.MatchEnd);
+            recorder.recordFrame();
+        }
+
+        final int[] frames = { 0 };
+        final int[] shapes = { 0 };
+        final BWClient[] bwClient = new BWClient[1];
+        bwClient[0] = new BWClient(new DefaultBWListener() {
+            @Override
+            public void onFrame() {
+                final Game game = bwClient[0].getGame();
+                // Enough that the shapes of all the frames together would not fit
+                for (int i = 0; i < 1000; i++) {
+                    game.drawBoxMap(i, i, i + 10, i + 10, Color.Green);
+                }
+                shapes[0] = Math.max(shapes[0], game.botClientData().gameData().getShapeCount());
+                ++frames[0];
+            }
+        });
+        bwClient[0].startRecordedGame(path, new BWClientConfiguration.Builder().build());
+
+        assertEquals(30, frames[0]);
+        assertEquals("Shapes drawn on earlier frames are cleared", 1000, shapes[0]);
+    }
+
+    @Test
+    public void playingARecordingLeavesTheLiveClient() throws IOException {
+        final BWClient bwClient = new BWClient(new DefaultBWListener());
+        final Client liveClient = mock(Client.class);
+        bwClient.setClient(liveClient);
+        try {
+            bwClient.startRecordedGame(new File(folder.getRoot(), "missing.jbwr").getPath(), new BWClientConfiguration.Builder().build());
+            fail("A missing recording cannot be played back");
+        } catch (IllegalArgumentException expected) {
+            assertSame(liveClient, bwClient.getClient());
+        }
+        bwClient.startRecordedGame(recordGame(), new BWClientConfiguration.Builder().build());
+        assertSame(liveClient, bwClient.getClient());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingRecordingIsRejected() {
+        new BWClient(new DefaultBWListener()).startRecordedGame(
+            new File(folder.getRoot(), "missing.jbwr").getPath(),
+            new BWClientConfiguration.Builder().build());
+    }
+}
@@ -0,0 +1,98 @@
+package bwapi;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameTracerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static int occurrences(String text, String pattern) {
+        int count = 0;
+        for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1)) {
+            ++count;
+        }
+        return count;
+    }
+
+    @Test
+    public void writesSpansAsTraceEvents() throws IOException {
+        File file = folder.newFile("trace.json");
+        FrameTracer tracer = new FrameTracer(file.getPath(), 16);
+        long start = tracer.begin();
+        tracer.end(FrameTracer.HANDLE_EVENTS, start, 7);
+        tracer.end("quote\"d", tracer.begin(), 8);
+        tracer.write();
+
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(json.contains("\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":\"" + Thread.currentThread().getName() + "\"}"));
+        assertTrue(json.contains("{\"name\":\"handleEvents\",\"ph\":\"X\",\"pid\":1,\"tid\":0,\"ts\":"));
+        assertTrue(json.contains("\"args\":{\"frame\":7}"));
+        assertTrue(json.contains("\"name\":\"quote\\\"d\""));
+    }
+
+    @Test
+    public void keepsOnlyTheNewestSpans() throws IOException {
+        File file = folder.newFile("trace.json");
+        FrameTracer tracer = new FrameTracer(file.getPath(), 4);
+        for (int frame = 0; frame < 10; frame++) {
+            tracer.end(FrameTracer.COPY_BUFFER, tracer.begin(), frame);
+        }
+        tracer.write();
+
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertEquals(10, tracer.getSpansRecorded());
+        assertEquals(4, occurrences(json, "\"ph\":\"X\""));
+        assertTrue(json.contains("\"frame\":9}"));
+        assertFalse(json.contains("\"frame\":5}"));
+    }
+
+    @Test
+    public void gameTraceSpansNestSeparatelyOnEachThread() throws IOException, InterruptedException {
+        File file = folder.newFile("trace.json");
+        FrameTracer tracer = new FrameTracer(file.getPath(), 16);
+        Game game = GameBuilder.createGame();
+        game.setTracer(tracer);
+
+        game.beginTraceSpan("outer");
+        Thread worker = new Thread(() -> {
+            game.beginTraceSpan("worker");
+            game.endTraceSpan();
+            // Has no span of its own left to close, and must not close the other thread's
+            game.endTraceSpan();
+        }, "Worker");
+        worker.start();
+        worker.join();
+        assertEquals(1, tracer.getSpansRecorded());
+
+        game.beginTraceSpan("inner");
+        game.endTraceSpan();
+        game.endTraceSpan();
+        tracer.write();
+
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertEquals(3, tracer.getSpansRecorded());
+        assertTrue(json.contains("{\"name\":\"worker\",\"ph\":\"X\",\"pid\":1,\"tid\":0,"));
+        assertTrue(json.contains("{\"name\":\"inner\",\"ph\":\"X\",\"pid\":1,\"tid\":1,"));
+        assertTrue(json.contains("{\"name\":\"outer\",\"ph\":\"X\",\"pid\":1,\"tid\":1,"));
+    }
+
+    @Test
+    public void disabledTracerRecordsNothing() throws IOException {
+        FrameTracer.DISABLED.end(FrameTracer.COPY_BUFFER, FrameTracer.DISABLED.begin(), 0);
+        FrameTracer.DISABLED.write();
+        assertEquals(0, FrameTracer.DISABLED.getSpansRecorded());
+    }
+}
@@ -0,0 +1,61 @@
+package bwapi;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameWatchdogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void slowHandler(long millis) {
+        final long end = System.nanoTime() + millis * 1000000;
+        while (System.nanoTime() < end) {
+            Thread.yield();
+        }
+    }
+
+    @Test
+    public void samplesOnlyFramesOverThreshold() throws IOException {
+        File profile = folder.newFile("profile.folded");
+        FrameWatchdog watchdog = new FrameWatchdog(profile.getPath(), 20, 1);
+        watchdog.start();
+
+        watchdog.frameStarted();
+        watchdog.frameEnded();
+        watchdog.frameStarted();
+        slowHandler(100);
+        watchdog.frameEnded();
+        watchdog.stop();
+
+        assertEquals(1, watchdog.getOverruns());
+        assertTrue(watchdog.getSamplesTaken() > 0);
+        List<String> lines = Files.readAllLines(profile.toPath(), StandardCharsets.UTF_8);
+        assertTrue(lines.size() > 0);
+        long samples = 0;
+        for (String line : lines) {
+            samples += Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+        }
+        assertEquals(watchdog.getSamplesTaken(), samples);
+        assertTrue(lines.stream().anyMatch(line -> line.contains("bwapi.FrameWatchdogTest.slowHandler")));
+    }
+
+    @Test
+    public void foldsStacksOutermostFirst() {
+        StackTraceElement[] stack = {
+            new StackTraceElement("bot.Inner", "search", "Inner.java", 1),
+            new StackTraceElement("bot.Outer", "on Frame;", "Outer.java", 2)
+        };
+        assertEquals("bot.Outer.on_Frame:;bot.Inner.search", FrameWatchdog.fold(stack));
+    }
+}
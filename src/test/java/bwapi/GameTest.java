@@ -9,10 +9,13 @@ import org.junit.experimental.theories.Theory;
 import org.junit.runner.RunWith;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
@@ -82,6 +85,61 @@ public class GameTest {
         assertThat(unitsInRectangle).doesNotContain(dummy);
     }
 
+    @Test
+    public void queryVariantsFindTheSameUnits() throws IOException {
+        final Game game = GameBuilder.createGame();
+        final UnitFilter pred = u -> u.getID() % 2 == 0;
+        final List<Unit> output = new ArrayList<>();
+        final List<Unit> visited = new ArrayList<>();
+        final Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            final int left = random.nextInt(game.mapWidth() * 32);
+            final int top = random.nextInt(game.mapHeight() * 32);
+            final List<Unit> expected = game.getUnitsInRectangle(left, top, left + 500, top + 500, pred);
+            output.clear();
+            visited.clear();
+            game.getUnitsInRectangle(left, top, left + 500, top + 500, pred, output);
+            game.forEachUnitInRectangle(left, top, left + 500, top + 500, pred, visited::add);
+            assertThat(output).containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(visited).containsExactlyInAnyOrderElementsOf(expected);
+            assertEquals(expected.size(), game.countUnitsInRectangle(left, top, left + 500, top + 500, pred));
+            assertEquals( ! expected.isEmpty(), game.hasUnitInRectangle(left, top, left + 500, top + 500, pred));
+
+            final Position center = new Position(left, top);
+            final List<Unit> inRadius = game.getUnitsInRadius(center, 300, pred);
+            output.clear();
+            game.getUnitsInRadius(center, 300, pred, output);
+            assertThat(output).containsExactlyInAnyOrderElementsOf(inRadius);
+            assertEquals(inRadius.size(), game.countUnitsInRadius(center, 300, pred));
+            assertEquals( ! inRadius.isEmpty(), game.hasUnitInRadius(center, 300, pred));
+        }
+        for (Unit unit : game.getAllUnits()) {
+            final TilePosition tile = unit.getTilePosition();
+            output.clear();
+            game.getUnitsOnTile(tile.x, tile.y, pred, output);
+            assertThat(output).containsExactlyInAnyOrderElementsOf(game.getUnitsOnTile(tile.x, tile.y, pred));
+            assertEquals(game.getUnitsOnTile(tile).size(), game.countUnitsOnTile(tile.x, tile.y, u -> true));
+            assertTrue(game.hasUnitOnTile(tile.x, tile.y, u -> u == unit));
+
+            output.clear();
+            unit.getUnitsInRadius(200, pred, output);
+            assertThat(output).containsExactlyInAnyOrderElementsOf(unit.getUnitsInRadius(200, pred));
+            assertEquals(output.size(), unit.countUnitsInRadius(200, pred));
+        }
+
+        output.clear();
+        game.getMinerals(output);
+        assertEquals(game.getMinerals(), output);
+        visited.clear();
+        game.forEachNeutralUnit(visited::add);
+        assertEquals(game.getNeutralUnits(), visited);
+        final Player neutral = game.neutral();
+        output.clear();
+        neutral.getUnits(output);
+        assertEquals(neutral.getUnits(), output);
+        assertEquals(game.getNeutralUnits(), output);
+    }
+
     @Test
     public void ifReplaySelfAndEnemyShouldBeNull() throws IOException {
         WrappedBuffer buffer = GameBuilder.binToBuffer(GameBuilder.DEFAULT_BUFFER_PATH);
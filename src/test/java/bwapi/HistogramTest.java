@@ -0,0 +1,115 @@
+package bwapi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class HistogramTest {
+
+    private static void assertClose(double expected, double actual) {
+        assertEquals(expected, actual, Math.max(0.001, expected / 64));
+    }
+
+    @Test
+    public void percentilesAreWithinPrecision() {
+        Histogram histogram = new Histogram(0.001);
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i / 100d);
+        }
+        assertEquals(10000, histogram.getTotalCount());
+        assertClose(50.005, histogram.getMean());
+        assertClose(50, histogram.getValueAtPercentile(50));
+        assertClose(99, histogram.getValueAtPercentile(99));
+        assertClose(99.9, histogram.getValueAtPercentile(99.9));
+        assertClose(100, histogram.getValueAtPercentile(100));
+        assertClose(100, histogram.getMax());
+        assertClose(0.01, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void countsValuesAtOrAboveThreshold() {
+        Histogram histogram = new Histogram(0.001);
+        histogram.record(10);
+        histogram.record(54);
+        histogram.record(56);
+        histogram.record(1200);
+        histogram.record(-5);
+        histogram.record(Double.MAX_VALUE);
+        assertEquals(3, histogram.getCountAtOrAbove(55));
+        assertEquals(2, histogram.getCountAtOrAbove(1000));
+        assertEquals(6, histogram.getCountAtOrAbove(0));
+        assertEquals(0, histogram.getValueAtPercentile(1), 0);
+    }
+
+    @Test
+    public void intervalsCoverValuesSinceLastInterval() {
+        Histogram histogram = new Histogram(1);
+        histogram.record(1);
+        histogram.record(2);
+        Histogram interval = histogram.getIntervalHistogram();
+        assertEquals(2, interval.getTotalCount());
+        assertEquals(2, interval.getMax(), 0);
+
+        histogram.record(7);
+        histogram.getIntervalHistogram(interval);
+        assertEquals(1, interval.getTotalCount());
+        assertEquals(7, interval.getValueAtPercentile(1), 0);
+        assertEquals(3, histogram.getTotalCount());
+
+        histogram.getIntervalHistogram(interval);
+        assertEquals(0, interval.getTotalCount());
+    }
+
+    @Test
+    public void histogramsMerge() {
+        Histogram first = new Histogram(1);
+        Histogram second = new Histogram(1);
+        first.record(10);
+        second.record(20);
+        second.record(30);
+        Histogram total = first.copy();
+        total.add(second);
+        assertEquals(3, total.getTotalCount());
+        assertEquals(20, total.getMean(), 0);
+        assertEquals(30, total.getMax(), 0);
+        assertEquals(1, first.getTotalCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void histogramsOfDifferentResolutionsDoNotMerge() {
+        new Histogram(1).add(new Histogram(0.5));
+    }
+
+    @Test
+    public void recordsFromConcurrentThreads() throws InterruptedException {
+        Histogram histogram = new Histogram(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    histogram.record(i % 100);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400000, histogram.getTotalCount());
+        assertEquals(4000, histogram.getCountAtOrAbove(99));
+    }
+
+    @Test
+    public void performanceMetricsRecordHistograms() {
+        PerformanceMetrics metrics = new PerformanceMetrics(new BWClientConfiguration.Builder().build());
+        PerformanceMetric metric = metrics.getFrameBufferSize();
+        metric.record(1);
+        metric.record(3);
+        assertEquals(2, metric.getHistogram().getTotalCount());
+        assertClose(3, metric.getHistogram().getValueAtPercentile(99));
+    }
+}
@@ -0,0 +1,96 @@
+package bwapi;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JfrEventsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<RecordedEvent> record(String eventName, Runnable runnable) throws IOException {
+        Assume.assumeTrue(JfrEvents.ENABLED);
+        Path file = folder.newFile("recording.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable(eventName).withThreshold(java.time.Duration.ZERO);
+            recording.start();
+            runnable.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+            .filter(event -> event.getEventType().getName().equals(eventName))
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void timedMetricsEmitFramePhases() throws IOException {
+        WrappedBuffer buffer = new WrappedBuffer(ClientData.GameData.SIZE);
+        ClientData clientData = new ClientData();
+        clientData.setBuffer(buffer);
+        clientData.gameData().setFrameCount(42);
+        clientData.gameData().setEventCount(3);
+        clientData.gameData().setUnitCommandCount(7);
+
+        PerformanceMetrics metrics = new PerformanceMetrics(new BWClientConfiguration.Builder().build());
+        metrics.setFrameSources(clientData.gameData(), clientData.gameData());
+
+        List<RecordedEvent> events = record("bwapi.FramePhase", () -> {
+            metrics.getFlushSideEffects().time(() -> {});
+            metrics.getNumberOfEvents().record(3);
+        });
+
+        assertEquals("Only timed metrics emit events", 1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("Time flushing side effects", event.getString("phase"));
+        assertEquals(42, event.getInt("frame"));
+        assertEquals(3, event.getInt("events"));
+        assertEquals(7, event.getInt("unitCommands"));
+    }
+
+    @Test
+    public void eventDispatchesAreRecorded() throws IOException {
+        List<RecordedEvent> events = record("bwapi.EventDispatch", () -> {
+            Object handle = JfrEvents.beginDispatch();
+            JfrEvents.commitDispatch(handle, EventType.UnitCreate, 5, 123);
+        });
+
+        assertEquals(1, events.size());
+        assertEquals("UnitCreate", events.get(0).getString("eventType"));
+        assertEquals(5, events.get(0).getInt("frame"));
+        assertEquals(123, events.get(0).getInt("value"));
+    }
+
+    @Test
+    public void nothingIsBegunWhenNotRecording() {
+        Assume.assumeTrue(JfrEvents.ENABLED);
+        assertTrue(JfrEvents.beginPhase() == null);
+        assertTrue(JfrEvents.beginDispatch() == null);
+    }
+
+    @Test
+    public void recordingFlagFollowsRecordingState() {
+        Assume.assumeTrue(JfrEvents.ENABLED);
+        assertFalse(JfrEvents.isRecording());
+        try (Recording recording = new Recording()) {
+            recording.start();
+            assertTrue(JfrEvents.isRecording());
+            recording.stop();
+            assertFalse(JfrEvents.isRecording());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package bwapi;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryMonitorTest {
+
+    @Test
+    public void measuresAllocationOnCurrentThread() {
+        Assume.assumeTrue(MemoryMonitor.canMeasureAllocation());
+        long before = MemoryMonitor.allocatedBytes();
+        byte[] allocated = new byte[1 << 20];
+        long after = MemoryMonitor.allocatedBytes();
+        assertTrue(allocated.length > 0);
+        assertTrue(after - before >= 1 << 20);
+    }
+
+    @Test
+    public void countsOnlyPauseTimeWithinWindow() {
+        // Far past any real pause, so collections during the test do not interfere
+        long base = MemoryMonitor.uptimeMillis() + 1000000000L;
+        MemoryMonitor.recordPause(base + 10, base + 20);
+        MemoryMonitor.recordPause(base + 30, base + 35);
+        assertEquals(0, MemoryMonitor.pauseMillisBetween(base, base + 10));
+        assertEquals(10, MemoryMonitor.pauseMillisBetween(base, base + 25));
+        assertEquals(5, MemoryMonitor.pauseMillisBetween(base + 15, base + 25));
+        assertEquals(10, MemoryMonitor.pauseMillisBetween(base + 15, base + 40));
+        assertEquals(0, MemoryMonitor.pauseMillisBetween(base + 40, base + 50));
+    }
+}
@@ -0,0 +1,68 @@
+package bwapi;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PerformanceMetricsTest {
+
+    @Test
+    public void eventTypeMetricsAreOffByDefault() {
+        PerformanceMetrics metrics = new PerformanceMetrics(new BWClientConfiguration.Builder().build());
+        assertNull(metrics.getEventTypeDuration(EventType.MatchFrame));
+        assertNull(metrics.getEventTypeCount(EventType.MatchFrame));
+    }
+
+    @Test
+    public void eventTypeMetricsCanBeEnabled() {
+        PerformanceMetrics metrics = new PerformanceMetrics(new BWClientConfiguration.Builder()
+            .withEventTypeMetrics(true)
+            .build());
+        assertNotNull(metrics.getEventTypeDuration(EventType.MatchFrame));
+        assertNotNull(metrics.getEventTypeCount(EventType.MatchFrame));
+    }
+
+    @Test
+    public void resetClearsMetricsInPlace() {
+        PerformanceMetrics metrics = new PerformanceMetrics(new BWClientConfiguration.Builder().build());
+        PerformanceMetric frameBufferSize = metrics.getFrameBufferSize();
+        frameBufferSize.record(3);
+        frameBufferSize.record(5);
+
+        metrics.reset();
+        assertSame("Threads recording keep using the same metric", frameBufferSize, metrics.getFrameBufferSize());
+        assertEquals(0, frameBufferSize.getRunningTotal().getSamples(), 0);
+        assertEquals(0, frameBufferSize.getHistogram().getTotalCount());
+        assertEquals("Frames already buffered when enqueuing a new frame: No samples.", frameBufferSize.toString());
+
+        frameBufferSize.record(1);
+        assertEquals(1, frameBufferSize.getRunningTotal().getSamples(), 0);
+        assertEquals(1, frameBufferSize.getRunningTotal().getMax(), 0);
+        assertEquals(1, frameBufferSize.getHistogram().getTotalCount());
+    }
+
+    @Test
+    public void resetsFromAnotherThreadDoNotDisturbRecording() throws InterruptedException {
+        PerformanceMetrics metrics = new PerformanceMetrics(new BWClientConfiguration.Builder().build());
+        Thread resetter = new Thread(() -> {
+            for (int i = 0; i < 1000; i++) {
+                metrics.reset();
+                metrics.toString();
+            }
+        });
+        resetter.start();
+        for (int i = 0; i < 1000; i++) {
+            metrics.getBotResponse().record(1);
+            metrics.taskDuration("task " + i % 100).record(1);
+        }
+        resetter.join();
+
+        metrics.reset();
+        metrics.getBotResponse().record(2);
+        assertEquals(1, metrics.getBotResponse().getRunningTotal().getSamples(), 0);
+        assertEquals(2, metrics.getBotResponse().getRunningTotal().getMean(), 0);
+    }
+}
@@ -0,0 +1,92 @@
+package bwapi;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SideEffectQueueTest {
+
+    private final ClientData clientData = new ClientData();
+    private final ClientData.GameData gameData;
+
+    public SideEffectQueueTest() {
+        clientData.setBuffer(new WrappedBuffer(ClientData.GameData.SIZE));
+        gameData = clientData.gameData();
+    }
+
+    @Test
+    public void flushTo_AppliesSideEffectsInOrder() {
+        SideEffectQueue sideEffects = new SideEffectQueue();
+        sideEffects.addUnitCommand(1, 2, 3, 4, 5, 6);
+        sideEffects.addUnitCommand(7, 8, 9, 10, 11, 12);
+        sideEffects.addCommand(CommandType.SetLocalSpeed, 42, 0);
+        sideEffects.addShape(ShapeType.Box, CoordinateType.Map, 1, 2, 3, 4, 5, 6, 7, true);
+        sideEffects.flushTo(gameData);
+
+        assertEquals(2, gameData.getUnitCommandCount());
+        assertEquals(1, gameData.getUnitCommands(0).getTid());
+        assertEquals(6, gameData.getUnitCommands(0).getExtra());
+        assertEquals(8, gameData.getUnitCommands(1).getUnitIndex());
+        assertEquals(1, gameData.getCommandCount());
+        assertEquals(CommandType.SetLocalSpeed, gameData.getCommands(0).getType());
+        assertEquals(42, gameData.getCommands(0).getValue1());
+        assertEquals(1, gameData.getShapeCount());
+        ClientData.Shape shape = gameData.getShapes(0);
+        assertEquals(ShapeType.Box, shape.getType());
+        assertEquals(CoordinateType.Map, shape.getCtype());
+        assertEquals(4, shape.getY2());
+        assertEquals(5, shape.getExtra1());
+        assertEquals(7, shape.getColor());
+        assertEquals(true, shape.isSolid());
+    }
+
+    @Test
+    public void flushTo_StoresRepeatedTextOnce() {
+        SideEffectQueue sideEffects = new SideEffectQueue();
+        for (int i = 0; i < 1000; i++) {
+            sideEffects.addShape(ShapeType.Text, CoordinateType.Map, i, i, 0, 0, "marine", 0, 0, false);
+        }
+        sideEffects.addCommand(CommandType.SendText, "gl hf", 0);
+        sideEffects.flushTo(gameData);
+
+        assertEquals(1000, gameData.getShapeCount());
+        assertEquals(2, gameData.getStringCount());
+        assertEquals("marine", gameData.getStrings(gameData.getShapes(999).getExtra1()));
+        assertEquals("gl hf", gameData.getStrings(gameData.getCommands(0).getValue1()));
+    }
+
+    @Test
+    public void flushTo_InternsTextAgainAfterEachFlush() {
+        SideEffectQueue sideEffects = new SideEffectQueue();
+        for (int flush = 0; flush < 3; flush++) {
+            for (int repeat = 0; repeat < 2; repeat++) {
+                for (int i = 0; i < 100; i++) {
+                    sideEffects.addShape(ShapeType.Text, CoordinateType.Map, i, i, 0, 0, "unit " + (i + flush), 0, 0, false);
+                }
+            }
+            gameData.setShapeCount(0);
+            gameData.setStringCount(0);
+            sideEffects.flushTo(gameData);
+
+            assertEquals(200, gameData.getShapeCount());
+            assertEquals(100, gameData.getStringCount());
+            for (int i = 0; i < 100; i++) {
+                assertEquals("unit " + (i + flush), gameData.getStrings(gameData.getShapes(i).getExtra1()));
+                assertEquals("unit " + (i + flush), gameData.getStrings(gameData.getShapes(100 + i).getExtra1()));
+            }
+        }
+    }
+
+    @Test
+    public void flushTo_OnlyFlushesEachSideEffectOnce() {
+        SideEffectQueue sideEffects = new SideEffectQueue();
+        sideEffects.addUnitCommand(1, 2, 3, 4, 5, 6);
+        sideEffects.flushTo(gameData);
+        sideEffects.addUnitCommand(7, 8, 9, 10, 11, 12);
+        sideEffects.flushTo(gameData);
+        sideEffects.flushTo(gameData);
+
+        assertEquals(2, gameData.getUnitCommandCount());
+        assertEquals(7, gameData.getUnitCommands(1).getTid());
+    }
+}
@@ -0,0 +1,52 @@
+package bwapi;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+
+/**
+ * Measures a round trip with BWAPI over the POSIX synchronization socket ("frame done", then "frame ready"),
+ * as JBWAPI does every frame, against a local fake server.
+ */
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(3)
+public class SyncSocketBenchmark {
+    @State(Scope.Thread)
+    public static class Connection {
+        @Param({"streams", "native", "native-busypoll"})
+        String transport;
+
+        SyncSocketServer server;
+        ClientConnectionPosix connection;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            server = new SyncSocketServer();
+            switch (transport) {
+                case "native":
+                    connection = new ClientConnectionPosixNative(0);
+                    break;
+                case "native-busypoll":
+                    connection = new ClientConnectionPosixNative(100);
+                    break;
+                default:
+                    connection = new ClientConnectionPosix();
+            }
+            connection.connectSocket(server.path());
+            connection.waitForServerData();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            connection.disconnect();
+            server.close();
+        }
+    }
+
+    @Benchmark
+    public void sendFrameReceiveFrame(Connection c) throws IOException {
+        c.connection.submitClientData();
+        c.connection.waitForServerData();
+    }
+}
@@ -0,0 +1,57 @@
+package bwapi;
+
+import org.newsclub.net.unix.AFUNIXServerSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * Stands in for BWAPI's end of the POSIX synchronization socket:
+ * answers every "frame done" byte (1) from the client with a "frame ready" byte (2).
+ */
+class SyncSocketServer implements AutoCloseable {
+    private final File socketFile;
+    private final AFUNIXServerSocket serverSocket;
+    private final Thread thread;
+
+    SyncSocketServer() throws IOException {
+        socketFile = File.createTempFile("bwapi_socket_", ".sock");
+        socketFile.delete();
+        serverSocket = AFUNIXServerSocket.newInstance();
+        serverSocket.bind(new AFUNIXSocketAddress(socketFile));
+        thread = new Thread(this::serve, "Fake BWAPI sync socket");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    String path() {
+        return socketFile.getAbsolutePath();
+    }
+
+    private void serve() {
+        try (Socket socket = serverSocket.accept()) {
+            InputStream input = socket.getInputStream();
+            OutputStream output = socket.getOutputStream();
+            // Announce the first frame, as BWAPI does once a client connects
+            output.write(2);
+            int received;
+            while ((received = input.read()) >= 0) {
+                if (received == 1) {
+                    output.write(2);
+                }
+            }
+        } catch (IOException ignored) {
+            // The client hung up
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        socketFile.delete();
+    }
+}
@@ -99,6 +99,47 @@ public class SynchronizationTest {
         environment.runGame();
     }
 
+    @Test
+    public void async_IfLockFree_ThenClientBuffers() {
+        for (AsyncWaitStrategy waitStrategy : new AsyncWaitStrategy[] { AsyncWaitStrategy.Park, AsyncWaitStrategy.SpinThenPark, AsyncWaitStrategy.BusySpin }) {
+            BWClientConfiguration config = new BWClientConfiguration.Builder()
+                    .withAsync(true)
+                    .withAsyncWaitStrategy(waitStrategy)
+                    .withMaxFrameDurationMs(100)
+                    .withAsyncFrameBufferCapacity(4)
+                    .build();
+            SynchronizationEnvironment environment = new SynchronizationEnvironment(config);
+
+            environment.onFrame(1, () -> {
+                sleepUnchecked(500);
+                assertEquals(waitStrategy + ": Bot should be observing an old frame", 1, environment.bwClient.getGame().getFrameCount());
+                assertEquals(waitStrategy + ": Client should be as far ahead as the frame buffer allows", 5, environment.liveGameData().getFrameCount());
+                assertEquals(waitStrategy + ": Bot should be behind the live game", 4, environment.bwClient.framesBehind());
+            });
+
+            environment.onFrame(6, () -> {
+                assertEquals(waitStrategy + ": Bot should be observing the live frame", 6, environment.bwClient.getGame().getFrameCount());
+                assertEquals(waitStrategy + ": Client should not be ahead of the bot", 6, environment.liveGameData().getFrameCount());
+                assertEquals(waitStrategy + ": Bot should not be behind the live game", 0, environment.bwClient.framesBehind());
+            });
+
+            environment.runGame();
+        }
+    }
+
+    @Test
+    public void async_IfLockFree_IfException_ThrowException() {
+        BWClientConfiguration config = new BWClientConfiguration.Builder()
+                .withAsync(true)
+                .withAsyncWaitStrategy(AsyncWaitStrategy.SpinThenPark)
+                .withAsyncFrameBufferCapacity(3)
+                .build();
+        SynchronizationEnvironment environment = new SynchronizationEnvironment(config);
+
+        environment.onFrame(0, () -> { throw new RuntimeException("Simulated bot exception"); });
+        assertThrows(RuntimeException.class, environment::runGame);
+    }
+
     @Test
     public void async_IfBotDelay_ThenClientStalls() {
         BWClientConfiguration config = new BWClientConfiguration.Builder()
@@ -175,7 +216,7 @@ public class SynchronizationTest {
                 .build();
         SynchronizationEnvironment environment = new SynchronizationEnvironment(config);
         environment.runGame(20);
-        final double minObserved = 0.25;
+        final double minObserved = 0.1;
         final double maxObserved = 15;
         final double meanObserved = (minObserved + maxObserved) / 2;
         final double rangeObserved = (maxObserved - minObserved) / 2;
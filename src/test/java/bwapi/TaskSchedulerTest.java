@@ -0,0 +1,92 @@
+package bwapi;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class TaskSchedulerTest {
+    private static final long MS = 1000000;
+
+    private final Game game = new Game();
+    private final PerformanceMetrics metrics = new PerformanceMetrics(new BWClientConfiguration.Builder().build());
+    private final List<String> stepsRun = new ArrayList<>();
+    private TaskScheduler scheduler;
+
+    /**
+     * The fake clock, which each step advances by a millisecond
+     */
+    private long now = 0;
+
+    @Before
+    public void setUp() {
+        BWClient bwClient = mock(BWClient.class);
+        given(bwClient.getGame()).willReturn(game);
+        given(bwClient.getPerformanceMetrics()).willReturn(metrics);
+        given(bwClient.getConfiguration()).willReturn(new BWClientConfiguration.Builder()
+            .withMaxFrameDurationMs(5)
+            .build());
+        scheduler = new TaskScheduler(bwClient, () -> now);
+    }
+
+    private TaskScheduler.Task task(String name, int steps) {
+        final int[] stepsLeft = { steps };
+        return () -> {
+            stepsRun.add(name);
+            now += MS;
+            return --stepsLeft[0] > 0;
+        };
+    }
+
+    @Test
+    public void stepsTasksInTurnUntilTheReserveIsReached() {
+        scheduler.add("a", task("a", 100));
+        scheduler.add("b", task("b", 100));
+
+        game.setFrameDeadlineNanos(now + 10 * MS);
+        assertEquals(8, scheduler.run(2));
+        assertEquals(Arrays.asList("a", "b", "a", "b", "a", "b", "a", "b"), stepsRun);
+
+        stepsRun.clear();
+        game.setFrameDeadlineNanos(now + 3 * MS);
+        scheduler.add("c", task("c", 100));
+        assertEquals(3, scheduler.run(0));
+        assertEquals("Picks up after the last task stepped", Arrays.asList("c", "a", "b"), stepsRun);
+    }
+
+    @Test
+    public void runsNothingOncePastTheDeadline() {
+        scheduler.add("a", task("a", 100));
+        game.setFrameDeadlineNanos(now + MS);
+        assertEquals(0, scheduler.run(1));
+        game.setFrameDeadlineNanos(now - MS);
+        assertEquals(0, scheduler.run(0));
+        assertEquals(1, scheduler.size());
+    }
+
+    @Test
+    public void removesFinishedTasksAndRecordsTheirTime() {
+        scheduler.add("a", task("a", 2));
+        scheduler.add("b", task("b", 100));
+
+        game.setFrameDeadlineNanos(now + 6 * MS);
+        assertEquals(6, scheduler.run(0));
+        assertEquals(Arrays.asList("a", "b", "a", "b", "b", "b"), stepsRun);
+        assertEquals(1, scheduler.size());
+        assertEquals(2, metrics.getTaskDuration("a").getRunningTotal().getLast(), 0);
+        assertEquals(4, metrics.getTaskDuration("b").getRunningTotal().getLast(), 0);
+    }
+
+    @Test
+    public void framesWithoutALimitGetTheMaxFrameDuration() {
+        scheduler.add("a", task("a", 100));
+        game.setFrameDeadlineNanos(Long.MAX_VALUE);
+        assertEquals(5, scheduler.run(0));
+    }
+}
@@ -0,0 +1,118 @@
+package bwapi;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UnitFinderTest {
+
+    private static List<Unit> inRectangle(UnitFinder finder, int left, int top, int right, int bottom, UnitFilter pred) {
+        final List<Unit> output = new ArrayList<>();
+        finder.visit(left, top, right, bottom, pred, output, null, Integer.MAX_VALUE);
+        return output;
+    }
+
+    @Test
+    public void findsTheSameUnitsAsTheGrid() throws IOException {
+        final Game game = GameBuilder.createGame();
+        final UnitFinder finder = new UnitFinder(game.botClientData(), game);
+        final UnitGrid grid = game.getUnitGrid();
+        final UnitFilter pred = u -> u.getID() % 3 != 0;
+
+        final Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            final int left = random.nextInt(game.mapWidth() * 32 + 400) - 200;
+            final int top = random.nextInt(game.mapHeight() * 32 + 400) - 200;
+            // Mostly small areas, with some large, some inverted, and some smaller than a unit
+            final int size = i % 10 == 0 ? 4000 : i % 10 == 1 ? 8 : 400;
+            final int right = left + random.nextInt(size) - size / 10;
+            final int bottom = top + random.nextInt(size) - size / 10;
+            final List<Unit> expected = new ArrayList<>();
+            grid.visit(left, top, right, bottom, pred, expected, null, Integer.MAX_VALUE);
+            assertThat(inRectangle(finder, left, top, right, bottom, pred)).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    public void findsUnitsSpanningTheRectangle() throws IOException {
+        final Game game = GameBuilder.createGame();
+        final UnitFinder finder = new UnitFinder(game.botClientData(), game);
+        final List<Unit> checked = new ArrayList<>();
+        for (Unit unit : game.getAllUnits()) {
+            if (unit.getRight() - unit.getLeft() > 2 && unit.getBottom() - unit.getTop() > 2) {
+                final List<Unit> found = inRectangle(finder, unit.getX(), unit.getY(), unit.getX(), unit.getY(), u -> u == unit);
+                assertEquals(1, found.size());
+                checked.add(unit);
+            }
+        }
+        assertFalse(checked.isEmpty());
+    }
+
+    @Test
+    public void findsUnitsWhichMovedBeforeTheirPositionsAreRefreshed() throws IOException {
+        final Game game = GameBuilder.createGame();
+        final ClientData.GameData data = game.botClientData().gameData();
+        final int frame = data.getFrameCount();
+        for (Unit unit : game.getAllUnits()) {
+            game.unitShow(unit.getID());
+        }
+        final Unit unit = game.getAllUnits().stream().filter(u -> u.getType() == UnitType.Terran_SCV).findFirst().get();
+        final ClientData.UnitData unitData = data.getUnits(unit.getID());
+        final int x = unitData.getPositionX();
+        final int y = unitData.getPositionY();
+
+        // The unit was last seen 64 pixels up and left of where it is this frame, whose unit events are being handled
+        unitData.setPositionX(x - 64);
+        unitData.setPositionY(y - 64);
+        unit.updatePosition(frame + 1);
+        unitData.setPositionX(x);
+        unitData.setPositionY(y);
+        data.setFrameCount(frame + 1);
+        assertEquals(new Position(x - 64, y - 64), unit.getPosition());
+        assertTrue(game.getUnitsInRectangle(x - 300, y - 300, x + 300, y + 300).contains(unit));
+        assertFalse(game.getUnitsInRectangle(x, y, x + 300, y + 300).contains(unit));
+
+        data.setFrameCount(frame + 2);
+        game.onFrame(frame + 2);
+        assertEquals(new Position(x, y), unit.getPosition());
+        assertTrue(game.getUnitsInRectangle(x - 300, y - 300, x + 300, y + 300).contains(unit));
+        assertTrue(game.getUnitsInRectangle(x, y, x + 300, y + 300).contains(unit));
+    }
+
+    @Test
+    public void skipsUnitsWhichAreNotAccessible() throws IOException {
+        final Game game = GameBuilder.createGame();
+        final List<Unit> initial = new ArrayList<>(game.getAllUnits());
+        for (Unit unit : initial) {
+            game.unitShow(unit.getID());
+        }
+        game.botClientData().gameData().setFrameCount(1);
+        game.onFrame(1);
+        final Unit hidden = initial.get(initial.size() / 2);
+        game.unitHide(hidden.getID());
+        final UnitFinder finder = new UnitFinder(game.botClientData(), game);
+
+        final int x = hidden.getX();
+        final int y = hidden.getY();
+        assertTrue(inRectangle(finder, x - 200, y - 200, x + 200, y + 200, u -> true).stream().noneMatch(u -> u == hidden));
+        assertFalse(game.getUnitsInRadius(hidden.getPosition(), 200).contains(hidden));
+
+        // The list returned still follows getAllUnits, which hiding a unit has reordered
+        final List<Unit> expected = new ArrayList<>();
+        for (Unit unit : game.getAllUnits()) {
+            if (x - 200 <= unit.getRight() && y - 200 <= unit.getBottom() && x + 200 >= unit.getLeft() && y + 200 >= unit.getTop()) {
+                expected.add(unit);
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, game.getUnitsInRectangle(x - 200, y - 200, x + 200, y + 200));
+    }
+}
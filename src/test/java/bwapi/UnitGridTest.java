@@ -0,0 +1,149 @@
+package bwapi;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class UnitGridTest {
+
+    private static Unit unitAt(int x, int y, int halfWidth, int halfHeight) {
+        return unitAt(0, x, y, halfWidth, halfHeight);
+    }
+
+    private static Unit unitAt(int id, int x, int y, int halfWidth, int halfHeight) {
+        final Unit unit = mock(Unit.class);
+        given(unit.getID()).willReturn(id);
+        given(unit.getX()).willReturn(x);
+        given(unit.getY()).willReturn(y);
+        given(unit.getLeft()).willReturn(x - halfWidth);
+        given(unit.getRight()).willReturn(x + halfWidth);
+        given(unit.getTop()).willReturn(y - halfHeight);
+        given(unit.getBottom()).willReturn(y + halfHeight);
+        return unit;
+    }
+
+    private static List<Unit> inRectangle(UnitGrid grid, int left, int top, int right, int bottom, UnitFilter pred) {
+        final List<Unit> output = new ArrayList<>();
+        grid.visit(left, top, right, bottom, pred, output, null, Integer.MAX_VALUE);
+        return output;
+    }
+
+    private static List<Unit> bruteForce(List<Unit> units, int left, int top, int right, int bottom, UnitFilter pred) {
+        return units.stream()
+                .filter(u -> left <= u.getRight() && top <= u.getBottom() && right >= u.getLeft() && bottom >= u.getTop() && pred.test(u))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void findsTheSameUnitsInTheSameOrderAsTestingEveryUnit() {
+        final Random random = new Random(42);
+        final List<Unit> units = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // Include units hanging off every edge of a 64x48 tile map, listed out of ID order
+            units.add(unitAt((i * 7) % 300, random.nextInt(2200) - 50, random.nextInt(1700) - 50, random.nextInt(100), random.nextInt(100)));
+        }
+        final UnitGrid grid = new UnitGrid(units, 0, 64, 48);
+        final Game game = new Game();
+        game.setAllUnits(units);
+        final UnitFilter pred = u -> u.getX() % 3 != 0;
+
+        for (int i = 0; i < 2000; i++) {
+            final int left = random.nextInt(2400) - 200;
+            final int top = random.nextInt(1900) - 200;
+            // Mostly small areas, with some large and some inverted ones
+            final int size = i % 10 == 0 ? 2000 : 300;
+            final int right = left + random.nextInt(size) - 20;
+            final int bottom = top + random.nextInt(size) - 20;
+            final List<Unit> expected = bruteForce(units, left, top, right, bottom, pred);
+            assertThat(inRectangle(grid, left, top, right, bottom, pred)).containsExactlyInAnyOrderElementsOf(expected);
+            assertEquals(expected, game.getUnitsInRectangle(left, top, right, bottom, pred));
+        }
+    }
+
+    @Test
+    public void findsUnitsOnAMapWithoutTiles() {
+        final Unit unit = unitAt(15, 35, 5, 5);
+        final List<Unit> units = new ArrayList<>();
+        units.add(unit);
+        final UnitGrid grid = new UnitGrid(units, 0, 0, 0);
+
+        assertEquals(units, inRectangle(grid, 0, 0, 10, 30, u -> true));
+        assertTrue(inRectangle(grid, 21, 0, 100, 100, u -> true).isEmpty());
+    }
+
+    @Test
+    public void stopsAtTheLimit() {
+        final List<Unit> units = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            units.add(unitAt(100 + 200 * i, 100, 50, 50));
+        }
+        final UnitGrid grid = new UnitGrid(units, 0, 64, 64);
+        assertEquals(10, grid.visit(0, 0, 2000, 2000, u -> true, null, null, Integer.MAX_VALUE));
+        assertEquals(3, grid.visit(0, 0, 2000, 2000, u -> true, null, null, 3));
+        assertEquals(1, grid.visit(0, 0, 300, 300, u -> true, null, null, 1));
+    }
+
+    @Test
+    public void rebuildsOnlyWhenTheUnitsChange() throws IOException {
+        final Game game = GameBuilder.createGame();
+        final UnitGrid grid = game.getUnitGrid();
+        assertSame(grid, game.getUnitGrid());
+        final int id = game.getAllUnits().get(0).getID();
+
+        game.unitShow(id);
+        final UnitGrid shown = game.getUnitGrid();
+        assertNotSame(grid, shown);
+        assertSame(shown, game.getUnitGrid());
+
+        game.onFrame(1);
+        final UnitGrid nextFrame = game.getUnitGrid();
+        assertNotSame(shown, nextFrame);
+        assertSame(nextFrame, game.getUnitGrid());
+
+        game.unitHide(id);
+        assertNotSame(nextFrame, game.getUnitGrid());
+    }
+
+    @Test
+    public void gameQueriesMatchTestingEveryUnit() throws IOException {
+        final Game game = GameBuilder.createGame();
+        final List<Unit> units = game.getAllUnits();
+        assertFalse(units.isEmpty());
+
+        final Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            final Position center = new Position(random.nextInt(game.mapWidth() * 32), random.nextInt(game.mapHeight() * 32));
+            final int radius = random.nextInt(i % 10 == 0 ? 3000 : 400);
+            assertEquals(
+                    units.stream().filter(u -> center.getApproxDistance(u.getPosition()) <= radius).collect(Collectors.toList()),
+                    game.getUnitsInRadius(center, radius));
+        }
+        for (Unit unit : units) {
+            final TilePosition tile = unit.getTilePosition();
+            assertEquals(
+                    units.stream().filter(u -> u.getTilePosition().equals(tile)).collect(Collectors.toList()),
+                    game.getUnitsOnTile(tile));
+        }
+        for (int tileX = 0; tileX < 6; tileX++) {
+            for (int tileY = 0; tileY < 6; tileY++) {
+                final TilePosition tile = new TilePosition(tileX, tileY);
+                assertEquals(
+                        units.stream().filter(u -> u.getTilePosition().equals(tile)).collect(Collectors.toList()),
+                        game.getUnitsOnTile(tile));
+            }
+        }
+    }
+}
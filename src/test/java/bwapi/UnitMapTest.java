@@ -0,0 +1,97 @@
+package bwapi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class UnitMapTest {
+
+    private static Unit unit(int id) {
+        final Unit unit = mock(Unit.class);
+        given(unit.getID()).willReturn(id);
+        return unit;
+    }
+
+    @Test
+    public void behavesLikeAHashMap() {
+        final Unit a = unit(900);
+        final Unit b = unit(2);
+        final UnitMap<String> map = new UnitMap<>(16);
+        final Map<Unit, String> expected = new HashMap<>();
+
+        assertNull(map.put(a, "a"));
+        assertEquals("a", map.put(a, "A"));
+        map.put(b, "b");
+        expected.put(a, "A");
+        expected.put(b, "b");
+        assertEquals(expected, map);
+        assertEquals(2, map.size());
+        assertEquals("A", map.get(a));
+        assertEquals("b", map.getById(2));
+        assertNull(map.getById(-1));
+        assertTrue(map.containsKey(b));
+        assertFalse(map.containsId(3));
+        assertEquals("b", map.computeIfAbsent(b, u -> "c"));
+
+        assertEquals("A", map.remove(a));
+        assertNull(map.remove(a));
+        map.put(b, null);
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void iteratesInOrderOfId() {
+        final Unit a = unit(300);
+        final Unit b = unit(1);
+        final Unit c = unit(64);
+        final UnitMap<Integer> map = new UnitMap<>();
+        map.put(a, 3);
+        map.put(b, 1);
+        map.put(c, 2);
+
+        final List<Integer> values = new ArrayList<>();
+        map.forEach((unit, value) -> values.add(value));
+        assertThat(values).containsExactly(1, 2, 3);
+        assertThat(map.keySet()).containsExactly(b, c, a);
+
+        map.entrySet().removeIf(entry -> entry.getValue() == 2);
+        map.entrySet().iterator().next().setValue(10);
+        assertThat(map.values()).containsExactly(10, 3);
+    }
+
+    @Test
+    public void countsWithoutBoxing() {
+        final Unit a = unit(5);
+        final Unit b = unit(1000);
+        final UnitIntMap counts = new UnitIntMap(16);
+
+        assertEquals(0, counts.get(a));
+        assertEquals(-1, counts.getOrDefault(a, -1));
+        assertEquals(2, counts.add(a, 2));
+        assertEquals(5, counts.add(a, 3));
+        assertEquals(0, counts.put(b, 0));
+        assertTrue(counts.containsKey(b));
+        assertEquals(2, counts.size());
+
+        final List<Unit> visited = new ArrayList<>();
+        counts.forEach((unit, count) -> visited.add(unit));
+        assertThat(visited).containsExactly(a, b);
+
+        assertEquals(5, counts.remove(a));
+        assertEquals(0, counts.remove(a));
+        assertEquals(0, counts.get(a));
+        counts.clear();
+        assertTrue(counts.isEmpty());
+    }
+}
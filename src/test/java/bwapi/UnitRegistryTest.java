@@ -0,0 +1,79 @@
+package bwapi;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class UnitRegistryTest {
+
+    private static Unit unit(int id) {
+        final Unit unit = mock(Unit.class);
+        given(unit.getID()).willReturn(id);
+        return unit;
+    }
+
+    @Test
+    public void addsAndRemovesUnits() {
+        final List<Unit> units = new ArrayList<>();
+        final UnitRegistry registry = new UnitRegistry();
+        for (int id = 0; id < 1000; id += 3) {
+            units.add(unit(id));
+            assertTrue(registry.register(units.get(units.size() - 1)));
+        }
+        assertFalse(registry.register(units.get(5)));
+        assertThat(registry).containsExactlyInAnyOrderElementsOf(units);
+
+        final int version = registry.getVersion();
+        for (int i = units.size() - 1; i >= 0; i -= 2) {
+            assertTrue(registry.unregister(units.remove(i).getID()));
+        }
+        assertFalse(registry.unregister(1));
+        assertFalse(registry.unregister(-1));
+        assertFalse(registry.unregister(100000));
+        assertTrue(registry.getVersion() > version);
+        assertThat(registry).containsExactlyInAnyOrderElementsOf(units);
+        for (Unit unit : units) {
+            assertTrue(registry.contains(unit));
+        }
+
+        registry.reset();
+        assertTrue(registry.isEmpty());
+        assertFalse(registry.contains(units.get(0)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cannotBeModifiedThroughTheList() {
+        final UnitRegistry registry = new UnitRegistry();
+        registry.register(unit(1));
+        registry.remove(0);
+    }
+
+    @Test
+    public void gameListsShownUnitsInTheSameList() throws IOException {
+        final Game game = GameBuilder.createGame();
+        final List<Unit> initialUnits = new ArrayList<>(game.getAllUnits());
+        final Unit first = initialUnits.get(0);
+        final Unit second = initialUnits.get(1);
+        game.unitShow(first.getID());
+        game.unitShow(second.getID());
+        game.onFrame(1);
+
+        final List<Unit> allUnits = game.getAllUnits();
+        assertThat(allUnits).containsExactlyInAnyOrder(first, second);
+        game.unitHide(first.getID());
+        game.onFrame(2);
+        assertSame(allUnits, game.getAllUnits());
+        assertEquals(1, allUnits.size());
+        assertSame(second, allUnits.get(0));
+    }
+}
@@ -0,0 +1,131 @@
+package bwapi;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class UnitSetTest {
+
+    private static List<Unit> units(int count) {
+        final List<Unit> units = new ArrayList<>();
+        for (int id = 0; id < count; id++) {
+            final Unit unit = mock(Unit.class);
+            given(unit.getID()).willReturn(id);
+            units.add(unit);
+        }
+        return units;
+    }
+
+    private static UnitSet randomSet(List<Unit> units, Random random) {
+        final UnitSet set = new UnitSet(16);
+        for (Unit unit : units) {
+            if (random.nextInt(3) == 0) {
+                set.add(unit);
+            }
+        }
+        return set;
+    }
+
+    @Test
+    public void addsAndRemovesUnits() {
+        final List<Unit> units = units(1000);
+        final UnitSet set = new UnitSet(16);
+
+        assertTrue(set.add(units.get(700)));
+        assertTrue(set.add(units.get(3)));
+        assertFalse(set.add(units.get(3)));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(units.get(700)));
+        assertTrue(set.containsId(3));
+        assertFalse(set.containsId(4));
+        assertFalse(set.containsId(-1));
+        assertFalse(set.containsId(100000));
+        assertSame(units.get(700), set.get(700));
+
+        assertTrue(set.remove(units.get(700)));
+        assertFalse(set.remove(units.get(700)));
+        assertFalse(set.removeId(5));
+        assertNull(set.get(700));
+        assertEquals(1, set.size());
+
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void iteratesInOrderOfId() {
+        final List<Unit> units = units(300);
+        final UnitSet set = new UnitSet();
+        for (int id : new int[] { 299, 0, 64, 63, 128, 5 }) {
+            set.add(units.get(id));
+        }
+        final List<Unit> expected = new ArrayList<>();
+        for (int id : new int[] { 0, 5, 63, 64, 128, 299 }) {
+            expected.add(units.get(id));
+        }
+
+        assertEquals(expected, new ArrayList<>(set));
+        final List<Unit> visited = new ArrayList<>();
+        set.forEach(visited::add);
+        assertEquals(expected, visited);
+        final List<Unit> walked = new ArrayList<>();
+        for (int id = set.nextId(-10); id >= 0; id = set.nextId(id + 1)) {
+            walked.add(set.get(id));
+        }
+        assertEquals(expected, walked);
+
+        final Iterator<Unit> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getID() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertThat(set).containsExactly(units.get(5), units.get(63), units.get(299));
+    }
+
+    @Test
+    public void bulkOperationsMatchHashSet() {
+        final Random random = new Random(3);
+        final List<Unit> units = units(500);
+        for (int i = 0; i < 50; i++) {
+            // Sets over fewer IDs exercise the different word counts
+            final UnitSet a = randomSet(units.subList(0, random.nextInt(500)), random);
+            final UnitSet b = randomSet(units.subList(0, random.nextInt(500)), random);
+            final Set<Unit> expectedUnion = new HashSet<>(a);
+            expectedUnion.addAll(b);
+            final Set<Unit> expectedIntersection = new HashSet<>(a);
+            expectedIntersection.retainAll(b);
+            final Set<Unit> expectedDifference = new HashSet<>(a);
+            expectedDifference.removeAll(b);
+
+            final UnitSet union = new UnitSet(a);
+            assertEquals(expectedUnion.size() != a.size(), union.addAll(b));
+            assertEquals(expectedUnion, union);
+            assertEquals(expectedUnion.size(), union.size());
+
+            final UnitSet intersection = new UnitSet(a);
+            assertEquals(expectedIntersection.size() != a.size(), intersection.retainAll(b));
+            assertEquals(expectedIntersection, intersection);
+            assertEquals(expectedIntersection.size(), intersection.size());
+
+            final UnitSet difference = new UnitSet(a);
+            assertEquals(expectedDifference.size() != a.size(), difference.removeAll(b));
+            assertEquals(expectedDifference, difference);
+            assertEquals(expectedDifference.size(), difference.size());
+        }
+    }
+}